@@ -40,10 +40,11 @@ dependencies {
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 
-    // ML Kit Text Recognition v2: Base (Latín/Inglés) + Chino + Coreano
+    // ML Kit Text Recognition v2: Base (Latín/Inglés) + Chino + Coreano + Japonés
     implementation(libs.mlkit.text.recognition)
     implementation(libs.mlkit.text.recognition.chinese)
     implementation(libs.mlkit.text.recognition.korean)
+    implementation(libs.mlkit.text.recognition.japanese)
 
     implementation(libs.okhttp)
     implementation(libs.camera.core)
@@ -0,0 +1,165 @@
+package com.example.proyecto_tesis_oe;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.media.ExifInterface;
+import android.util.Log;
+import java.io.IOException;
+
+/**
+ * Decodificación eficiente de las capturas JPEG
+ * Lee solo las cabeceras para conocer el tamaño, decodifica solo la región del marco
+ * de escaneo y elige inSampleSize para no decodificar a la resolución completa del
+ * sensor (12–50 MP) cuando el OCR o la vista previa necesitan mucho menos
+ */
+public class BitmapDecoder {
+    private static final String TAG = "BitmapDecoder";
+
+    /**
+     * Dimensiones {ancho, alto} del JPEG sin decodificar píxeles, o null si no es legible
+     */
+    public static int[] readBounds(String path) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        return new int[]{options.outWidth, options.outHeight};
+    }
+
+    /**
+     * Giro horario (0, 90, 180 o 270) que pide la orientación EXIF del JPEG para verlo derecho.
+     * Los decodificadores de Bitmap la ignoran
+     */
+    public static int readRotation(String path) {
+        try {
+            int orientation = new ExifInterface(path).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_NORMAL);
+            switch (orientation) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo leer EXIF de " + path, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Escribe la orientación EXIF equivalente a un giro horario de rotationDegrees
+     */
+    public static void writeRotation(String path, int rotationDegrees) {
+        int orientation;
+        switch (((rotationDegrees % 360) + 360) % 360) {
+            case 90:
+                orientation = ExifInterface.ORIENTATION_ROTATE_90;
+                break;
+            case 180:
+                orientation = ExifInterface.ORIENTATION_ROTATE_180;
+                break;
+            case 270:
+                orientation = ExifInterface.ORIENTATION_ROTATE_270;
+                break;
+            default:
+                orientation = ExifInterface.ORIENTATION_NORMAL;
+                break;
+        }
+        try {
+            ExifInterface exif = new ExifInterface(path);
+            exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(orientation));
+            exif.saveAttributes();
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo escribir EXIF en " + path, e);
+        }
+    }
+
+    /**
+     * Mayor potencia de 2 que deja el lado mayor en al menos targetMaxSize.
+     * El resultado queda entre targetMaxSize y el doble, y el escalado fino se hace después
+     */
+    public static int calculateSampleSize(int width, int height, int targetMaxSize) {
+        int sampleSize = 1;
+        int longEdge = Math.max(width, height);
+        while (longEdge / (sampleSize * 2) >= targetMaxSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Decodifica solo la región indicada, submuestreada para acercarse a targetMaxSize
+     */
+    public static Bitmap decodeRegion(String path, Rect region, int targetMaxSize) {
+        BitmapRegionDecoder decoder = null;
+        try {
+            decoder = BitmapRegionDecoder.newInstance(path, false);
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = calculateSampleSize(region.width(), region.height(), targetMaxSize);
+
+            long start = System.currentTimeMillis();
+            Bitmap bitmap = decoder.decodeRegion(region, options);
+            Log.d(TAG, "Región " + region.width() + "x" + region.height() + " decodificada con inSampleSize="
+                    + options.inSampleSize + " en " + (System.currentTimeMillis() - start) + " ms");
+            return bitmap;
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error al decodificar región de " + path, e);
+            return null;
+        } finally {
+            if (decoder != null) decoder.recycle();
+        }
+    }
+
+    /**
+     * Igual que decodeRegion pero desde un JPEG en memoria (captura sin pasar por disco)
+     */
+    public static Bitmap decodeRegion(byte[] jpeg, Rect region, int targetMaxSize) {
+        BitmapRegionDecoder decoder = null;
+        try {
+            decoder = BitmapRegionDecoder.newInstance(jpeg, 0, jpeg.length, false);
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = calculateSampleSize(region.width(), region.height(), targetMaxSize);
+            return decoder.decodeRegion(region, options);
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error al decodificar región de JPEG en memoria", e);
+            return null;
+        } finally {
+            if (decoder != null) decoder.recycle();
+        }
+    }
+
+    /**
+     * Decodifica la imagen completa submuestreada para acercarse a targetMaxSize
+     */
+    public static Bitmap decodeSampled(String path, int targetMaxSize) {
+        int[] bounds = readBounds(path);
+        if (bounds == null) {
+            Log.e(TAG, "No se pudieron leer las dimensiones de " + path);
+            return null;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateSampleSize(bounds[0], bounds[1], targetMaxSize);
+        Bitmap bitmap = BitmapFactory.decodeFile(path, options);
+        Log.d(TAG, "Imagen " + bounds[0] + "x" + bounds[1] + " decodificada con inSampleSize=" + options.inSampleSize);
+        return bitmap;
+    }
+
+    /**
+     * Miniatura para mostrar en pantalla: basta con cubrir el tamaño de la vista
+     */
+    public static Bitmap decodeThumbnail(String path, int viewWidth, int viewHeight) {
+        int target = Math.max(1, Math.max(viewWidth, viewHeight));
+        return decodeSampled(path, target);
+    }
+}
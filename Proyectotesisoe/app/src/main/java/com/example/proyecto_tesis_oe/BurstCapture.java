@@ -0,0 +1,143 @@
+package com.example.proyecto_tesis_oe;
+
+import android.graphics.Rect;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageCapture;
+import androidx.camera.core.ImageCaptureException;
+import androidx.camera.core.ImageProxy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Captura en ráfaga: encola varias capturas en memoria seguidas (CameraX las atiende en
+ * orden), copia el recorte de cada una para soltar el ImageProxy cuanto antes y las puntúa
+ * con FrameQuality (nitidez y contraste) en un pool de hilos mientras llegan las siguientes.
+ * Solo la mejor sigue al OCR, así que una foto movida ya no cuesta un reescaneo y el
+ * reconocedor corre las mismas veces que con una sola captura
+ */
+public class BurstCapture {
+    private static final String TAG = "BurstCapture";
+
+    // Capturas por ráfaga
+    public static final int DEFAULT_FRAMES = 3;
+
+    // Hilos de puntuación: los núcleos libres, como mucho uno por captura
+    private static final ExecutorService scorer = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(DEFAULT_FRAMES, Runtime.getRuntime().availableProcessors() - 1)));
+
+    /**
+     * Resultado de la ráfaga (se llama en un hilo del pool de puntuación)
+     */
+    public interface Callback {
+        void onBestFrame(CaptureProcessor.Snapshot snapshot, FrameQuality.Report quality, int index, int scored);
+
+        void onError(String error);
+    }
+
+    private final int frames;
+    private final LiveTextAnalyzer.CropProvider cropProvider;
+    private final Callback callback;
+    private final long startMs = System.currentTimeMillis();
+
+    private int finished = 0;
+    private int scored = 0;
+    private CaptureProcessor.Snapshot best;
+    private FrameQuality.Report bestQuality;
+    private int bestIndex = -1;
+    private String lastError;
+
+    private BurstCapture(int frames, LiveTextAnalyzer.CropProvider cropProvider, Callback callback) {
+        this.frames = frames;
+        this.cropProvider = cropProvider;
+        this.callback = callback;
+    }
+
+    /**
+     * Lanza la ráfaga de frames capturas. Las capturas llegan a cameraExecutor
+     */
+    public static void capture(ImageCapture imageCapture, Executor cameraExecutor, int frames,
+                               LiveTextAnalyzer.CropProvider cropProvider, Callback callback) {
+        BurstCapture burst = new BurstCapture(Math.max(1, frames), cropProvider, callback);
+        for (int i = 0; i < burst.frames; i++) {
+            imageCapture.takePicture(cameraExecutor, burst.new FrameCallback(i));
+        }
+    }
+
+    private class FrameCallback extends ImageCapture.OnImageCapturedCallback {
+        private final int index;
+
+        FrameCallback(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void onCaptureSuccess(@NonNull ImageProxy image) {
+            CaptureProcessor.Snapshot snapshot = null;
+            try {
+                Rect cropRect = CaptureProcessor.cropInBuffer(image, cropProvider);
+                if (cropRect != null) {
+                    snapshot = CaptureProcessor.snapshot(image, cropRect);
+                }
+            } finally {
+                image.close();
+            }
+
+            if (snapshot == null) {
+                finishOne("Error al recortar la captura " + (index + 1));
+                return;
+            }
+            CaptureProcessor.Snapshot copy = snapshot;
+            scorer.execute(() -> offer(index, copy, CaptureProcessor.assessQuality(copy)));
+        }
+
+        @Override
+        public void onError(@NonNull ImageCaptureException exception) {
+            Log.w(TAG, "Falló la captura " + (index + 1) + " de la ráfaga", exception);
+            finishOne(exception.getMessage());
+        }
+    }
+
+    private void offer(int index, CaptureProcessor.Snapshot snapshot, FrameQuality.Report quality) {
+        Log.d(TAG, "Captura " + (index + 1) + "/" + frames + ": " + quality);
+        synchronized (this) {
+            if (quality != null) {
+                scored++;
+                // Las peores se sueltan enseguida: solo se retiene una copia
+                if (quality.isBetterThan(bestQuality)) {
+                    best = snapshot;
+                    bestQuality = quality;
+                    bestIndex = index;
+                }
+            }
+        }
+        finishOne(quality == null ? "No se pudo evaluar la captura " + (index + 1) : null);
+    }
+
+    private void finishOne(String error) {
+        CaptureProcessor.Snapshot winner;
+        FrameQuality.Report quality;
+        int index;
+        int count;
+        String message;
+        synchronized (this) {
+            if (error != null) lastError = error;
+            if (++finished < frames) return;
+            winner = best;
+            quality = bestQuality;
+            index = bestIndex;
+            count = scored;
+            message = lastError;
+            best = null;
+        }
+
+        if (winner == null) {
+            callback.onError(message != null ? message : "No se pudo capturar");
+            return;
+        }
+        Log.d(TAG, "Ráfaga: elegida la captura " + (index + 1) + " de " + count + " en "
+                + (System.currentTimeMillis() - startMs) + " ms");
+        callback.onBestFrame(winner, quality, index, count);
+    }
+}
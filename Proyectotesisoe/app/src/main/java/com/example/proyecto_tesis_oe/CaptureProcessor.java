@@ -0,0 +1,277 @@
+package com.example.proyecto_tesis_oe;
+
+import android.graphics.Bitmap;
+import android.graphics.ImageFormat;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.util.Log;
+import androidx.camera.core.ImageProxy;
+import java.nio.ByteBuffer;
+
+/**
+ * Convierte una captura de CameraX (ImageProxy) en un LumaFrame recortado al marco
+ * de escaneo, todo en memoria y sin escribir JPEG a disco.
+ * Con YUV_420_888 se usa directamente el plano de luminancia; con JPEG (formato por
+ * defecto de ImageCapture) se decodifica en memoria solo la región del marco.
+ * Los píxeles llegan en la orientación del sensor: el marco se calcula sobre la imagen
+ * derecha y se lleva a coordenadas del buffer, y el frame se gira según getRotationDegrees
+ */
+public class CaptureProcessor {
+    private static final String TAG = "CaptureProcessor";
+
+    private static final LumaPreprocessor lumaEngine = new LumaPreprocessor();
+
+    /**
+     * Copia de una captura que sobrevive al ImageProxy: el recorte del plano Y (YUV_420_888)
+     * o el JPEG completo con su recorte. La ráfaga la usa para puntuar varias capturas sin
+     * retener los buffers de la cámara
+     */
+    public static class Snapshot {
+        final int format;
+        final byte[] data;
+        final int rowStride;
+        final Rect cropRect;
+        final int rotationDegrees;
+
+        Snapshot(int format, byte[] data, int rowStride, Rect cropRect, int rotationDegrees) {
+            this.format = format;
+            this.data = data;
+            this.rowStride = rowStride;
+            this.cropRect = cropRect;
+            this.rotationDegrees = rotationDegrees;
+        }
+    }
+
+    /**
+     * Frame listo para el OCR y miniatura de la captura tal como se vio en el marco (derecha,
+     * sin binarizar, enderezar ni recortar al texto) para mostrarla en pantalla
+     */
+    public static class Capture {
+        public final LumaFrame frame;
+        public final Bitmap thumbnail;
+
+        Capture(LumaFrame frame, Bitmap thumbnail) {
+            this.frame = frame;
+            this.thumbnail = thumbnail;
+        }
+    }
+
+    /**
+     * Recorte del marco de escaneo en coordenadas del buffer. uprightCrop recibe el tamaño
+     * de la imagen ya derecha (como se ve en la vista previa)
+     */
+    public static Rect cropInBuffer(ImageProxy image, LiveTextAnalyzer.CropProvider uprightCrop) {
+        int rotation = image.getImageInfo().getRotationDegrees();
+        boolean swap = rotation % 180 != 0;
+        int uprightWidth = swap ? image.getHeight() : image.getWidth();
+        int uprightHeight = swap ? image.getWidth() : image.getHeight();
+        Rect upright = uprightCrop.cropFor(uprightWidth, uprightHeight);
+        return upright == null ? null : toBufferRect(upright, image.getWidth(), image.getHeight(), rotation);
+    }
+
+    /**
+     * Lleva un rectángulo de la imagen derecha al buffer de bufferWidth x bufferHeight que
+     * hay que girar rotationDegrees (horario) para verla derecha
+     */
+    public static Rect toBufferRect(Rect upright, int bufferWidth, int bufferHeight, int rotationDegrees) {
+        switch (((rotationDegrees % 360) + 360) % 360) {
+            case 90:
+                return new Rect(upright.top, bufferHeight - upright.right, upright.bottom, bufferHeight - upright.left);
+            case 180:
+                return new Rect(bufferWidth - upright.right, bufferHeight - upright.bottom,
+                        bufferWidth - upright.left, bufferHeight - upright.top);
+            case 270:
+                return new Rect(bufferWidth - upright.bottom, upright.left, bufferWidth - upright.top, upright.right);
+            default:
+                return upright;
+        }
+    }
+
+    /**
+     * Recorta, endereza, preprocesa y binariza la captura. cropRect va en coordenadas del
+     * buffer (cropInBuffer). No cierra el ImageProxy
+     */
+    public static LumaFrame toLumaFrame(ImageProxy image, Rect cropRect, LocalThresholder.Method method) {
+        Capture capture = capture(image, cropRect, method, 0);
+        return capture != null ? capture.frame : null;
+    }
+
+    /**
+     * Igual que toLumaFrame(ImageProxy, ...), y además una miniatura del recorte con el lado
+     * mayor de thumbnailSize (0 = sin miniatura)
+     */
+    public static Capture capture(ImageProxy image, Rect cropRect, LocalThresholder.Method method,
+                                  int thumbnailSize) {
+        long start = System.currentTimeMillis();
+        int rotation = image.getImageInfo().getRotationDegrees();
+        Capture capture;
+
+        if (image.getFormat() == ImageFormat.YUV_420_888) {
+            ImageProxy.PlaneProxy plane = image.getPlanes()[0];
+            capture = fromLumaPlane(plane.getBuffer(), plane.getRowStride(), cropRect, rotation, method, thumbnailSize);
+        } else if (image.getFormat() == ImageFormat.JPEG) {
+            capture = fromJpeg(readJpeg(image.getPlanes()[0].getBuffer()), cropRect, rotation, method, thumbnailSize);
+        } else {
+            Log.e(TAG, "Formato de captura no soportado: " + image.getFormat());
+            return null;
+        }
+
+        if (capture != null) {
+            Log.d(TAG, "Captura en memoria → " + capture.frame.width + "x" + capture.frame.height + " en "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        return capture;
+    }
+
+    /**
+     * Igual que capture(ImageProxy, ...) sobre una copia
+     */
+    public static Capture capture(Snapshot snapshot, LocalThresholder.Method method, int thumbnailSize) {
+        long start = System.currentTimeMillis();
+        Capture capture = snapshot.format == ImageFormat.YUV_420_888
+                ? fromLumaPlane(ByteBuffer.wrap(snapshot.data), snapshot.rowStride, snapshot.cropRect,
+                        snapshot.rotationDegrees, method, thumbnailSize)
+                : fromJpeg(snapshot.data, snapshot.cropRect, snapshot.rotationDegrees, method, thumbnailSize);
+
+        if (capture != null) {
+            Log.d(TAG, "Captura copiada → " + capture.frame.width + "x" + capture.frame.height + " en "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        return capture;
+    }
+
+    /**
+     * Control de calidad (FrameQuality) del recorte, antes de preprocesar. Con YUV_420_888
+     * se muestrea el plano Y; con JPEG se decodifica la región ya submuestreada.
+     * Devuelve null si no se pudo evaluar. No cierra el ImageProxy
+     */
+    public static FrameQuality.Report assessQuality(ImageProxy image, Rect cropRect) {
+        FrameQuality.Report report = null;
+        if (image.getFormat() == ImageFormat.YUV_420_888) {
+            ImageProxy.PlaneProxy plane = image.getPlanes()[0];
+            report = FrameQuality.assess(plane.getBuffer(), plane.getRowStride(),
+                    cropRect.left, cropRect.top, cropRect.width(), cropRect.height());
+        } else if (image.getFormat() == ImageFormat.JPEG) {
+            report = assessJpeg(readJpeg(image.getPlanes()[0].getBuffer()), cropRect);
+        }
+
+        if (report != null) {
+            Log.d(TAG, "Calidad de la captura: " + report);
+        }
+        return report;
+    }
+
+    /**
+     * Igual que assessQuality(ImageProxy, ...) sobre una copia
+     */
+    public static FrameQuality.Report assessQuality(Snapshot snapshot) {
+        if (snapshot.format == ImageFormat.YUV_420_888) {
+            Rect crop = snapshot.cropRect;
+            return FrameQuality.assess(ByteBuffer.wrap(snapshot.data), snapshot.rowStride,
+                    crop.left, crop.top, crop.width(), crop.height());
+        }
+        return assessJpeg(snapshot.data, snapshot.cropRect);
+    }
+
+    /**
+     * Copia solo lo necesario de la captura (las filas del recorte con YUV_420_888, los bytes
+     * del JPEG). Devuelve null si el formato no está soportado. No cierra el ImageProxy
+     */
+    public static Snapshot snapshot(ImageProxy image, Rect cropRect) {
+        int rotation = image.getImageInfo().getRotationDegrees();
+        if (image.getFormat() == ImageFormat.YUV_420_888) {
+            ImageProxy.PlaneProxy plane = image.getPlanes()[0];
+            ByteBuffer buffer = plane.getBuffer();
+            int width = cropRect.width();
+            int height = cropRect.height();
+            byte[] luma = new byte[width * height];
+            for (int y = 0; y < height; y++) {
+                buffer.position((cropRect.top + y) * plane.getRowStride() + cropRect.left);
+                buffer.get(luma, y * width, width);
+            }
+            return new Snapshot(ImageFormat.YUV_420_888, luma, width, new Rect(0, 0, width, height), rotation);
+        }
+        if (image.getFormat() == ImageFormat.JPEG) {
+            return new Snapshot(ImageFormat.JPEG, readJpeg(image.getPlanes()[0].getBuffer()), 0, cropRect, rotation);
+        }
+        Log.e(TAG, "Formato de captura no soportado: " + image.getFormat());
+        return null;
+    }
+
+    private static FrameQuality.Report assessJpeg(byte[] jpeg, Rect cropRect) {
+        Bitmap region = BitmapDecoder.decodeRegion(jpeg, cropRect, FrameQuality.WORK_SIZE);
+        if (region == null) return null;
+        FrameQuality.Report report = ImagePreprocessor.assessQuality(region);
+        region.recycle();
+        return report;
+    }
+
+    /**
+     * Copia las filas del recorte del plano Y aplicando el contraste del motor de luminancia,
+     * lo endereza, reduce según el tamaño del texto, recorta a la región con texto y binariza.
+     * La miniatura sale del recorte en gris antes de todo eso
+     */
+    private static Capture fromLumaPlane(ByteBuffer buffer, int rowStride, Rect cropRect, int rotationDegrees,
+                                         LocalThresholder.Method method, int thumbnailSize) {
+        byte[] row = new byte[cropRect.width()];
+
+        LumaFrame full;
+        synchronized (lumaEngine) {
+            lumaEngine.begin(cropRect.width(), cropRect.height());
+            for (int y = 0; y < cropRect.height(); y++) {
+                buffer.position((cropRect.top + y) * rowStride + cropRect.left);
+                buffer.get(row, 0, cropRect.width());
+                lumaEngine.acceptLumaRow(row, 0, y);
+            }
+            full = lumaEngine.finish((LocalThresholder.Method) null);
+        }
+
+        Bitmap thumbnail = thumbnailSize > 0 ? grayThumbnail(full, rotationDegrees, thumbnailSize) : null;
+        LumaFrame frame = ImagePreprocessor.prepareGray(full, rotationDegrees);
+        LumaPreprocessor.binarize(frame, method);
+        return new Capture(frame, thumbnail);
+    }
+
+    private static Capture fromJpeg(byte[] jpeg, Rect cropRect, int rotationDegrees,
+                                    LocalThresholder.Method method, int thumbnailSize) {
+        Bitmap region = BitmapDecoder.decodeRegion(jpeg, cropRect, ImagePreprocessor.MAX_SOURCE_SIZE);
+        if (region == null) {
+            return null;
+        }
+        Bitmap thumbnail = thumbnailSize > 0 ? colorThumbnail(region, rotationDegrees, thumbnailSize) : null;
+        LumaFrame frame = ImagePreprocessor.preprocessBitmapToLuma(region, method, rotationDegrees);
+        return frame != null ? new Capture(frame, thumbnail) : null;
+    }
+
+    /**
+     * Miniatura derecha de un frame en gris (no lo modifica ni lo recicla)
+     */
+    private static Bitmap grayThumbnail(LumaFrame gray, int rotationDegrees, int maxSize) {
+        LumaFrame small = LumaPreprocessor.downsample(gray, maxSize);
+        LumaFrame upright = LumaPreprocessor.rotate(small, rotationDegrees);
+        Bitmap thumbnail = ImagePreprocessor.toThumbnail(upright, maxSize);
+        if (upright != small) upright.recycle();
+        if (small != gray) small.recycle();
+        return thumbnail;
+    }
+
+    /**
+     * Miniatura derecha y en color de la región decodificada (una copia: el preprocesado
+     * recicla la región)
+     */
+    private static Bitmap colorThumbnail(Bitmap region, int rotationDegrees, int maxSize) {
+        float scale = Math.min(1f, (float) maxSize / Math.max(region.getWidth(), region.getHeight()));
+        Matrix matrix = new Matrix();
+        matrix.postScale(scale, scale);
+        matrix.postRotate(rotationDegrees);
+        Bitmap thumbnail = Bitmap.createBitmap(region, 0, 0, region.getWidth(), region.getHeight(), matrix, true);
+        return thumbnail != region ? thumbnail : region.copy(region.getConfig(), false);
+    }
+
+    private static byte[] readJpeg(ByteBuffer buffer) {
+        buffer.rewind();
+        byte[] jpeg = new byte[buffer.remaining()];
+        buffer.get(jpeg);
+        return jpeg;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.proyecto_tesis_oe;
+
+/**
+ * Decide qué frames del modo en vivo merecen OCR: la escena tiene que estar quieta
+ * (varios frames seguidos casi iguales), nítida, distinta de la última que se envió
+ * y respetar el límite de OCR por segundo
+ */
+public class FrameGate {
+
+    public enum Decision {
+        MOVING,     // la escena cambia entre frames consecutivos
+        BLURRY,     // quieta pero desenfocada
+        UNCHANGED,  // igual a la última enviada al OCR
+        THROTTLED,  // dentro del intervalo mínimo entre OCR
+        ACCEPT
+    }
+
+    // Diferencia media de firma por debajo de la cual dos frames seguidos se consideran quietos
+    private static final int STABLE_DIFF = 6;
+
+    // Frames quietos seguidos necesarios antes de enviar
+    private static final int STABLE_FRAMES = 2;
+
+    // Diferencia respecto a lo último enviado a partir de la cual hay contenido nuevo
+    private static final int CHANGE_DIFF = 12;
+
+    // Varianza del laplaciano mínima (texto enfocado suele estar muy por encima)
+    public static final double MIN_SHARPNESS = 60.0;
+
+    private int[] previous;
+    private int[] lastSent;
+    private int stableCount = 0;
+    private long lastSentAt = 0;
+
+    /**
+     * Primera fase (solo firma): movimiento, contenido repetido y límite de frecuencia.
+     * Devuelve ACCEPT si el frame puede pasar a la comprobación de nitidez
+     */
+    public synchronized Decision evaluateMotion(int[] signature, long now, long minIntervalMs) {
+        int motion = FrameMetrics.meanAbsDiff(signature, previous);
+        previous = signature;
+
+        if (motion > STABLE_DIFF) {
+            stableCount = 0;
+            return Decision.MOVING;
+        }
+        if (++stableCount < STABLE_FRAMES) {
+            return Decision.MOVING;
+        }
+        if (lastSent != null && FrameMetrics.meanAbsDiff(signature, lastSent) < CHANGE_DIFF) {
+            return Decision.UNCHANGED;
+        }
+        if (now - lastSentAt < minIntervalMs) {
+            return Decision.THROTTLED;
+        }
+        return Decision.ACCEPT;
+    }
+
+    /**
+     * Segunda fase: nitidez. Con ACCEPT el frame queda registrado como enviado
+     */
+    public synchronized Decision evaluateSharpness(int[] signature, double sharpness, long now) {
+        if (sharpness < MIN_SHARPNESS) {
+            return Decision.BLURRY;
+        }
+        lastSent = signature;
+        lastSentAt = now;
+        return Decision.ACCEPT;
+    }
+
+    /**
+     * Si el OCR no encontró texto se permite reintentar la misma escena
+     * (respetando el límite de frecuencia)
+     */
+    public synchronized void onResult(boolean foundText) {
+        if (!foundText) {
+            lastSent = null;
+        }
+    }
+
+    public synchronized void reset() {
+        previous = null;
+        lastSent = null;
+        stableCount = 0;
+        lastSentAt = 0;
+    }
+}
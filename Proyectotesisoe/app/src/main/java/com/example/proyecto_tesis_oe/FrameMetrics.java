@@ -0,0 +1,90 @@
+package com.example.proyecto_tesis_oe;
+
+import android.graphics.Rect;
+import java.nio.ByteBuffer;
+
+/**
+ * Métricas baratas sobre el plano de luminancia (Y) de un frame de cámara.
+ * Se leen con submuestreo directamente del ByteBuffer, sin copiar el plano
+ */
+public class FrameMetrics {
+
+    // Rejilla de la firma del frame (16x16 celdas con el brillo medio de cada una)
+    public static final int SIGNATURE_GRID = 16;
+
+    // Paso de muestreo dentro de cada celda
+    private static final int SAMPLE_STEP = 4;
+
+    /**
+     * Brillo medio de cada celda de una rejilla SIGNATURE_GRID x SIGNATURE_GRID sobre el recorte.
+     * Dos firmas parecidas indican que la escena no se movió ni cambió
+     */
+    public static int[] signature(ByteBuffer plane, int rowStride, Rect crop) {
+        int[] signature = new int[SIGNATURE_GRID * SIGNATURE_GRID];
+        int cellW = Math.max(1, crop.width() / SIGNATURE_GRID);
+        int cellH = Math.max(1, crop.height() / SIGNATURE_GRID);
+
+        for (int gy = 0; gy < SIGNATURE_GRID; gy++) {
+            int top = crop.top + gy * cellH;
+            for (int gx = 0; gx < SIGNATURE_GRID; gx++) {
+                int left = crop.left + gx * cellW;
+                int sum = 0;
+                int count = 0;
+                for (int y = top; y < top + cellH && y < crop.bottom; y += SAMPLE_STEP) {
+                    int rowStart = y * rowStride;
+                    for (int x = left; x < left + cellW && x < crop.right; x += SAMPLE_STEP) {
+                        sum += plane.get(rowStart + x) & 0xFF;
+                        count++;
+                    }
+                }
+                signature[gy * SIGNATURE_GRID + gx] = count > 0 ? sum / count : 0;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Diferencia media absoluta entre dos firmas (0–255)
+     */
+    public static int meanAbsDiff(int[] a, int[] b) {
+        if (a == null || b == null || a.length != b.length) {
+            return 255;
+        }
+        int total = 0;
+        for (int i = 0; i < a.length; i++) {
+            total += Math.abs(a[i] - b[i]);
+        }
+        return total / a.length;
+    }
+
+    /**
+     * Varianza del laplaciano (4 vecinos) muestreada cada step píxeles.
+     * Valores bajos = imagen borrosa o movida
+     */
+    public static double laplacianVariance(ByteBuffer plane, int rowStride, Rect crop, int step) {
+        long sum = 0;
+        long sumSq = 0;
+        int count = 0;
+
+        for (int y = crop.top + 1; y < crop.bottom - 1; y += step) {
+            int row = y * rowStride;
+            for (int x = crop.left + 1; x < crop.right - 1; x += step) {
+                int center = plane.get(row + x) & 0xFF;
+                int lap = (plane.get(row + x - 1) & 0xFF)
+                        + (plane.get(row + x + 1) & 0xFF)
+                        + (plane.get(row - rowStride + x) & 0xFF)
+                        + (plane.get(row + rowStride + x) & 0xFF)
+                        - 4 * center;
+                sum += lap;
+                sumSq += (long) lap * lap;
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+        double mean = (double) sum / count;
+        return (double) sumSq / count - mean * mean;
+    }
+}
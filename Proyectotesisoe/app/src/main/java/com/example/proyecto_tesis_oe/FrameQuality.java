@@ -0,0 +1,244 @@
+package com.example.proyecto_tesis_oe;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Control de calidad de una captura antes del OCR
+ * Sobre una copia reducida de la luminancia sin contraste (el contraste del motor satura el
+ * papel blanco y escondería los brillos) mide nitidez (varianza del laplaciano), histograma
+ * (oscuridad, sobreexposición, contraste) y la fracción de píxeles quemados por reflejos.
+ * Una captura rechazada no pasa por preprocesado, OCR ni traducción; una dudosa sigue pero
+ * se avisa al usuario. El recorte llega como enteros, no como Rect, para poder probarlo en la JVM
+ */
+public class FrameQuality {
+
+    // Lado mayor de la copia que se analiza
+    public static final int WORK_SIZE = 640;
+
+    // Varianza del laplaciano: por debajo del primero se rechaza, del segundo se avisa
+    private static final double REJECT_SHARPNESS = 60;
+    private static final double WARN_SHARPNESS = 150;
+
+    // Percentiles del histograma que se toman como negro y blanco de la escena
+    private static final float LOW_PERCENTILE = 0.05f;
+    private static final float HIGH_PERCENTILE = 0.95f;
+
+    // Exposición: el blanco de la escena muy oscuro o el negro muy claro
+    private static final int REJECT_DARK_HIGH = 50;
+    private static final int WARN_DARK_MEAN = 60;
+    private static final int REJECT_BRIGHT_LOW = 215;
+
+    // Distancia entre percentiles: sin ella no hay trazos que separar del fondo
+    private static final int REJECT_CONTRAST = 25;
+    private static final int WARN_CONTRAST = 50;
+
+    // Reflejos: píxeles saturados (el papel bien expuesto no llega al blanco del sensor)
+    private static final int GLARE_LEVEL = 250;
+    private static final float REJECT_GLARE = 0.12f;
+    private static final float WARN_GLARE = 0.03f;
+
+    public enum Verdict { OK, WARN, REJECT }
+
+    public enum Issue {
+        NONE("", ""),
+        DARK("Imagen demasiado oscura", "Activa la linterna o busca más luz"),
+        OVEREXPOSED("Imagen sobreexpuesta", "Aleja la etiqueta de la luz directa"),
+        GLARE("Reflejos sobre la etiqueta", "Inclina un poco el teléfono o apaga la linterna"),
+        LOW_CONTRAST("Imagen sin contraste", "Acércate y centra el texto en el marco"),
+        BLURRY("Imagen borrosa", "Mantén el teléfono quieto y espera a que enfoque");
+
+        public final String title;
+        public final String hint;
+
+        Issue(String title, String hint) {
+            this.title = title;
+            this.hint = hint;
+        }
+    }
+
+    public static class Report {
+        public final Verdict verdict;
+        public final Issue issue;
+        public final double sharpness;
+        public final int mean;
+        public final int low;
+        public final int high;
+        public final float glare;
+        public final long elapsedMs;
+
+        Report(Verdict verdict, Issue issue, double sharpness, int mean, int low, int high,
+               float glare, long elapsedMs) {
+            this.verdict = verdict;
+            this.issue = issue;
+            this.sharpness = sharpness;
+            this.mean = mean;
+            this.low = low;
+            this.high = high;
+            this.glare = glare;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public boolean isRejected() {
+            return verdict == Verdict.REJECT;
+        }
+
+        /**
+         * Puntuación para comparar capturas de la misma escena: nitidez (RMS del laplaciano)
+         * por contraste, descontando la parte quemada por reflejos
+         */
+        public double score() {
+            return Math.sqrt(sharpness) * (high - low) * (1f - glare);
+        }
+
+        /**
+         * Una captura no rechazada gana siempre a una rechazada; entre iguales, la de más puntuación
+         */
+        public boolean isBetterThan(Report other) {
+            if (other == null) return true;
+            if (isRejected() != other.isRejected()) return !isRejected();
+            return score() > other.score();
+        }
+
+        /**
+         * Mensaje para el usuario: qué falla y cómo corregirlo
+         */
+        public String message() {
+            return issue == Issue.NONE ? "" : issue.title + ". " + issue.hint;
+        }
+
+        @Override
+        public String toString() {
+            return verdict + (issue == Issue.NONE ? "" : " (" + issue + ")")
+                    + " nitidez=" + Math.round(sharpness) + " media=" + mean
+                    + " p5=" + low + " p95=" + high + " reflejos=" + Math.round(glare * 100) + "%"
+                    + " en " + elapsedMs + " ms";
+        }
+    }
+
+    /**
+     * Evalúa un frame en gris sin contraste aplicado. No modifica ni recicla el frame
+     */
+    public static Report assess(LumaFrame gray) {
+        long start = System.currentTimeMillis();
+        LumaFrame small = LumaPreprocessor.downsample(gray, WORK_SIZE);
+        Report report = measure(small, start);
+        if (small != gray) small.recycle();
+        return report;
+    }
+
+    /**
+     * Evalúa el recorte [left, left + width) x [top, top + height) del plano Y de la cámara
+     * leyendo un píxel de cada paso, sin copiar el plano completo
+     */
+    public static Report assess(ByteBuffer plane, int rowStride, int left, int top, int width, int height) {
+        long start = System.currentTimeMillis();
+        int step = Math.max(1, (int) Math.ceil((float) Math.max(width, height) / WORK_SIZE));
+        LumaFrame small = LumaFrame.obtain(width / step, height / step);
+        for (int y = 0; y < small.height; y++) {
+            int row = (top + y * step) * rowStride + left;
+            int out = y * small.width;
+            for (int x = 0; x < small.width; x++) {
+                small.data[out + x] = plane.get(row + x * step);
+            }
+        }
+        Report report = measure(small, start);
+        small.recycle();
+        return report;
+    }
+
+    private static Report measure(LumaFrame small, long start) {
+        int size = small.lumaSize();
+        int[] histogram = new int[256];
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            int value = small.data[i] & 0xff;
+            histogram[value]++;
+            sum += value;
+        }
+
+        int mean = (int) (sum / Math.max(1, size));
+        int low = percentile(histogram, size, LOW_PERCENTILE);
+        int high = percentile(histogram, size, HIGH_PERCENTILE);
+        int glarePixels = 0;
+        for (int v = GLARE_LEVEL; v < 256; v++) {
+            glarePixels += histogram[v];
+        }
+        float glare = (float) glarePixels / Math.max(1, size);
+        double sharpness = laplacianVariance(small);
+
+        // Primero la exposición: en una imagen oscura o quemada la nitidez no dice nada
+        Verdict verdict = Verdict.OK;
+        Issue issue = Issue.NONE;
+        if (high < REJECT_DARK_HIGH) {
+            verdict = Verdict.REJECT;
+            issue = Issue.DARK;
+        } else if (low > REJECT_BRIGHT_LOW) {
+            verdict = Verdict.REJECT;
+            issue = Issue.OVEREXPOSED;
+        } else if (glare >= REJECT_GLARE) {
+            verdict = Verdict.REJECT;
+            issue = Issue.GLARE;
+        } else if (high - low < REJECT_CONTRAST) {
+            verdict = Verdict.REJECT;
+            issue = Issue.LOW_CONTRAST;
+        } else if (sharpness < REJECT_SHARPNESS) {
+            verdict = Verdict.REJECT;
+            issue = Issue.BLURRY;
+        } else if (sharpness < WARN_SHARPNESS) {
+            verdict = Verdict.WARN;
+            issue = Issue.BLURRY;
+        } else if (glare >= WARN_GLARE) {
+            verdict = Verdict.WARN;
+            issue = Issue.GLARE;
+        } else if (mean < WARN_DARK_MEAN) {
+            verdict = Verdict.WARN;
+            issue = Issue.DARK;
+        } else if (high - low < WARN_CONTRAST) {
+            verdict = Verdict.WARN;
+            issue = Issue.LOW_CONTRAST;
+        }
+
+        return new Report(verdict, issue, sharpness, mean, low, high, glare,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Varianza del laplaciano (4 vecinos), como FrameMetrics.laplacianVariance con paso 1
+     */
+    static double laplacianVariance(LumaFrame frame) {
+        int w = frame.width;
+        byte[] data = frame.data;
+        long sum = 0;
+        long sumSq = 0;
+        int count = 0;
+
+        for (int y = 1; y < frame.height - 1; y++) {
+            int row = y * w;
+            for (int x = 1; x < w - 1; x++) {
+                int i = row + x;
+                int lap = (data[i - 1] & 0xff) + (data[i + 1] & 0xff)
+                        + (data[i - w] & 0xff) + (data[i + w] & 0xff)
+                        - 4 * (data[i] & 0xff);
+                sum += lap;
+                sumSq += (long) lap * lap;
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+        double mean = (double) sum / count;
+        return (double) sumSq / count - mean * mean;
+    }
+
+    private static int percentile(int[] histogram, int total, float fraction) {
+        int target = Math.round(fraction * total);
+        int seen = 0;
+        for (int v = 0; v < 256; v++) {
+            seen += histogram[v];
+            if (seen > target) return v;
+        }
+        return 255;
+    }
+}
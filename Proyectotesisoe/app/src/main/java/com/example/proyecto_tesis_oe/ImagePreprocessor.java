@@ -1,11 +1,6 @@
 package com.example.proyecto_tesis_oe;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
-import android.graphics.ColorMatrix;
-import android.graphics.ColorMatrixColorFilter;
-import android.graphics.Paint;
 import android.util.Log;
 
 /**
@@ -15,150 +10,259 @@ import android.util.Log;
 public class ImagePreprocessor {
     private static final String TAG = "ImagePreprocessor";
 
+    // Lado mayor cuando no se puede estimar el tamaño del texto (límite fijo anterior)
+    public static final int MAX_OCR_SIZE = 1920;
+
+    // Lado mayor con el que se decodifica la fuente: deja margen a la letra pequeña, que
+    // scaleForText conserva; el texto grande se reduce mucho más
+    public static final int MAX_SOURCE_SIZE = 2560;
+
+    // Lado mayor mínimo tras el escalado adaptativo
+    private static final int MIN_OCR_SIZE = 640;
+
+    // Altura de línea (px) con la que ML Kit lee bien; más píxeles no mejoran la precisión
+    private static final int MIN_TEXT_HEIGHT = 20;
+
+    // Filas que se copian por cada llamada a getPixels en el motor de luminancia
+    private static final int ROWS_PER_STRIP = 32;
+
+    // Sauvola tolera los brillos de etiquetas satinadas que rompen el umbral global
+    public static final LocalThresholder.Method DEFAULT_THRESHOLD = LocalThresholder.Method.SAUVOLA;
+
+    private static final LumaPreprocessor lumaEngine = new LumaPreprocessor();
+
+    // Sin contraste: el control de calidad mide la exposición real de la captura
+    private static final LumaPreprocessor qualityEngine = new LumaPreprocessor(1f);
+
+    /**
+     * Procesa una imagen para OCR con el motor de luminancia de una sola pasada:
+     * escalado + contraste + gris + binarización sobre un buffer de 8 bits reutilizable.
+     * El frame devuelto debe liberarse con recycle() cuando ML Kit termine de leerlo
+     */
+    public static LumaFrame preprocessToLuma(String imagePath) {
+        return preprocessToLuma(imagePath, DEFAULT_THRESHOLD);
+    }
+
     /**
-     * Procesa una imagen para optimizarla para OCR
-     * Aplica: escalado, contraste, nitidez, binarización
+     * Igual que preprocessToLuma(String) pero eligiendo el método de binarización del escaneo
      */
-    public static Bitmap preprocessForOCR(String imagePath) {
+    public static LumaFrame preprocessToLuma(String imagePath, LocalThresholder.Method method) {
         try {
-            // 1. Cargar imagen original
-            Bitmap original = BitmapFactory.decodeFile(imagePath);
+            Bitmap original = BitmapDecoder.decodeSampled(imagePath, MAX_SOURCE_SIZE);
             if (original == null) {
                 Log.e(TAG, "No se pudo cargar la imagen: " + imagePath);
                 return null;
             }
 
-            Log.d(TAG, "Imagen cargada: " + original.getWidth() + "x" + original.getHeight());
+            // BitmapFactory ignora la orientación EXIF: se aplica sobre la luminancia
+            return preprocessBitmapToLuma(original, method, BitmapDecoder.readRotation(imagePath));
 
-            // 2. Escalar si es muy grande (máximo 1920x1920 para balance velocidad/calidad)
-            Bitmap scaled = scaleImage(original, 1920);
+        } catch (Exception e) {
+            Log.e(TAG, "Error en preprocesamiento", e);
+            return null;
+        }
+    }
 
-            // 3. Aumentar contraste y nitidez
-            Bitmap enhanced = enhanceContrast(scaled, 1.5f); // Factor 1.5 = +50% contraste
+    /**
+     * Limita el tamaño de un bitmap ya decodificado y lo pasa por el motor de luminancia,
+     * que lo escala según el tamaño del texto. El bitmap de entrada se recicla
+     */
+    public static LumaFrame preprocessBitmapToLuma(Bitmap original, LocalThresholder.Method method) {
+        return preprocessBitmapToLuma(original, method, 0);
+    }
 
-            // 4. Convertir a escala de grises optimizada
-            Bitmap grayscale = convertToGrayscale(enhanced);
+    /**
+     * Igual que preprocessBitmapToLuma pero girando rotationDegrees (EXIF o ImageProxy) para
+     * dejar el texto derecho
+     */
+    public static LumaFrame preprocessBitmapToLuma(Bitmap original, LocalThresholder.Method method,
+                                                   int rotationDegrees) {
+        Bitmap scaled = scaleImage(original, MAX_SOURCE_SIZE);
+        if (scaled != original) original.recycle();
 
-            // 5. Aplicar threshold adaptativo (binarización)
-            Bitmap final_img = applyAdaptiveThreshold(grayscale);
+        LumaFrame frame = toLuma(scaled, method, rotationDegrees);
+        scaled.recycle();
+        return frame;
+    }
 
-            // Liberar bitmaps intermedios
-            if (scaled != original) scaled.recycle();
-            if (enhanced != scaled) enhanced.recycle();
-            if (grayscale != enhanced) grayscale.recycle();
+    /**
+     * Reduce un frame en gris lo más posible sin que la letra pequeña baje de
+     * MIN_TEXT_HEIGHT píxeles de alto (factor entero, promediando bloques). Sin estimación
+     * del texto se aplica el límite fijo MAX_OCR_SIZE. Si reduce, recicla el original
+     */
+    public static LumaFrame scaleForText(LumaFrame gray) {
+        long start = System.currentTimeMillis();
+        TextSizeEstimator.Estimate estimate = TextSizeEstimator.estimate(gray);
+        int longSide = Math.max(gray.width, gray.height);
 
-            Log.d(TAG, "Preprocesamiento completado exitosamente");
-            return final_img;
+        int factor;
+        if (estimate == null) {
+            factor = (int) Math.ceil((float) longSide / MAX_OCR_SIZE);
+        } else {
+            float scale = Math.max(MIN_TEXT_HEIGHT / estimate.finePrintHeight, (float) MIN_OCR_SIZE / longSide);
+            factor = scale >= 1f ? 1 : (int) Math.floor(1f / scale);
+        }
+        factor = Math.max(factor, (int) Math.ceil((float) longSide / MAX_SOURCE_SIZE));
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error en preprocesamiento", e);
-            return null;
+        if (factor <= 1) {
+            Log.d(TAG, "Escala según texto: sin reducir " + gray.width + "x" + gray.height
+                    + " (" + (estimate != null ? estimate : "sin estimación") + ")");
+            return gray;
         }
+
+        LumaFrame scaled = LumaPreprocessor.downsample(gray, longSide / factor);
+        Log.d(TAG, "Escala según texto: " + gray.width + "x" + gray.height + " → " + scaled.width + "x" + scaled.height
+                + " (1/" + factor + ", " + (estimate != null ? estimate : "sin estimación, límite fijo") + ") en "
+                + (System.currentTimeMillis() - start) + " ms");
+        if (scaled != gray) gray.recycle();
+        return scaled;
     }
 
     /**
-     * Escala la imagen manteniendo aspect ratio
+     * Cadena común sobre el frame en gris recién convertido: giro según los metadatos,
+     * escala según el tamaño del texto, corrección de la inclinación (SkewCorrector) y
+     * recorte a la región con texto. Recicla los frames intermedios
      */
-    private static Bitmap scaleImage(Bitmap source, int maxSize) {
-        int width = source.getWidth();
-        int height = source.getHeight();
+    public static LumaFrame prepareGray(LumaFrame gray, int rotationDegrees) {
+        LumaFrame upright = LumaPreprocessor.rotate(gray, rotationDegrees);
+        if (upright != gray) gray.recycle();
+        upright.rotationDegrees = ((rotationDegrees % 360) + 360) % 360;
 
-        if (width <= maxSize && height <= maxSize) {
-            return source; // No escalar si ya es pequeña
+        LumaFrame scaled = scaleForText(upright);
+        scaled.rotationDegrees = upright.rotationDegrees;
+
+        long start = System.currentTimeMillis();
+        LumaFrame straight = SkewCorrector.correct(scaled);
+        Log.d(TAG, "Orientación: giro " + straight.rotationDegrees + "°, inclinación " + straight.skewDegrees
+                + "° en " + (System.currentTimeMillis() - start) + " ms - " + SkewCorrector.getStats());
+
+        LumaFrame frame = cropToText(straight);
+        frame.rotationDegrees = straight.rotationDegrees;
+        frame.skewDegrees = straight.skewDegrees;
+        return frame;
+    }
+
+    /**
+     * Recorta un frame en gris a la unión de las regiones con texto (TextRegionDetector).
+     * Devuelve el mismo frame si no hay nada que recortar; si recorta, recicla el original
+     */
+    public static LumaFrame cropToText(LumaFrame gray) {
+        long start = System.currentTimeMillis();
+        TextRegionDetector.Region bounds = TextRegionDetector.textBounds(gray);
+        if (bounds == null) {
+            Log.d(TAG, "Sin recorte de texto (" + (System.currentTimeMillis() - start) + " ms)");
+            return gray;
         }
 
-        float scale = Math.min((float) maxSize / width, (float) maxSize / height);
-        int newWidth = Math.round(width * scale);
-        int newHeight = Math.round(height * scale);
+        LumaFrame cropped = LumaPreprocessor.crop(gray, bounds.left, bounds.top, bounds.right, bounds.bottom);
+        if (cropped == null) return gray;
+        cropped.uncroppedPixels = gray.lumaSize();
+        TextRegionDetector.recordCrop(gray.lumaSize(), cropped.lumaSize());
+        Log.d(TAG, "Recorte de texto " + gray.width + "x" + gray.height + " → " + cropped.width + "x" + cropped.height
+                + " " + bounds + " en " + (System.currentTimeMillis() - start) + " ms - "
+                + TextRegionDetector.getStats());
+        gray.recycle();
+        return cropped;
+    }
 
-        Log.d(TAG, "Escalando de " + width + "x" + height + " a " + newWidth + "x" + newHeight);
-        return Bitmap.createScaledBitmap(source, newWidth, newHeight, true);
+    /**
+     * Control de calidad (FrameQuality) de un bitmap sobre una copia reducida en gris.
+     * No recicla el bitmap de entrada
+     */
+    public static FrameQuality.Report assessQuality(Bitmap source) {
+        Bitmap small = scaleImage(source, FrameQuality.WORK_SIZE);
+        int width = small.getWidth();
+        int height = small.getHeight();
+        int[] argb = new int[width * height];
+        small.getPixels(argb, 0, width, 0, 0, width, height);
+        if (small != source) small.recycle();
+
+        LumaFrame gray;
+        synchronized (qualityEngine) {
+            gray = qualityEngine.process(argb, width, height, (LocalThresholder.Method) null);
+        }
+        FrameQuality.Report report = FrameQuality.assess(gray);
+        gray.recycle();
+        return report;
     }
 
     /**
-     * Aumenta contraste y nitidez de la imagen
+     * Control de calidad de una imagen en disco, decodificada ya submuestreada
      */
-    private static Bitmap enhanceContrast(Bitmap source, float contrastFactor) {
-        Bitmap result = Bitmap.createBitmap(source.getWidth(), source.getHeight(), source.getConfig());
-        Canvas canvas = new Canvas(result);
-        Paint paint = new Paint();
-
-        // Matriz de color para aumentar contraste
-        float translate = (-.5f * contrastFactor + .5f) * 255.f;
-        ColorMatrix cm = new ColorMatrix(new float[] {
-                contrastFactor, 0, 0, 0, translate,
-                0, contrastFactor, 0, 0, translate,
-                0, 0, contrastFactor, 0, translate,
-                0, 0, 0, 1, 0
-        });
-
-        paint.setColorFilter(new ColorMatrixColorFilter(cm));
-        canvas.drawBitmap(source, 0, 0, paint);
-
-        Log.d(TAG, "Contraste aumentado (factor: " + contrastFactor + ")");
-        return result;
+    public static FrameQuality.Report assessQuality(String imagePath) {
+        Bitmap bitmap = BitmapDecoder.decodeSampled(imagePath, FrameQuality.WORK_SIZE);
+        if (bitmap == null) return null;
+        FrameQuality.Report report = assessQuality(bitmap);
+        bitmap.recycle();
+        return report;
     }
 
     /**
-     * Convierte a escala de grises usando luminosidad óptima
+     * Miniatura ARGB de un frame de luminancia para mostrarla en pantalla
      */
-    private static Bitmap convertToGrayscale(Bitmap source) {
-        Bitmap result = Bitmap.createBitmap(source.getWidth(), source.getHeight(), source.getConfig());
-        Canvas canvas = new Canvas(result);
-        Paint paint = new Paint();
-
-        ColorMatrix cm = new ColorMatrix();
-        cm.setSaturation(0); // Elimina color (saturación = 0)
-        paint.setColorFilter(new ColorMatrixColorFilter(cm));
-        canvas.drawBitmap(source, 0, 0, paint);
-
-        Log.d(TAG, "Convertido a escala de grises");
-        return result;
+    public static Bitmap toThumbnail(LumaFrame frame, int maxSize) {
+        LumaFrame small = LumaPreprocessor.downsample(frame, maxSize);
+        int[] colors = new int[small.lumaSize()];
+        for (int i = 0; i < colors.length; i++) {
+            int gray = small.data[i] & 0xff;
+            colors[i] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
+        }
+        Bitmap thumbnail = Bitmap.createBitmap(colors, small.width, small.height, Bitmap.Config.ARGB_8888);
+        if (small != frame) small.recycle();
+        return thumbnail;
     }
 
     /**
-     * Aplica threshold adaptativo para binarización (blanco/negro puro)
-     * Mejora detección de texto en fondos irregulares
+     * Pasa un bitmap por el motor de luminancia copiando los píxeles por franjas de filas y
+     * le aplica prepareGray (giro, escala, inclinación y recorte). Con method null el
+     * frame queda en gris, sin binarizar
      */
-    private static Bitmap applyAdaptiveThreshold(Bitmap source) {
+    static LumaFrame toLuma(Bitmap source, LocalThresholder.Method method, int rotationDegrees) {
+        long start = System.currentTimeMillis();
         int width = source.getWidth();
         int height = source.getHeight();
-        Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-
-        int[] pixels = new int[width * height];
-        source.getPixels(pixels, 0, width, 0, 0, width, height);
+        int[] strip = new int[width * ROWS_PER_STRIP];
 
-        // Calcular threshold promedio de la imagen
-        long sum = 0;
-        for (int pixel : pixels) {
-            int gray = (pixel >> 16) & 0xff; // Extraer canal R (en grayscale R=G=B)
-            sum += gray;
+        LumaFrame frame;
+        int threshold;
+        synchronized (lumaEngine) {
+            lumaEngine.begin(width, height);
+            for (int y = 0; y < height; y += ROWS_PER_STRIP) {
+                int rows = Math.min(ROWS_PER_STRIP, height - y);
+                source.getPixels(strip, 0, width, 0, y, width, rows);
+                for (int r = 0; r < rows; r++) {
+                    lumaEngine.acceptRow(strip, r * width, y + r);
+                }
+            }
+            frame = lumaEngine.finish((LocalThresholder.Method) null);
         }
-        int threshold = (int) (sum / pixels.length * 0.85); // 85% del promedio como threshold
 
-        // Aplicar binarización
-        for (int i = 0; i < pixels.length; i++) {
-            int gray = (pixels[i] >> 16) & 0xff;
-            pixels[i] = (gray > threshold) ? 0xFFFFFFFF : 0xFF000000; // Blanco o Negro
-        }
+        // Se endereza, se escala según el tamaño del texto y se binariza solo la región con texto
+        frame = prepareGray(frame, rotationDegrees);
+        threshold = method != null ? LumaPreprocessor.binarize(frame, method) : -1;
 
-        result.setPixels(pixels, 0, width, 0, 0, width, height);
-        Log.d(TAG, "Threshold adaptativo aplicado (umbral: " + threshold + ")");
-        return result;
+        Log.d(TAG, "Luminancia " + frame.width + "x" + frame.height + " (" + method + ", umbral: " + threshold
+                + ") en " + (System.currentTimeMillis() - start) + " ms; tiempos por método: "
+                + LocalThresholder.getLastTimesMs());
+        return frame;
     }
 
     /**
-     * Guarda bitmap procesado (útil para debugging)
+     * Escala la imagen manteniendo aspect ratio
      */
-    public static void saveBitmap(Bitmap bitmap, String path) {
-        try {
-            java.io.FileOutputStream out = new java.io.FileOutputStream(path);
-            bitmap.compress(Bitmap.CompressFormat.JPEG, 95, out);
-            out.flush();
-            out.close();
-            Log.d(TAG, "Imagen guardada: " + path);
-        } catch (Exception e) {
-            Log.e(TAG, "Error al guardar bitmap", e);
+    private static Bitmap scaleImage(Bitmap source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        if (width <= maxSize && height <= maxSize) {
+            return source; // No escalar si ya es pequeña
         }
+
+        float scale = Math.min((float) maxSize / width, (float) maxSize / height);
+        int newWidth = Math.round(width * scale);
+        int newHeight = Math.round(height * scale);
+
+        Log.d(TAG, "Escalando de " + width + "x" + height + " a " + newWidth + "x" + newHeight);
+        return Bitmap.createScaledBitmap(source, newWidth, newHeight, true);
     }
 }
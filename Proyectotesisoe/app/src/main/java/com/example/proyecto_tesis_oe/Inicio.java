@@ -6,10 +6,11 @@ import android.animation.ValueAnimator;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.graphics.Rect;
 import android.os.Bundle;
 import android.os.Handler;
 import android.util.Log;
+import android.util.Size;
 import android.view.View;
 import android.view.animation.AccelerateDecelerateInterpolator;
 import android.widget.Button;
@@ -21,25 +22,56 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
+import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import com.example.proyecto_tesis_oe.services.NearDuplicateIndex;
+import com.example.proyecto_tesis_oe.services.OllamaHostPool;
+import com.example.proyecto_tesis_oe.services.OllamaWarmUp;
+import com.example.proyecto_tesis_oe.services.RecognizerManager;
+import com.example.proyecto_tesis_oe.services.ScanJob;
+import com.example.proyecto_tesis_oe.services.ScriptRouter;
+import com.example.proyecto_tesis_oe.services.TranslationCache;
 import com.google.common.util.concurrent.ListenableFuture;
 import java.io.File;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Inicio extends AppCompatActivity {
     private static final String TAG = "Inicio";
     private static final int CAMERA_PERMISSION_CODE = 100;
 
+    // Lado mayor al que se decodifica el recorte (el mismo límite que usa ImagePreprocessor;
+    // el escalado final lo decide el tamaño del texto)
+    private static final int OCR_TARGET_SIZE = ImagePreprocessor.MAX_SOURCE_SIZE;
+
+    // Duración de la animación de captura antes de abrir ResultsActivity
+    private static final long SCAN_ANIMATION_MS = 1500;
+
+    // Lado mayor de la miniatura de la captura si la vista previa aún no se midió
+    private static final int DEFAULT_THUMBNAIL_SIZE = 1080;
+
+    // Resolución del análisis en vivo (el plano Y basta para el filtro y el OCR)
+    private static final Size LIVE_ANALYSIS_SIZE = new Size(1280, 720);
+
+    // Rechazos seguidos por calidad tras los cuales la captura pasa igualmente (con aviso):
+    // una etiqueta lisa o mate no debe quedar bloqueada por el filtro
+    private static final int MAX_QUALITY_REJECTS = 2;
+
     // Variables de cámara
     private ImageCapture imageCapture;
     private Camera camera;
+    private ProcessCameraProvider cameraProvider;
+    private CameraSelector cameraSelector;
+    private ImageAnalysis imageAnalysis;
+    private LiveTextAnalyzer liveAnalyzer;
     private ExecutorService cameraExecutor;
     private PreviewView previewView;
 
@@ -49,6 +81,9 @@ public class Inicio extends AppCompatActivity {
     private ProgressBar progressBar;
     private Button captureButton;
     private Button flashlightButton;
+    private Button liveModeButton;
+    private Button burstModeButton;
+    private TextView liveTextOverlay;
     private View scanLine;
     private View scanFrame;
     private ImageView capturedImageOverlay;
@@ -57,6 +92,14 @@ public class Inicio extends AppCompatActivity {
     private ObjectAnimator scanAnimator;
     private boolean isProcessing = false;
     private boolean isFlashlightOn = false;
+    private boolean isLiveMode = false;
+    private boolean isBurstMode = false;
+
+    // Geometría del marco tomada en el hilo principal (la leen los hilos de cámara)
+    private volatile ScanFrameGeometry scanGeometry;
+
+    // Rechazos seguidos por calidad (se cuentan desde los hilos de cámara y de la ráfaga)
+    private final AtomicInteger qualityRejects = new AtomicInteger();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -67,6 +110,13 @@ public class Inicio extends AppCompatActivity {
         initializeViews();
         cameraExecutor = Executors.newSingleThreadExecutor();
 
+        // Precargar modelos OCR (no hace nada si MainActivity ya los cargó)
+        RecognizerManager.warmUp();
+        ScriptRouter.init(this);
+        TranslationCache.init(this);
+        NearDuplicateIndex.init(this);
+        OllamaWarmUp.start(this);
+
         if (hasCameraPermission()) {
             Log.d(TAG, "Permiso de cámara ya otorgado");
             startCamera();
@@ -85,6 +135,12 @@ public class Inicio extends AppCompatActivity {
 
         // Listener para botón de linterna
         flashlightButton.setOnClickListener(v -> toggleFlashlight());
+
+        // Listener para botón de modo en vivo
+        liveModeButton.setOnClickListener(v -> toggleLiveMode());
+
+        // Listener para botón de ráfaga
+        burstModeButton.setOnClickListener(v -> toggleBurstMode());
     }
 
     private void initializeViews() {
@@ -93,6 +149,9 @@ public class Inicio extends AppCompatActivity {
         progressBar = findViewById(R.id.progressBar);
         captureButton = findViewById(R.id.captureButton);
         flashlightButton = findViewById(R.id.flashlightButton);
+        liveModeButton = findViewById(R.id.liveModeButton);
+        burstModeButton = findViewById(R.id.burstModeButton);
+        liveTextOverlay = findViewById(R.id.liveTextOverlay);
         scanLine = findViewById(R.id.scanLine);
         scanFrame = findViewById(R.id.scanFrame);
         capturedImageOverlay = findViewById(R.id.capturedImageOverlay);
@@ -102,6 +161,16 @@ public class Inicio extends AppCompatActivity {
         processingTextView.setVisibility(View.GONE);
         scanLine.setVisibility(View.GONE);
         capturedImageOverlay.setVisibility(View.GONE);
+        liveTextOverlay.setVisibility(View.GONE);
+
+        // El recorte se calcula fuera del hilo principal: la geometría se copia en cada layout
+        View.OnLayoutChangeListener geometryListener =
+                (v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> updateScanGeometry();
+        previewView.addOnLayoutChangeListener(geometryListener);
+        scanFrame.addOnLayoutChangeListener(geometryListener);
+
+        isBurstMode = ScanSettings.isBurstModeEnabled(this);
+        updateBurstButton();
 
         updateStatus("📷 Cámara lista - Captura una etiqueta");
 
@@ -177,7 +246,7 @@ public class Inicio extends AppCompatActivity {
 
         cameraProviderFuture.addListener(() -> {
             try {
-                ProcessCameraProvider cameraProvider = cameraProviderFuture.get();
+                cameraProvider = cameraProviderFuture.get();
                 Log.d(TAG, "Cámara provider obtenida");
 
                 Preview preview = new Preview.Builder().build();
@@ -190,7 +259,7 @@ public class Inicio extends AppCompatActivity {
 
                 Log.d(TAG, "ImageCapture creado con máxima calidad (flash controlado por linterna)");
 
-                CameraSelector cameraSelector = new CameraSelector.Builder()
+                cameraSelector = new CameraSelector.Builder()
                         .requireLensFacing(CameraSelector.LENS_FACING_BACK)
                         .build();
 
@@ -264,6 +333,103 @@ public class Inicio extends AppCompatActivity {
         }
     }
 
+    /**
+     * Ráfaga (activar/desactivar): la preferencia se guarda entre sesiones
+     */
+    private void toggleBurstMode() {
+        isBurstMode = !isBurstMode;
+        ScanSettings.setBurstModeEnabled(this, isBurstMode);
+        updateBurstButton();
+
+        if (isBurstMode && ScanSettings.isSaveCapturesEnabled(this)) {
+            Toast.makeText(this, "La ráfaga solo se usa con la captura en memoria", Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, isBurstMode
+                    ? "🎞 Ráfaga: " + BurstCapture.DEFAULT_FRAMES + " fotos, se usa la más nítida"
+                    : "Ráfaga desactivada", Toast.LENGTH_SHORT).show();
+        }
+        Log.d(TAG, "Ráfaga " + (isBurstMode ? "activada" : "desactivada"));
+    }
+
+    private void updateBurstButton() {
+        burstModeButton.setBackgroundTintList(
+                android.content.res.ColorStateList.valueOf(isBurstMode ? 0xFF1E88E5 : 0xFF424242) // Azul / Gris
+        );
+    }
+
+    /**
+     * Modo en vivo: añade un ImageAnalysis a la cámara ya ligada. Los frames se filtran
+     * en cameraExecutor y el texto reconocido aparece sobre la vista previa
+     */
+    private void toggleLiveMode() {
+        if (cameraProvider == null || cameraSelector == null) {
+            Toast.makeText(this, "Cámara no disponible", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        if (isLiveMode) {
+            stopLiveMode();
+            updateStatus("📷 Cámara lista - Captura una etiqueta");
+            return;
+        }
+
+        try {
+            imageAnalysis = new ImageAnalysis.Builder()
+                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                    .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                    .setTargetResolution(LIVE_ANALYSIS_SIZE)
+                    .build();
+
+            liveAnalyzer = new LiveTextAnalyzer(this, this::computeScanFrameRect,
+                    ScanSettings.getLiveOcrMaxFps(this), this::showLiveText);
+            imageAnalysis.setAnalyzer(cameraExecutor, liveAnalyzer);
+
+            camera = cameraProvider.bindToLifecycle(Inicio.this, cameraSelector, imageAnalysis);
+            isLiveMode = true;
+
+            liveModeButton.setText("⏹");
+            liveModeButton.setBackgroundTintList(
+                    android.content.res.ColorStateList.valueOf(0xFFE53935) // Rojo
+            );
+            liveTextOverlay.setText("");
+            liveTextOverlay.setVisibility(View.VISIBLE);
+            updateStatus("🔴 Modo en vivo - Apunta a una etiqueta");
+            Log.d(TAG, "Modo en vivo activado (máx. " + ScanSettings.getLiveOcrMaxFps(this) + " OCR/s)");
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error al activar modo en vivo", e);
+            stopLiveMode();
+            Toast.makeText(this, "No se pudo activar el modo en vivo", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void stopLiveMode() {
+        if (liveAnalyzer != null) {
+            liveAnalyzer.stop();
+            liveAnalyzer = null;
+        }
+        if (imageAnalysis != null) {
+            imageAnalysis.clearAnalyzer();
+            if (cameraProvider != null) {
+                cameraProvider.unbind(imageAnalysis);
+            }
+            imageAnalysis = null;
+        }
+        isLiveMode = false;
+
+        liveModeButton.setText("🔴");
+        liveModeButton.setBackgroundTintList(
+                android.content.res.ColorStateList.valueOf(0xFF424242) // Gris
+        );
+        liveTextOverlay.setVisibility(View.GONE);
+        Log.d(TAG, "Modo en vivo desactivado");
+    }
+
+    private void showLiveText(String text) {
+        if (!isLiveMode) return;
+        liveTextOverlay.setText(text);
+    }
+
     private void takePicture() {
         if (imageCapture == null) {
             Log.e(TAG, "ImageCapture es null");
@@ -271,12 +437,6 @@ public class Inicio extends AppCompatActivity {
             return;
         }
 
-        File photoFile = new File(getExternalMediaDirs()[0], System.currentTimeMillis() + "_full.jpg");
-        ImageCapture.OutputFileOptions outputOptions =
-                new ImageCapture.OutputFileOptions.Builder(photoFile).build();
-
-        Log.d(TAG, "📸 Tomando foto: " + photoFile.getAbsolutePath());
-
         // Mostrar UI de captura
         isProcessing = true;
         captureButton.setEnabled(false);
@@ -287,6 +447,128 @@ public class Inicio extends AppCompatActivity {
         // Iniciar animación de escaneo rápido
         startCaptureScanAnimation();
 
+        // Solo se escribe a disco si la depuración/historial está activado
+        if (ScanSettings.isSaveCapturesEnabled(this)) {
+            takePictureToFile();
+        } else if (isBurstMode) {
+            takeBurstInMemory();
+        } else {
+            takePictureInMemory();
+        }
+    }
+
+    /**
+     * Captura en memoria: ImageProxy → recorte del marco → LumaFrame → ResultsActivity,
+     * sin JPEG intermedio en disco. La conversión corre en cameraExecutor
+     */
+    private void takePictureInMemory() {
+        Log.d(TAG, "📸 Tomando foto en memoria");
+
+        imageCapture.takePicture(
+                cameraExecutor,
+                new ImageCapture.OnImageCapturedCallback() {
+                    @Override
+                    public void onCaptureSuccess(@NonNull ImageProxy image) {
+                        CaptureProcessor.Capture capture = null;
+                        FrameQuality.Report quality = null;
+                        boolean rejected = false;
+                        try {
+                            Rect cropRect = CaptureProcessor.cropInBuffer(image, Inicio.this::computeScanFrameRect);
+                            if (cropRect != null) {
+                                // Las capturas inservibles no llegan a preprocesarse
+                                quality = CaptureProcessor.assessQuality(image, cropRect);
+                                rejected = rejectForQuality(quality);
+                                if (!rejected) {
+                                    capture = CaptureProcessor.capture(image, cropRect,
+                                            ImagePreprocessor.DEFAULT_THRESHOLD, thumbnailSize());
+                                }
+                            }
+                        } finally {
+                            image.close();
+                        }
+
+                        if (!rejected) {
+                            startScanInMemory(capture, quality);
+                        }
+                    }
+
+                    @Override
+                    public void onError(@NonNull ImageCaptureException exception) {
+                        onCaptureFailed(exception);
+                    }
+                }
+        );
+    }
+
+    /**
+     * Ráfaga en memoria: BurstCapture encola varias capturas, las puntúa en paralelo y solo
+     * la más nítida se convierte en LumaFrame y pasa al OCR
+     */
+    private void takeBurstInMemory() {
+        Log.d(TAG, "📸 Tomando ráfaga de " + BurstCapture.DEFAULT_FRAMES + " fotos");
+        updateStatus("📸 Ráfaga de " + BurstCapture.DEFAULT_FRAMES + " fotos - No muevas el teléfono...");
+
+        BurstCapture.capture(imageCapture, cameraExecutor, BurstCapture.DEFAULT_FRAMES,
+                this::computeScanFrameRect, new BurstCapture.Callback() {
+                    @Override
+                    public void onBestFrame(CaptureProcessor.Snapshot snapshot, FrameQuality.Report quality,
+                                            int index, int scored) {
+                        Log.d(TAG, "🎞 Mejor captura de la ráfaga: " + (index + 1) + "/" + scored + " " + quality);
+                        if (rejectForQuality(quality)) {
+                            return;
+                        }
+                        startScanInMemory(CaptureProcessor.capture(snapshot, ImagePreprocessor.DEFAULT_THRESHOLD,
+                                thumbnailSize()), quality);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        Log.e(TAG, "❌ Error en la ráfaga: " + error);
+                        runOnUiThread(() -> {
+                            updateStatus("❌ Error al capturar");
+                            Toast.makeText(Inicio.this, "Error: " + error, Toast.LENGTH_SHORT).show();
+                            resetUI();
+                        });
+                    }
+                });
+    }
+
+    /**
+     * Arranca el OCR sobre un frame ya recortado en memoria y abre los resultados cuando
+     * termina la animación. Se llama fuera del hilo principal
+     */
+    private void startScanInMemory(CaptureProcessor.Capture capture, FrameQuality.Report quality) {
+        if (capture == null) {
+            Log.e(TAG, "❌ Error al recortar la imagen");
+            runOnUiThread(() -> {
+                updateStatus("❌ Error al recortar imagen");
+                Toast.makeText(Inicio.this, "Error al procesar imagen", Toast.LENGTH_SHORT).show();
+                resetUI();
+            });
+            return;
+        }
+
+        // El OCR arranca ya, mientras se reproduce la animación de escaneo
+        ScanJob job = ScanJob.start(Inicio.this, capture.frame);
+        Log.d(TAG, "✂ Frame recortado en memoria (escaneo " + job.getId() + ")");
+
+        runOnUiThread(() -> {
+            if (capture.thumbnail != null) showCapturedBitmap(capture.thumbnail);
+            openResultsAfterAnimation(job, null);
+            warnQuality(quality);
+        });
+    }
+
+    /**
+     * Captura a disco (modo depuración/historial): JPEG completo + recorte guardado
+     */
+    private void takePictureToFile() {
+        File photoFile = new File(getExternalMediaDirs()[0], System.currentTimeMillis() + "_full.jpg");
+        ImageCapture.OutputFileOptions outputOptions =
+                new ImageCapture.OutputFileOptions.Builder(photoFile).build();
+
+        Log.d(TAG, "📸 Tomando foto: " + photoFile.getAbsolutePath());
+
         imageCapture.takePicture(
                 outputOptions,
                 ContextCompat.getMainExecutor(this),
@@ -309,127 +591,126 @@ public class Inicio extends AppCompatActivity {
                         }
                         Log.d(TAG, "✂ Imagen recortada guardada: " + croppedPath);
 
-                        // Mostrar imagen recortada como overlay
-                        showCapturedImage(croppedPath);
+                        FrameQuality.Report quality = ImagePreprocessor.assessQuality(croppedPath);
+                        if (quality != null) {
+                            Log.d(TAG, "Calidad de la captura: " + quality);
+                        }
+                        if (rejectForQuality(quality)) {
+                            return;
+                        }
 
-                        updateStatus("✓ Foto capturada y recortada - Procesando...");
-                        processingTextView.setVisibility(View.VISIBLE);
+                        // El OCR arranca ya, mientras se reproduce la animación de escaneo
+                        ScanJob job = ScanJob.start(Inicio.this, croppedPath);
 
-                        // Esperar 1.5 segundos antes de cambiar de actividad
-                        new Handler().postDelayed(() -> {
-                            Intent intent = new Intent(Inicio.this, ResultsActivity.class);
-                            intent.putExtra("IMAGE_PATH", croppedPath);
-                            startActivity(intent);
+                        // Mostrar imagen recortada como overlay
+                        showCapturedImage(croppedPath);
 
-                            runOnUiThread(() -> resetUI());
-                        }, 1500);
+                        openResultsAfterAnimation(job, croppedPath);
+                        warnQuality(quality);
                     }
 
                     @Override
                     public void onError(@NonNull ImageCaptureException exception) {
-                        Log.e(TAG, "❌ Error al capturar imagen", exception);
-                        runOnUiThread(() -> {
-                            updateStatus("❌ Error al capturar");
-                            Toast.makeText(Inicio.this,
-                                    "Error: " + exception.getMessage(),
-                                    Toast.LENGTH_SHORT).show();
-                            resetUI();
-                        });
+                        onCaptureFailed(exception);
                     }
                 }
         );
     }
 
     /**
-     * Recorta la imagen capturada para obtener solo la región del marco de escaneo.
-     * VERSIÓN MEJORADA con compensación de aspect ratio
+     * Deja terminar la animación de escaneo y abre ResultsActivity enganchada al escaneo.
+     * La espera ya no es tiempo muerto: el OCR corre en paralelo desde la captura.
+     * Con imagePath (captura a disco) ResultsActivity puede repetir el escaneo si el trabajo ya no existe
      */
-    private String cropImageToScanFrame(String fullImagePath) {
-        try {
-            // 1. Cargar imagen completa
-            Bitmap fullBitmap = BitmapFactory.decodeFile(fullImagePath);
-            if (fullBitmap == null) {
-                Log.e(TAG, "No se pudo decodificar la imagen: " + fullImagePath);
-                return null;
-            }
+    private void openResultsAfterAnimation(ScanJob job, String imagePath) {
+        updateStatus("✓ Foto capturada y recortada - Procesando...");
+        processingTextView.setVisibility(View.VISIBLE);
 
-            int imageWidth = fullBitmap.getWidth();
-            int imageHeight = fullBitmap.getHeight();
+        new Handler().postDelayed(() -> {
+            Intent intent = new Intent(Inicio.this, ResultsActivity.class);
+            intent.putExtra(ResultsActivity.EXTRA_JOB_ID, job.getId());
+            if (imagePath != null) intent.putExtra(ResultsActivity.EXTRA_IMAGE_PATH, imagePath);
+            startActivity(intent);
 
-            // 2. Obtener dimensiones de la vista previa
-            int previewWidth = previewView.getWidth();
-            int previewHeight = previewView.getHeight();
+            runOnUiThread(() -> resetUI());
+        }, SCAN_ANIMATION_MS);
+    }
 
-            Log.d(TAG, "=== DIAGNÓSTICO DE RECORTE ===");
-            Log.d(TAG, "Vista previa: " + previewWidth + "x" + previewHeight);
-            Log.d(TAG, "Imagen capturada: " + imageWidth + "x" + imageHeight);
+    /**
+     * Rechaza la captura si el control de calidad lo pide y explica el motivo. Tras
+     * MAX_QUALITY_REJECTS rechazos seguidos se deja pasar (el llamador verá el aviso)
+     */
+    private boolean rejectForQuality(FrameQuality.Report quality) {
+        if (quality == null || !quality.isRejected()) {
+            qualityRejects.set(0);
+            return false;
+        }
+        if (qualityRejects.incrementAndGet() > MAX_QUALITY_REJECTS) {
+            Log.w(TAG, "Captura con mala calidad aceptada tras " + MAX_QUALITY_REJECTS + " rechazos");
+            qualityRejects.set(0);
+            return false;
+        }
 
-            // 3. Calcular aspect ratios
-            float previewAspect = (float) previewWidth / previewHeight;
-            float imageAspect = (float) imageWidth / imageHeight;
+        Log.w(TAG, "❌ Captura rechazada: " + quality);
+        runOnUiThread(() -> {
+            resetUI();
+            updateStatus("⚠ " + quality.issue.title + " - Vuelve a capturar");
+            Toast.makeText(Inicio.this, quality.message(), Toast.LENGTH_LONG).show();
+        });
+        return true;
+    }
 
-            Log.d(TAG, "Preview aspect: " + previewAspect);
-            Log.d(TAG, "Image aspect: " + imageAspect);
+    /**
+     * Aviso sin bloquear el escaneo cuando la captura es dudosa
+     */
+    private void warnQuality(FrameQuality.Report quality) {
+        if (quality == null || quality.verdict == FrameQuality.Verdict.OK) return;
+        Toast.makeText(this, "⚠ " + quality.message(), Toast.LENGTH_SHORT).show();
+    }
 
-            // 4. Calcular el área visible de la imagen en la preview
-            int visibleImageWidth, visibleImageHeight;
-            int offsetX = 0, offsetY = 0;
+    private void onCaptureFailed(ImageCaptureException exception) {
+        Log.e(TAG, "❌ Error al capturar imagen", exception);
+        runOnUiThread(() -> {
+            updateStatus("❌ Error al capturar");
+            Toast.makeText(Inicio.this,
+                    "Error: " + exception.getMessage(),
+                    Toast.LENGTH_SHORT).show();
+            resetUI();
+        });
+    }
 
-            if (imageAspect > previewAspect) {
-                // La imagen es más ancha: se recortan los lados
-                visibleImageHeight = imageHeight;
-                visibleImageWidth = (int) (imageHeight * previewAspect);
-                offsetX = (imageWidth - visibleImageWidth) / 2;
-            } else {
-                // La imagen es más alta: se recortan arriba/abajo
-                visibleImageWidth = imageWidth;
-                visibleImageHeight = (int) (imageWidth / previewAspect);
-                offsetY = (imageHeight - visibleImageHeight) / 2;
+    /**
+     * Recorta la imagen capturada para obtener solo la región del marco de escaneo.
+     * VERSIÓN MEJORADA con compensación de aspect ratio; solo se decodifica la región
+     * del marco, submuestreada al tamaño que usará el OCR
+     */
+    private String cropImageToScanFrame(String fullImagePath) {
+        try {
+            // 1. Leer solo las dimensiones de la imagen completa
+            int[] bounds = BitmapDecoder.readBounds(fullImagePath);
+            if (bounds == null) {
+                Log.e(TAG, "No se pudo decodificar la imagen: " + fullImagePath);
+                return null;
             }
 
-            Log.d(TAG, "Área visible: " + visibleImageWidth + "x" + visibleImageHeight);
-            Log.d(TAG, "Offset: (" + offsetX + ", " + offsetY + ")");
-
-            // 5. Obtener posición del marco en la preview
-            int frameLeft = scanFrame.getLeft() - previewView.getLeft();
-            int frameTop = scanFrame.getTop() - previewView.getTop();
-            int frameWidth = scanFrame.getWidth();
-            int frameHeight = scanFrame.getHeight();
-
-            Log.d(TAG, "Marco en preview: (" + frameLeft + ", " + frameTop + ") " + frameWidth + "x" + frameHeight);
-
-            // 6. Calcular escala
-            float scaleX = (float) visibleImageWidth / previewWidth;
-            float scaleY = (float) visibleImageHeight / previewHeight;
-
-            Log.d(TAG, "Escala: scaleX=" + scaleX + ", scaleY=" + scaleY);
-
-            // 7. Convertir coordenadas a la imagen
-            int cropX = offsetX + (int) (frameLeft * scaleX);
-            int cropY = offsetY + (int) (frameTop * scaleY);
-            int cropWidth = (int) (frameWidth * scaleX);
-            int cropHeight = (int) (frameHeight * scaleY);
-
-            Log.d(TAG, "Área de recorte: (" + cropX + ", " + cropY + ") " + cropWidth + "x" + cropHeight);
-
-            // 8. Validar límites
-            cropX = Math.max(0, Math.min(cropX, imageWidth - 1));
-            cropY = Math.max(0, Math.min(cropY, imageHeight - 1));
-            cropWidth = Math.min(cropWidth, imageWidth - cropX);
-            cropHeight = Math.min(cropHeight, imageHeight - cropY);
-
-            if (cropWidth <= 0 || cropHeight <= 0) {
+            // 2. Calcular el área del marco sobre la imagen derecha (orientación EXIF) y
+            //    llevarla a las coordenadas de los píxeles guardados
+            int rotation = BitmapDecoder.readRotation(fullImagePath);
+            boolean swap = rotation % 180 != 0;
+            Rect uprightRect = computeScanFrameRect(swap ? bounds[1] : bounds[0], swap ? bounds[0] : bounds[1]);
+            if (uprightRect == null) {
                 Log.e(TAG, "Dimensiones de recorte inválidas");
                 return null;
             }
+            Rect cropRect = CaptureProcessor.toBufferRect(uprightRect, bounds[0], bounds[1], rotation);
 
-            Log.d(TAG, "Área final: (" + cropX + ", " + cropY + ") " + cropWidth + "x" + cropHeight);
-            Log.d(TAG, "=============================");
-
-            // 9. Recortar
-            Bitmap croppedBitmap = Bitmap.createBitmap(fullBitmap, cropX, cropY, cropWidth, cropHeight);
+            // 3. Decodificar solo esa región
+            Bitmap croppedBitmap = BitmapDecoder.decodeRegion(fullImagePath, cropRect, OCR_TARGET_SIZE);
+            if (croppedBitmap == null) {
+                return null;
+            }
 
-            // 10. Guardar
+            // 4. Guardar
             String croppedImagePath = fullImagePath.replace("_full.jpg", "_cropped.jpg");
             File croppedFile = new File(croppedImagePath);
 
@@ -438,9 +719,11 @@ public class Inicio extends AppCompatActivity {
                 Log.d(TAG, "✓ Imagen recortada guardada: " + croppedImagePath);
             }
 
-            // 11. Liberar memoria
+            // El recorte conserva la orientación: el OCR la aplica al preprocesar
+            BitmapDecoder.writeRotation(croppedImagePath, rotation);
+
+            // 5. Liberar memoria
             croppedBitmap.recycle();
-            fullBitmap.recycle();
 
             return croppedImagePath;
 
@@ -450,24 +733,49 @@ public class Inicio extends AppCompatActivity {
         }
     }
 
+    /**
+     * Copia la geometría de la vista previa y del marco (hilo principal, en cada layout)
+     */
+    private void updateScanGeometry() {
+        scanGeometry = new ScanFrameGeometry(previewView.getWidth(), previewView.getHeight(),
+                scanFrame.getLeft() - previewView.getLeft(), scanFrame.getTop() - previewView.getTop(),
+                scanFrame.getWidth(), scanFrame.getHeight());
+        Log.d(TAG, "Geometría del marco: " + scanGeometry);
+    }
+
+    /**
+     * Convierte el marco de escaneo a coordenadas de una imagen de imageWidth x imageHeight
+     * (null si las vistas aún no se midieron o el área no es válida). Se llama desde los hilos
+     * de cámara: solo lee la copia tomada en el layout, nunca las vistas
+     */
+    private Rect computeScanFrameRect(int imageWidth, int imageHeight) {
+        ScanFrameGeometry geometry = scanGeometry;
+        return geometry != null ? geometry.cropFor(imageWidth, imageHeight) : null;
+    }
+
+    /**
+     * Lado mayor de la miniatura de la captura: el de la vista previa que cubre el overlay
+     * (el overlay está oculto y sin medir hasta que se muestra). Sale de la copia de la
+     * geometría, así que vale desde cualquier hilo
+     */
+    private int thumbnailSize() {
+        ScanFrameGeometry geometry = scanGeometry;
+        return geometry != null && geometry.isValid()
+                ? Math.max(geometry.previewWidth, geometry.previewHeight)
+                : DEFAULT_THUMBNAIL_SIZE;
+    }
+
     /**
      * Muestra la imagen capturada como overlay
      */
     private void showCapturedImage(String imagePath) {
         runOnUiThread(() -> {
             try {
-                Bitmap bitmap = BitmapFactory.decodeFile(imagePath);
+                // Miniatura del tamaño de la vista previa, no la imagen completa
+                int size = thumbnailSize();
+                Bitmap bitmap = BitmapDecoder.decodeThumbnail(imagePath, size, size);
                 if (bitmap != null) {
-                    capturedImageOverlay.setImageBitmap(bitmap);
-                    capturedImageOverlay.setVisibility(View.VISIBLE);
-
-                    capturedImageOverlay.setAlpha(0f);
-                    capturedImageOverlay.animate()
-                            .alpha(0.9f)
-                            .setDuration(300)
-                            .start();
-
-                    Log.d(TAG, "✓ Imagen mostrada como overlay");
+                    showCapturedBitmap(bitmap);
                 } else {
                     Log.e(TAG, "Bitmap es null: " + imagePath);
                 }
@@ -477,6 +785,19 @@ public class Inicio extends AppCompatActivity {
         });
     }
 
+    private void showCapturedBitmap(Bitmap bitmap) {
+        capturedImageOverlay.setImageBitmap(bitmap);
+        capturedImageOverlay.setVisibility(View.VISIBLE);
+
+        capturedImageOverlay.setAlpha(0f);
+        capturedImageOverlay.animate()
+                .alpha(0.9f)
+                .setDuration(300)
+                .start();
+
+        Log.d(TAG, "✓ Imagen mostrada como overlay");
+    }
+
     /**
      * Resetea la UI al estado inicial
      */
@@ -521,6 +842,7 @@ public class Inicio extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
+        OllamaHostPool.stopMonitor();
         stopScanAnimation();
 
         // Apagar linterna al pausar
@@ -542,11 +864,18 @@ public class Inicio extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        OllamaHostPool.startMonitor();
         if (!isProcessing && scanFrame != null) {
             startIdleScanAnimation();
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        RecognizerManager.onTrimMemory(level);
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -563,6 +892,10 @@ public class Inicio extends AppCompatActivity {
         }
 
         stopScanAnimation();
+        if (liveAnalyzer != null) {
+            liveAnalyzer.stop();
+        }
+        ScanJob.clear();
         if (cameraExecutor != null) {
             cameraExecutor.shutdown();
         }
@@ -0,0 +1,187 @@
+package com.example.proyecto_tesis_oe;
+
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import com.example.proyecto_tesis_oe.services.OcrService;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Analizador del modo en vivo (ImageAnalysis). Cada frame pasa primero por filtros
+ * baratos sobre el plano Y (movimiento, contenido repetido, nitidez) y solo los frames
+ * quietos, nítidos y con contenido nuevo llegan al OCR, como mucho uno a la vez y
+ * respetando el límite de OCR por segundo
+ */
+public class LiveTextAnalyzer implements ImageAnalysis.Analyzer {
+    private static final String TAG = "LiveTextAnalyzer";
+
+    // Paso de muestreo para la nitidez
+    private static final int SHARPNESS_STEP = 2;
+
+    // Cada cuántos frames se registran las estadísticas del filtro
+    private static final int STATS_EVERY_FRAMES = 150;
+
+    /**
+     * Calcula el recorte del marco de escaneo para un frame de imageWidth x imageHeight
+     */
+    public interface CropProvider {
+        Rect cropFor(int imageWidth, int imageHeight);
+    }
+
+    /**
+     * Texto reconocido en vivo (se llama en el hilo principal)
+     */
+    public interface Listener {
+        void onLiveText(String text);
+    }
+
+    private final Context context;
+    private final PowerManager powerManager;
+    private final CropProvider cropProvider;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final FrameGate gate = new FrameGate();
+    private final AtomicBoolean ocrInFlight = new AtomicBoolean(false);
+
+    private volatile boolean active = true;
+    private volatile int maxOcrPerSecond;
+
+    // El recorte solo se recalcula si cambia el tamaño del frame
+    private Rect crop;
+    private int cropWidth = -1;
+    private int cropHeight = -1;
+
+    private final Map<FrameGate.Decision, Integer> decisionCounts = new EnumMap<>(FrameGate.Decision.class);
+    private int framesSeen = 0;
+
+    public LiveTextAnalyzer(Context context, CropProvider cropProvider, int maxOcrPerSecond, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.powerManager = (PowerManager) this.context.getSystemService(Context.POWER_SERVICE);
+        this.cropProvider = cropProvider;
+        this.maxOcrPerSecond = Math.max(1, maxOcrPerSecond);
+        this.listener = listener;
+    }
+
+    public void setMaxOcrPerSecond(int value) {
+        maxOcrPerSecond = Math.max(1, value);
+    }
+
+    /**
+     * Deja de enviar frames y descarta los resultados pendientes
+     */
+    public void stop() {
+        active = false;
+        mainHandler.removeCallbacksAndMessages(null);
+        gate.reset();
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        try {
+            if (!active || ocrInFlight.get() || image.getFormat() != ImageFormat.YUV_420_888) {
+                return;
+            }
+
+            Rect cropRect = cropFor(image.getWidth(), image.getHeight());
+            if (cropRect == null) {
+                return;
+            }
+
+            ImageProxy.PlaneProxy plane = image.getPlanes()[0];
+            ByteBuffer buffer = plane.getBuffer();
+            int rowStride = plane.getRowStride();
+            long now = SystemClock.elapsedRealtime();
+
+            int[] signature = FrameMetrics.signature(buffer, rowStride, cropRect);
+            FrameGate.Decision decision = gate.evaluateMotion(signature, now, minIntervalMs());
+            if (decision == FrameGate.Decision.ACCEPT) {
+                double sharpness = FrameMetrics.laplacianVariance(buffer, rowStride, cropRect, SHARPNESS_STEP);
+                decision = gate.evaluateSharpness(signature, sharpness, now);
+            }
+            countDecision(decision);
+
+            if (decision != FrameGate.Decision.ACCEPT) {
+                return;
+            }
+
+            LumaFrame frame = CaptureProcessor.toLumaFrame(image, cropRect, ImagePreprocessor.DEFAULT_THRESHOLD);
+            if (frame == null) {
+                return;
+            }
+
+            ocrInFlight.set(true);
+            OcrService.recognizeFrame(context, frame, new OcrService.OcrCallback() {
+                @Override
+                public void onTextRecognized(String text) {
+                    boolean found = text != null && !text.trim().isEmpty();
+                    gate.onResult(found);
+                    ocrInFlight.set(false);
+
+                    if (found && active) {
+                        mainHandler.post(() -> {
+                            if (active) listener.onLiveText(text.trim());
+                        });
+                    }
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.w(TAG, "OCR en vivo falló: " + e.getMessage());
+                    gate.onResult(false);
+                    ocrInFlight.set(false);
+                }
+            });
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error analizando frame", e);
+        } finally {
+            image.close();
+        }
+    }
+
+    private Rect cropFor(int width, int height) {
+        if (width != cropWidth || height != cropHeight) {
+            crop = cropProvider.cropFor(width, height);
+            cropWidth = width;
+            cropHeight = height;
+        }
+        return crop;
+    }
+
+    /**
+     * Intervalo mínimo entre OCR. Si el dispositivo se calienta se espacian más
+     */
+    private long minIntervalMs() {
+        long interval = 1000L / maxOcrPerSecond;
+
+        if (powerManager != null) {
+            int thermal = powerManager.getCurrentThermalStatus();
+            if (thermal >= PowerManager.THERMAL_STATUS_SEVERE) {
+                interval *= 4;
+            } else if (thermal >= PowerManager.THERMAL_STATUS_MODERATE) {
+                interval *= 2;
+            }
+        }
+        return interval;
+    }
+
+    private void countDecision(FrameGate.Decision decision) {
+        Integer count = decisionCounts.get(decision);
+        decisionCounts.put(decision, count == null ? 1 : count + 1);
+
+        if (++framesSeen % STATS_EVERY_FRAMES == 0) {
+            Log.d(TAG, "Frames analizados: " + framesSeen + " → " + decisionCounts);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.proyecto_tesis_oe;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Binarización de frames de luminancia
+ * Los métodos locales (Bradley, Sauvola) usan una imagen integral construida una sola vez,
+ * así la media y la varianza de cualquier ventana cuestan O(1) por píxel. La imagen se
+ * divide en franjas de filas que se procesan en paralelo en todos los núcleos.
+ * Es Java puro y no depende de Android
+ */
+public class LocalThresholder {
+
+    public enum Method {
+        MEAN,       // Umbral global al 85% de la media (comportamiento original)
+        OTSU,       // Umbral global que maximiza la varianza entre clases
+        BRADLEY,    // Media local: resiste sombras y degradados
+        SAUVOLA     // Media + desviación local: resiste brillos de etiquetas satinadas
+    }
+
+    private static final float MEAN_THRESHOLD_RATIO = 0.85f;
+
+    // Bradley: el píxel es negro si está un 15% por debajo de la media local
+    private static final float BRADLEY_T = 0.15f;
+
+    // Sauvola: sensibilidad k y rango dinámico R de la desviación estándar
+    private static final float SAUVOLA_K = 0.2f;
+    private static final float SAUVOLA_R = 128f;
+
+    // La ventana local mide 1/16 del lado menor, con un mínimo de 15 px
+    private static final int WINDOW_DIVISOR = 16;
+    private static final int MIN_WINDOW = 15;
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread thread = new Thread(r, "LocalThresholder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Imágenes integrales reutilizadas entre escaneos (sumas y sumas de cuadrados)
+    private static int[] integral = new int[0];
+    private static long[] integralSq = new long[0];
+
+    private static final Map<Method, Long> lastTimesMs = new EnumMap<>(Method.class);
+
+    /**
+     * Binariza el frame en su mismo buffer con el método indicado.
+     * El histograma de luminancia lo aporta LumaPreprocessor y evita recorrer la imagen
+     * otra vez en los métodos globales. Devuelve el umbral global usado (-1 en los locales)
+     */
+    public static synchronized int apply(LumaFrame frame, int[] histogram, Method method) {
+        long start = System.currentTimeMillis();
+        int threshold = -1;
+
+        switch (method) {
+            case OTSU:
+                threshold = otsuThreshold(histogram, frame.lumaSize());
+                applyGlobal(frame, threshold);
+                break;
+            case BRADLEY:
+            case SAUVOLA:
+                buildIntegral(frame, method == Method.SAUVOLA);
+                applyLocal(frame, method);
+                break;
+            case MEAN:
+            default:
+                threshold = meanThreshold(histogram, frame.lumaSize());
+                applyGlobal(frame, threshold);
+                break;
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        lastTimesMs.put(method, elapsed);
+        return threshold;
+    }
+
+    /**
+     * Último tiempo medido para cada método usado (ms)
+     */
+    public static synchronized Map<Method, Long> getLastTimesMs() {
+        return new EnumMap<>(lastTimesMs);
+    }
+
+    /**
+     * Umbral de Otsu sobre un histograma de 256 niveles
+     */
+    public static int otsuThreshold(int[] histogram, int total) {
+        long sumAll = 0;
+        for (int i = 0; i < 256; i++) {
+            sumAll += (long) i * histogram[i];
+        }
+
+        long sumBackground = 0;
+        int weightBackground = 0;
+        double bestVariance = -1;
+        int best = 127;
+
+        for (int t = 0; t < 256; t++) {
+            weightBackground += histogram[t];
+            if (weightBackground == 0) continue;
+            int weightForeground = total - weightBackground;
+            if (weightForeground == 0) break;
+
+            sumBackground += (long) t * histogram[t];
+            double meanBackground = (double) sumBackground / weightBackground;
+            double meanForeground = (double) (sumAll - sumBackground) / weightForeground;
+            double diff = meanBackground - meanForeground;
+            double variance = (double) weightBackground * weightForeground * diff * diff;
+
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    private static int meanThreshold(int[] histogram, int total) {
+        long sum = 0;
+        for (int i = 0; i < 256; i++) {
+            sum += (long) histogram[i] * i;
+        }
+        return (int) (sum / Math.max(1, total) * MEAN_THRESHOLD_RATIO);
+    }
+
+    private static void applyGlobal(LumaFrame frame, int threshold) {
+        byte[] data = frame.data;
+        runStripes(frame.height, (y0, y1) -> {
+            int end = y1 * frame.width;
+            for (int i = y0 * frame.width; i < end; i++) {
+                data[i] = (data[i] & 0xff) > threshold ? (byte) 255 : 0;
+            }
+        });
+    }
+
+    /**
+     * Imagen integral de (w+1)x(h+1): primero sumas por fila y después acumulado por
+     * columnas, ambas fases en paralelo (filas en franjas, columnas en bloques)
+     */
+    private static void buildIntegral(LumaFrame frame, boolean withSquares) {
+        int w = frame.width;
+        int h = frame.height;
+        int stride = w + 1;
+        int size = stride * (h + 1);
+
+        if (integral.length < size) integral = new int[size];
+        if (withSquares && integralSq.length < size) integralSq = new long[size];
+
+        int[] sum = integral;
+        long[] sumSq = integralSq;
+        byte[] data = frame.data;
+
+        for (int x = 0; x < stride; x++) {
+            sum[x] = 0;
+            if (withSquares) sumSq[x] = 0;
+        }
+
+        runStripes(h, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int row = (y + 1) * stride;
+                int in = y * w;
+                int rowSum = 0;
+                long rowSumSq = 0;
+                sum[row] = 0;
+                if (withSquares) sumSq[row] = 0;
+                for (int x = 0; x < w; x++) {
+                    int v = data[in + x] & 0xff;
+                    rowSum += v;
+                    sum[row + x + 1] = rowSum;
+                    if (withSquares) {
+                        rowSumSq += v * v;
+                        sumSq[row + x + 1] = rowSumSq;
+                    }
+                }
+            }
+        });
+
+        runStripes(stride, (x0, x1) -> {
+            for (int y = 2; y <= h; y++) {
+                int row = y * stride;
+                int above = row - stride;
+                for (int x = x0; x < x1; x++) {
+                    sum[row + x] += sum[above + x];
+                    if (withSquares) sumSq[row + x] += sumSq[above + x];
+                }
+            }
+        });
+    }
+
+    private static void applyLocal(LumaFrame frame, Method method) {
+        int w = frame.width;
+        int h = frame.height;
+        int stride = w + 1;
+        int radius = Math.max(MIN_WINDOW, Math.min(w, h) / WINDOW_DIVISOR) / 2;
+        int[] sum = integral;
+        long[] sumSq = integralSq;
+        byte[] data = frame.data;
+        boolean sauvola = method == Method.SAUVOLA;
+
+        runStripes(h, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int top = Math.max(0, y - radius);
+                int bottom = Math.min(h, y + radius + 1);
+                int rowTop = top * stride;
+                int rowBottom = bottom * stride;
+
+                for (int x = 0; x < w; x++) {
+                    int left = Math.max(0, x - radius);
+                    int right = Math.min(w, x + radius + 1);
+                    int area = (bottom - top) * (right - left);
+
+                    long windowSum = (long) sum[rowBottom + right] - sum[rowTop + right]
+                            - sum[rowBottom + left] + sum[rowTop + left];
+                    int index = y * w + x;
+                    int value = data[index] & 0xff;
+                    boolean white;
+
+                    if (sauvola) {
+                        long windowSumSq = sumSq[rowBottom + right] - sumSq[rowTop + right]
+                                - sumSq[rowBottom + left] + sumSq[rowTop + left];
+                        double mean = (double) windowSum / area;
+                        double variance = Math.max(0, (double) windowSumSq / area - mean * mean);
+                        double threshold = mean * (1 + SAUVOLA_K * (Math.sqrt(variance) / SAUVOLA_R - 1));
+                        white = value > threshold;
+                    } else {
+                        white = (long) value * area * 100 > windowSum * (long) (100 - BRADLEY_T * 100);
+                    }
+
+                    data[index] = white ? (byte) 255 : 0;
+                }
+            }
+        });
+    }
+
+    private interface StripeTask {
+        void run(int start, int end);
+    }
+
+    /**
+     * Divide [0, count) en una franja por núcleo y espera a que terminen todas
+     */
+    private static void runStripes(int count, StripeTask task) {
+        int stripes = Math.min(THREADS, Math.max(1, count / 16));
+        if (stripes == 1) {
+            task.run(0, count);
+            return;
+        }
+
+        int step = (count + stripes - 1) / stripes;
+        List<Callable<Void>> jobs = new ArrayList<>();
+        for (int start = 0; start < count; start += step) {
+            int from = start;
+            int to = Math.min(count, start + step);
+            jobs.add(() -> {
+                task.run(from, to);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(jobs)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Binarización interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error en binarización", e.getCause());
+        }
+    }
+}
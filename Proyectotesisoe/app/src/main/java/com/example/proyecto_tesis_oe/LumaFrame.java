@@ -0,0 +1,94 @@
+package com.example.proyecto_tesis_oe;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Imagen de 8 bits de luminancia lista para ML Kit
+ * El buffer tiene formato NV21 (luminancia + croma neutro) para usarse directamente con
+ * InputImage.fromByteArray. Los buffers se reciclan en un pool pequeño para no asignar
+ * memoria nueva en cada escaneo. No depende de Android: se puede usar en la JVM
+ */
+public class LumaFrame {
+
+    // Valor de croma neutro (gris) para NV21
+    private static final byte NEUTRAL_CHROMA = (byte) 128;
+
+    // Buffers libres que se conservan entre escaneos
+    private static final int MAX_POOLED_BUFFERS = 2;
+    private static final ArrayDeque<byte[]> pool = new ArrayDeque<>();
+
+    public final byte[] data;
+    public final int width;
+    public final int height;
+    // Píxeles de luminancia antes de recortar a las regiones con texto (0 = sin recortar)
+    public int uncroppedPixels = 0;
+    // Giro aplicado según los metadatos (EXIF o ImageProxy) e inclinación corregida, en grados
+    public int rotationDegrees = 0;
+    public float skewDegrees = 0f;
+    private boolean recycled = false;
+
+    private LumaFrame(byte[] data, int width, int height) {
+        this.data = data;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Obtiene un frame del pool. NV21 exige dimensiones pares, así que se redondean hacia abajo
+     */
+    public static LumaFrame obtain(int width, int height) {
+        int evenWidth = Math.max(2, width & ~1);
+        int evenHeight = Math.max(2, height & ~1);
+        int lumaSize = evenWidth * evenHeight;
+        int totalSize = lumaSize + lumaSize / 2;
+
+        byte[] buffer = null;
+        synchronized (pool) {
+            Iterator<byte[]> it = pool.iterator();
+            while (it.hasNext()) {
+                byte[] candidate = it.next();
+                if (candidate.length == totalSize) {
+                    it.remove();
+                    buffer = candidate;
+                    break;
+                }
+            }
+        }
+        if (buffer == null) {
+            buffer = new byte[totalSize];
+        }
+
+        Arrays.fill(buffer, lumaSize, totalSize, NEUTRAL_CHROMA);
+        return new LumaFrame(buffer, evenWidth, evenHeight);
+    }
+
+    /**
+     * Número de bytes de luminancia (el resto del buffer es croma)
+     */
+    public int lumaSize() {
+        return width * height;
+    }
+
+    /**
+     * Luminancia del píxel (x, y) en [0, 255]
+     */
+    public int get(int x, int y) {
+        return data[y * width + x] & 0xff;
+    }
+
+    /**
+     * Devuelve el buffer al pool. El frame no debe usarse después
+     */
+    public void recycle() {
+        synchronized (pool) {
+            if (recycled) return;
+            recycled = true;
+            if (pool.size() >= MAX_POOLED_BUFFERS) {
+                pool.pollFirst();
+            }
+            pool.addLast(data);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.proyecto_tesis_oe;
+
+import java.util.Arrays;
+
+/**
+ * Motor de preprocesamiento de luminancia en una sola pasada
+ * Fusiona contraste, conversión a gris e histograma en un único recorrido de los píxeles
+ * ARGB y binariza en el mismo buffer de 8 bits, sin bitmaps intermedios.
+ * Es Java puro: recibe filas ARGB (por ejemplo de Bitmap.getPixels) y no depende de Android
+ */
+public class LumaPreprocessor {
+
+    public static final float DEFAULT_CONTRAST = 1.5f;
+
+    // Pesos de luminancia de ColorMatrix.setSaturation(0) escalados a 8 bits (suman 256)
+    private static final int WEIGHT_R = 54;
+    private static final int WEIGHT_G = 183;
+    private static final int WEIGHT_B = 19;
+
+    private final int[] contrastLut = new int[256];
+    private final int[] histogram = new int[256];
+
+    private LumaFrame frame;
+    private int lastThreshold = -1;
+
+    public LumaPreprocessor() {
+        this(DEFAULT_CONTRAST);
+    }
+
+    public LumaPreprocessor(float contrastFactor) {
+        // Contraste lineal alrededor del gris medio (la fórmula de una ColorMatrix de contraste)
+        float translate = (-.5f * contrastFactor + .5f) * 255.f;
+        for (int i = 0; i < 256; i++) {
+            int value = Math.round(i * contrastFactor + translate);
+            contrastLut[i] = Math.max(0, Math.min(255, value));
+        }
+    }
+
+    /**
+     * Empieza un frame nuevo; el tamaño final puede recortarse a dimensiones pares
+     */
+    public LumaFrame begin(int width, int height) {
+        frame = LumaFrame.obtain(width, height);
+        Arrays.fill(histogram, 0);
+        return frame;
+    }
+
+    /**
+     * Convierte una fila ARGB: contraste por canal + luminancia + histograma en una pasada.
+     * Los píxeles más allá del ancho del frame (columna impar recortada) se ignoran
+     */
+    public void acceptRow(int[] argb, int offset, int y) {
+        if (y >= frame.height) return;
+        byte[] data = frame.data;
+        int[] lut = contrastLut;
+        int out = y * frame.width;
+        int end = offset + frame.width;
+
+        for (int i = offset; i < end; i++) {
+            int pixel = argb[i];
+            int r = lut[(pixel >> 16) & 0xff];
+            int g = lut[(pixel >> 8) & 0xff];
+            int b = lut[pixel & 0xff];
+            int gray = (WEIGHT_R * r + WEIGHT_G * g + WEIGHT_B * b) >> 8;
+            data[out++] = (byte) gray;
+            histogram[gray]++;
+        }
+    }
+
+    /**
+     * Igual que acceptRow pero para filas que ya son luminancia (plano Y de la cámara).
+     * El contraste lineal sobre la luminancia equivale al aplicado por canal
+     */
+    public void acceptLumaRow(byte[] luma, int offset, int y) {
+        if (y >= frame.height) return;
+        byte[] data = frame.data;
+        int[] lut = contrastLut;
+        int out = y * frame.width;
+        int end = offset + frame.width;
+
+        for (int i = offset; i < end; i++) {
+            int gray = lut[luma[i] & 0xff];
+            data[out++] = (byte) gray;
+            histogram[gray]++;
+        }
+    }
+
+    /**
+     * Termina el frame. Si binarize es true aplica el umbral global sobre el mismo buffer
+     */
+    public LumaFrame finish(boolean binarize) {
+        return finish(binarize ? LocalThresholder.Method.MEAN : null);
+    }
+
+    /**
+     * Termina el frame binarizándolo en su mismo buffer con el método indicado (null = no binarizar)
+     */
+    public LumaFrame finish(LocalThresholder.Method method) {
+        LumaFrame result = frame;
+        frame = null;
+        lastThreshold = -1;
+        if (method != null) {
+            lastThreshold = LocalThresholder.apply(result, histogram, method);
+        }
+        return result;
+    }
+
+    /**
+     * Procesa una imagen ARGB completa (filas contiguas de ancho width)
+     */
+    public LumaFrame process(int[] argb, int width, int height, boolean binarize) {
+        return process(argb, width, height, binarize ? LocalThresholder.Method.MEAN : null);
+    }
+
+    public LumaFrame process(int[] argb, int width, int height, LocalThresholder.Method method) {
+        begin(width, height);
+        for (int y = 0; y < frame.height; y++) {
+            acceptRow(argb, y * width, y);
+        }
+        return finish(method);
+    }
+
+    /**
+     * Umbral global usado en la última binarización (-1 si no hubo o si el método es local)
+     */
+    public int getLastThreshold() {
+        return lastThreshold;
+    }
+
+    /**
+     * Binariza un frame ya en gris (por ejemplo tras downsample) calculando su histograma
+     */
+    public static int binarize(LumaFrame frame, LocalThresholder.Method method) {
+        int[] frameHistogram = new int[256];
+        int size = frame.lumaSize();
+        for (int i = 0; i < size; i++) {
+            frameHistogram[frame.data[i] & 0xff]++;
+        }
+        return LocalThresholder.apply(frame, frameHistogram, method);
+    }
+
+    /**
+     * Reduce un frame promediando bloques de píxeles hasta que el lado mayor sea <= maxSize.
+     * Devuelve el mismo frame si ya es suficientemente pequeño. El resultado no baja de 2x2
+     * (el mínimo de LumaFrame.obtain), aunque maxSize sea menor
+     */
+    public static LumaFrame downsample(LumaFrame source, int maxSize) {
+        int factor = 1;
+        while (Math.max(source.width, source.height) / factor > Math.max(1, maxSize)) {
+            factor++;
+        }
+        factor = Math.min(factor, Math.max(1, Math.min(source.width, source.height) / 2));
+        if (factor == 1) return source;
+
+        LumaFrame target = LumaFrame.obtain(source.width / factor, source.height / factor);
+        int area = factor * factor;
+        for (int ty = 0; ty < target.height; ty++) {
+            int out = ty * target.width;
+            for (int tx = 0; tx < target.width; tx++) {
+                int sum = 0;
+                int sy = ty * factor;
+                for (int dy = 0; dy < factor; dy++) {
+                    int row = (sy + dy) * source.width + tx * factor;
+                    for (int dx = 0; dx < factor; dx++) {
+                        sum += source.data[row + dx] & 0xff;
+                    }
+                }
+                target.data[out++] = (byte) (sum / area);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Copia la región [left, right) x [top, bottom) a un frame nuevo del pool. La región se
+     * limita a los bordes del frame; devuelve null si queda vacía
+     */
+    public static LumaFrame crop(LumaFrame source, int left, int top, int right, int bottom) {
+        left = Math.max(0, left);
+        top = Math.max(0, top);
+        right = Math.min(source.width, right);
+        bottom = Math.min(source.height, bottom);
+        if (right - left < 2 || bottom - top < 2) return null;
+
+        LumaFrame target = LumaFrame.obtain(right - left, bottom - top);
+        for (int y = 0; y < target.height; y++) {
+            System.arraycopy(source.data, (top + y) * source.width + left, target.data, y * target.width, target.width);
+        }
+        return target;
+    }
+
+    /**
+     * Gira un frame un múltiplo de 90° en sentido horario (rotación de EXIF o del ImageProxy).
+     * Devuelve el mismo frame si no hay giro
+     */
+    public static LumaFrame rotate(LumaFrame source, int degrees) {
+        int quarter = ((degrees % 360) + 360) % 360 / 90;
+        if (quarter == 0) return source;
+
+        int w = source.width;
+        int h = source.height;
+        LumaFrame target = quarter == 2 ? LumaFrame.obtain(w, h) : LumaFrame.obtain(h, w);
+        byte[] src = source.data;
+        byte[] dst = target.data;
+        for (int v = 0; v < target.height; v++) {
+            int out = v * target.width;
+            for (int u = 0; u < target.width; u++) {
+                int index;
+                if (quarter == 1) {
+                    index = (h - 1 - u) * w + v;
+                } else if (quarter == 2) {
+                    index = (h - 1 - v) * w + (w - 1 - u);
+                } else {
+                    index = u * w + (w - 1 - v);
+                }
+                dst[out + u] = src[index];
+            }
+        }
+        return target;
+    }
+}
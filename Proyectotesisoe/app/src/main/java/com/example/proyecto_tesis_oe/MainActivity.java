@@ -10,6 +10,11 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import com.example.proyecto_tesis_oe.services.NearDuplicateIndex;
+import com.example.proyecto_tesis_oe.services.OllamaWarmUp;
+import com.example.proyecto_tesis_oe.services.RecognizerManager;
+import com.example.proyecto_tesis_oe.services.ScriptRouter;
+import com.example.proyecto_tesis_oe.services.TranslationCache;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -18,6 +23,12 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_main);
+        // Precargar modelos OCR mientras se muestra el splash
+        RecognizerManager.warmUp();
+        ScriptRouter.init(this);
+        TranslationCache.init(this);
+        NearDuplicateIndex.init(this);
+        OllamaWarmUp.start(this);
         // Redirigir a Inicio después de 3 segundos
         new Handler(Looper.getMainLooper()).postDelayed(() -> {
             Intent intent = new Intent(MainActivity.this, Inicio.class);
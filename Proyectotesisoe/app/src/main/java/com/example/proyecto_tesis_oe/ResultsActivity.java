@@ -10,14 +10,22 @@ import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
-import com.example.proyecto_tesis_oe.services.OcrService;
-import com.example.proyecto_tesis_oe.services.TranslationService;
+import com.example.proyecto_tesis_oe.services.OllamaHostPool;
+import com.example.proyecto_tesis_oe.services.OllamaTimings;
+import com.example.proyecto_tesis_oe.services.ScanJob;
 
 public class ResultsActivity extends AppCompatActivity {
     private static final String TAG = "ResultsActivity";
 
+    // Id del ScanJob ya en marcha (OCR arrancado desde Inicio al capturar)
+    public static final String EXTRA_JOB_ID = "JOB_ID";
+
+    // Ruta del recorte guardado, si lo hay: permite repetir el escaneo si el trabajo ya no existe
+    public static final String EXTRA_IMAGE_PATH = "IMAGE_PATH";
+
     private TextView recognizedTextView;
     private TextView translatedTextView;
+    private TextView translationStatsTextView;
     private Button backButton;
     private Button copyTextButton;
     private Button copyTranslationButton;
@@ -25,6 +33,12 @@ public class ResultsActivity extends AppCompatActivity {
     private String recognizedText = "";
     private String translatedText = "";
 
+    private ScanJob scanJob;
+
+    // Línea de tiempos bajo la traducción
+    private String clientStats = "";
+    private String serverStats = "";
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -33,21 +47,53 @@ public class ResultsActivity extends AppCompatActivity {
         initializeViews();
         setupClickListeners();
 
-        // Obtener ruta de la imagen del Intent
-        String imagePath = getIntent().getStringExtra("IMAGE_PATH");
+        // Engancharse al escaneo ya en marcha o, si llega solo una ruta, empezar uno
+        long jobId = getIntent().getLongExtra(EXTRA_JOB_ID, -1);
+        String imagePath = getIntent().getStringExtra(EXTRA_IMAGE_PATH);
 
-        if (imagePath != null) {
+        scanJob = jobId != -1 ? ScanJob.get(jobId) : null;
+        if (scanJob == null && imagePath != null) {
             Log.d(TAG, "Procesando imagen: " + imagePath);
-            processImage(imagePath);
+            scanJob = ScanJob.start(this, imagePath);
+        }
+
+        if (scanJob != null) {
+            scanJob.attach(createScanListener());
+        } else if (jobId != -1) {
+            // Captura en memoria cuyo trabajo ya no existe (p. ej. el proceso se reinició)
+            Log.w(TAG, "Escaneo " + jobId + " no disponible y sin imagen guardada");
+            showError("El escaneo ya no está disponible. Vuelve a escanear la etiqueta");
         } else {
             Log.e(TAG, "No se recibió ruta de imagen");
             showError("Error: No se recibió la imagen");
         }
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // La traducción se sigue aquí: el monitor de salud vigila los servidores mientras tanto
+        OllamaHostPool.startMonitor();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        OllamaHostPool.stopMonitor();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (scanJob != null) {
+            scanJob.detach(isFinishing());
+        }
+    }
+
     private void initializeViews() {
         recognizedTextView = findViewById(R.id.recognizedText);
         translatedTextView = findViewById(R.id.translatedText);
+        translationStatsTextView = findViewById(R.id.translationStatsText);
         backButton = findViewById(R.id.backButton);
         copyTextButton = findViewById(R.id.copyTextButton);
         copyTranslationButton = findViewById(R.id.copyTranslationButton);
@@ -55,6 +101,7 @@ public class ResultsActivity extends AppCompatActivity {
         // Texto inicial
         recognizedTextView.setText("🔍 Reconociendo texto...");
         translatedTextView.setText("⏳ Esperando reconocimiento...");
+        translationStatsTextView.setVisibility(View.GONE);
     }
 
     private void setupClickListeners() {
@@ -80,87 +127,88 @@ public class ResultsActivity extends AppCompatActivity {
         });
     }
 
-    private void processImage(String imagePath) {
-        // Paso 1: Reconocer texto con OCR
-        OcrService.recognizeText(this, imagePath, new OcrService.OcrCallback() {
+    /**
+     * Los eventos del escaneo llegan ya en el hilo principal
+     */
+    private ScanJob.Listener createScanListener() {
+        return new ScanJob.Listener() {
             @Override
             public void onTextRecognized(String text) {
                 Log.d(TAG, "Texto reconocido: " + (text != null ? text.length() : 0) + " caracteres");
 
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (text == null || text.trim().isEmpty()) {
-                            recognizedText = "❌ No se detectó texto en la imagen";
-                            recognizedTextView.setText(recognizedText);
-                            translatedTextView.setText("⚠️ No hay texto para traducir");
-                            Toast.makeText(ResultsActivity.this,
-                                    "No se detectó texto legible",
-                                    Toast.LENGTH_LONG).show();
-                            return;
-                        }
-
-                        // Mostrar texto reconocido
-                        recognizedText = text;
-                        recognizedTextView.setText(text);
-
-                        // Indicar que está traduciendo
-                        translatedTextView.setText("🔄 Traduciendo...");
-
-                        // Paso 2: Traducir texto
-                        translateText(text);
-                    }
-                });
+                if (text == null || text.trim().isEmpty()) {
+                    recognizedText = "❌ No se detectó texto en la imagen";
+                    recognizedTextView.setText(recognizedText);
+                    translatedTextView.setText("⚠️ No hay texto para traducir");
+                    Toast.makeText(ResultsActivity.this,
+                            "No se detectó texto legible",
+                            Toast.LENGTH_LONG).show();
+                    return;
+                }
+
+                // Mostrar texto reconocido
+                recognizedText = text;
+                recognizedTextView.setText(text);
+
+                // La traducción ya la inició el escaneo
+                translatedTextView.setText("🔄 Traduciendo...");
             }
 
             @Override
-            public void onError(Exception e) {
+            public void onOcrError(Exception e) {
                 Log.e(TAG, "Error en OCR", e);
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        showError("Error en OCR: " + e.getMessage());
-                    }
-                });
+                showError("Error en OCR: " + e.getMessage());
+            }
+
+            @Override
+            public void onPartialTranslation(String partialText) {
+                // La traducción aparece mientras el modelo la genera
+                translatedTextView.setText(partialText + " ▌");
+            }
+
+            @Override
+            public void onTranslationStats(long firstTokenMs, long totalMs) {
+                clientStats = "⚡ Primer token: " + firstTokenMs + " ms · Total: " + totalMs + " ms";
+                showTranslationStats();
+            }
+
+            @Override
+            public void onServerTimings(OllamaTimings timings) {
+                serverStats = "🖥 Carga modelo: " + timings.loadMs + " ms · Prompt: " + timings.promptEvalMs
+                        + " ms (" + timings.promptEvalCount + " tokens)";
+                showTranslationStats();
             }
-        });
-    }
 
-    private void translateText(String text) {
-        TranslationService.translateText(text, new TranslationService.TranslationCallback() {
             @Override
             public void onTextTranslated(String translated) {
                 Log.d(TAG, "Traducción completada");
 
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        translatedText = translated;
-                        translatedTextView.setText(translated);
-                        Toast.makeText(ResultsActivity.this,
-                                "✅ Traducción completada",
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+                translatedText = translated;
+                translatedTextView.setText(translated);
+                Toast.makeText(ResultsActivity.this,
+                        "✅ Traducción completada",
+                        Toast.LENGTH_SHORT).show();
             }
 
             @Override
-            public void onError(String error) {
+            public void onTranslationError(String error) {
                 Log.e(TAG, "Error en traducción: " + error);
 
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        translatedText = "❌ Error al traducir:\n" + error;
-                        translatedTextView.setText(translatedText);
-
-                        Toast.makeText(ResultsActivity.this,
-                                "Error en traducción",
-                                Toast.LENGTH_LONG).show();
-                    }
-                });
+                translatedText = "❌ Error al traducir:\n" + error;
+                translatedTextView.setText(translatedText);
+
+                Toast.makeText(ResultsActivity.this,
+                        "Error en traducción",
+                        Toast.LENGTH_LONG).show();
             }
-        });
+        };
+    }
+
+    private void showTranslationStats() {
+        String stats = serverStats.isEmpty() ? clientStats
+                : clientStats.isEmpty() ? serverStats : clientStats + "\n" + serverStats;
+        translationStatsTextView.setText(stats);
+        translationStatsTextView.setVisibility(View.VISIBLE);
     }
 
     private void copyToClipboard(String label, String text) {
@@ -0,0 +1,86 @@
+package com.example.proyecto_tesis_oe;
+
+import android.graphics.Rect;
+
+/**
+ * Geometría de la vista previa y del marco de escaneo tomada en el hilo principal. Las
+ * capturas, la ráfaga y el análisis en vivo corren en otros hilos y no deben leer las vistas:
+ * trabajan con esta copia inmutable de números
+ */
+public class ScanFrameGeometry implements LiveTextAnalyzer.CropProvider {
+    public final int previewWidth;
+    public final int previewHeight;
+    public final int frameLeft;
+    public final int frameTop;
+    public final int frameWidth;
+    public final int frameHeight;
+
+    public ScanFrameGeometry(int previewWidth, int previewHeight,
+                             int frameLeft, int frameTop, int frameWidth, int frameHeight) {
+        this.previewWidth = previewWidth;
+        this.previewHeight = previewHeight;
+        this.frameLeft = frameLeft;
+        this.frameTop = frameTop;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+    }
+
+    /**
+     * Si las vistas ya se midieron
+     */
+    public boolean isValid() {
+        return previewWidth > 0 && previewHeight > 0 && frameWidth > 0 && frameHeight > 0;
+    }
+
+    /**
+     * Convierte el marco de escaneo a coordenadas de una imagen de imageWidth x imageHeight
+     * (null si el área resultante no es válida)
+     */
+    @Override
+    public Rect cropFor(int imageWidth, int imageHeight) {
+        if (!isValid() || imageWidth <= 0 || imageHeight <= 0) return null;
+
+        // Área de la imagen visible en la vista previa (centrada, como FILL_CENTER)
+        float previewAspect = (float) previewWidth / previewHeight;
+        float imageAspect = (float) imageWidth / imageHeight;
+        int visibleImageWidth, visibleImageHeight;
+        int offsetX = 0, offsetY = 0;
+
+        if (imageAspect > previewAspect) {
+            // La imagen es más ancha: se recortan los lados
+            visibleImageHeight = imageHeight;
+            visibleImageWidth = (int) (imageHeight * previewAspect);
+            offsetX = (imageWidth - visibleImageWidth) / 2;
+        } else {
+            // La imagen es más alta: se recortan arriba/abajo
+            visibleImageWidth = imageWidth;
+            visibleImageHeight = (int) (imageWidth / previewAspect);
+            offsetY = (imageHeight - visibleImageHeight) / 2;
+        }
+
+        // Marco de la vista previa a la imagen
+        float scaleX = (float) visibleImageWidth / previewWidth;
+        float scaleY = (float) visibleImageHeight / previewHeight;
+        int cropX = offsetX + (int) (frameLeft * scaleX);
+        int cropY = offsetY + (int) (frameTop * scaleY);
+        int cropWidth = (int) (frameWidth * scaleX);
+        int cropHeight = (int) (frameHeight * scaleY);
+
+        // Dentro de los límites de la imagen
+        cropX = Math.max(0, Math.min(cropX, imageWidth - 1));
+        cropY = Math.max(0, Math.min(cropY, imageHeight - 1));
+        cropWidth = Math.min(cropWidth, imageWidth - cropX);
+        cropHeight = Math.min(cropHeight, imageHeight - cropY);
+
+        if (cropWidth <= 0 || cropHeight <= 0) {
+            return null;
+        }
+        return new Rect(cropX, cropY, cropX + cropWidth, cropY + cropHeight);
+    }
+
+    @Override
+    public String toString() {
+        return "vista previa " + previewWidth + "x" + previewHeight + ", marco (" + frameLeft + ", "
+                + frameTop + ") " + frameWidth + "x" + frameHeight;
+    }
+}
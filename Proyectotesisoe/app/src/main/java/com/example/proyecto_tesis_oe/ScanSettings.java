@@ -0,0 +1,54 @@
+package com.example.proyecto_tesis_oe;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Preferencias del escaneo guardadas en SharedPreferences
+ */
+public class ScanSettings {
+    private static final String PREFS_NAME = "scan_settings";
+
+    // Guardar las capturas JPEG en disco (depuración / historial)
+    private static final String KEY_SAVE_CAPTURES = "save_captures";
+
+    // Límite de OCR por segundo en el modo en vivo (evita calentar el dispositivo)
+    private static final String KEY_LIVE_OCR_FPS = "live_ocr_fps";
+    public static final int DEFAULT_LIVE_OCR_FPS = 2;
+    public static final int MAX_LIVE_OCR_FPS = 10;
+
+    // Ráfaga: varias capturas seguidas y al OCR solo la más nítida
+    private static final String KEY_BURST_MODE = "burst_mode";
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Con false (por defecto) la captura va de la cámara al OCR en memoria, sin escribir a disco
+     */
+    public static boolean isSaveCapturesEnabled(Context context) {
+        return prefs(context).getBoolean(KEY_SAVE_CAPTURES, false);
+    }
+
+    public static void setSaveCapturesEnabled(Context context, boolean enabled) {
+        prefs(context).edit().putBoolean(KEY_SAVE_CAPTURES, enabled).apply();
+    }
+
+    public static boolean isBurstModeEnabled(Context context) {
+        return prefs(context).getBoolean(KEY_BURST_MODE, false);
+    }
+
+    public static void setBurstModeEnabled(Context context, boolean enabled) {
+        prefs(context).edit().putBoolean(KEY_BURST_MODE, enabled).apply();
+    }
+
+    public static int getLiveOcrMaxFps(Context context) {
+        return prefs(context).getInt(KEY_LIVE_OCR_FPS, DEFAULT_LIVE_OCR_FPS);
+    }
+
+    public static void setLiveOcrMaxFps(Context context, int fps) {
+        int clamped = Math.max(1, Math.min(MAX_LIVE_OCR_FPS, fps));
+        prefs(context).edit().putInt(KEY_LIVE_OCR_FPS, clamped).apply();
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.proyecto_tesis_oe;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Estima y corrige la inclinación pequeña del texto (fotos de estantería tomadas en ángulo)
+ * Sobre una copia reducida y binarizada (Otsu) se toman los píxeles de tinta y, para cada
+ * ángulo candidato, se proyectan sobre el eje vertical inclinado: con el ángulo correcto las
+ * líneas caen en pocas filas y el perfil es más "picudo" (mayor suma de cuadrados). Primero
+ * una búsqueda gruesa y después una fina alrededor del mejor
+ */
+public class SkewCorrector {
+
+    // Lado mayor de la copia binarizada
+    private static final int WORK_SIZE = 512;
+
+    // Rango y pasos de la búsqueda (grados)
+    private static final float MAX_ANGLE = 10f;
+    private static final float COARSE_STEP = 0.5f;
+    private static final float FINE_STEP = 0.1f;
+
+    // Por debajo de este ángulo no compensa interpolar el frame completo
+    private static final float MIN_ANGLE = 0.3f;
+
+    // Mejora mínima del perfil frente a no girar (evita corregir ruido)
+    private static final float MIN_GAIN = 1.05f;
+
+    // Píxeles de tinta: mínimo para fiarse de la estimación y máximo que se proyecta
+    private static final int MIN_INK = 200;
+    private static final int MAX_INK = 40000;
+
+    // Estadísticas
+    private static int scans = 0;
+    private static int corrected = 0;
+    private static float sumAbsAngle = 0f;
+
+    /**
+     * Ángulo de las líneas de texto en grados (positivo = bajan hacia la derecha) y cuánto
+     * mejora el perfil de proyección frente a 0°
+     */
+    public static class Estimate {
+        public final float angle;
+        public final float gain;
+
+        Estimate(float angle, float gain) {
+            this.angle = angle;
+            this.gain = gain;
+        }
+
+        /**
+         * Si merece la pena enderezar el frame
+         */
+        public boolean isSignificant() {
+            return Math.abs(angle) >= MIN_ANGLE && gain >= MIN_GAIN;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%.1f° (perfil x%.2f)", angle, gain);
+        }
+    }
+
+    /**
+     * Estimación de la inclinación, o null si no hay tinta suficiente
+     */
+    public static Estimate estimate(LumaFrame frame) {
+        LumaFrame small = LumaPreprocessor.downsample(frame, WORK_SIZE);
+        int w = small.width;
+        int h = small.height;
+
+        int[] histogram = new int[256];
+        int size = small.lumaSize();
+        for (int i = 0; i < size; i++) {
+            histogram[small.data[i] & 0xff]++;
+        }
+        int threshold = LocalThresholder.otsuThreshold(histogram, size);
+        int dark = 0;
+        for (int v = 0; v <= threshold; v++) {
+            dark += histogram[v];
+        }
+        // La tinta es la clase minoritaria (texto claro sobre fondo oscuro también vale)
+        boolean inkIsDark = dark <= size / 2;
+        int inkCount = inkIsDark ? dark : size - dark;
+        if (inkCount < MIN_INK) {
+            if (small != frame) small.recycle();
+            return null;
+        }
+
+        int stride = Math.max(1, inkCount / MAX_INK);
+        int[] xs = new int[inkCount / stride + 1];
+        int[] ys = new int[xs.length];
+        int count = 0;
+        int seen = 0;
+        for (int y = 0; y < h; y++) {
+            int row = y * w;
+            for (int x = 0; x < w; x++) {
+                boolean isDark = (small.data[row + x] & 0xff) <= threshold;
+                if (isDark != inkIsDark) continue;
+                if (seen++ % stride != 0 || count >= xs.length) continue;
+                xs[count] = x;
+                ys[count] = y;
+                count++;
+            }
+        }
+        if (small != frame) small.recycle();
+
+        // Filas posibles del perfil con el mayor desplazamiento (tan(MAX_ANGLE) * w)
+        int margin = (int) Math.ceil(w * Math.tan(Math.toRadians(MAX_ANGLE))) + 1;
+        int[] bins = new int[h + 2 * margin];
+
+        float best = 0f;
+        double bestScore = profileScore(xs, ys, count, 0f, bins, margin);
+        double zeroScore = bestScore;
+        for (float angle = -MAX_ANGLE; angle <= MAX_ANGLE + 1e-3f; angle += COARSE_STEP) {
+            double score = profileScore(xs, ys, count, angle, bins, margin);
+            if (score > bestScore) {
+                bestScore = score;
+                best = angle;
+            }
+        }
+        float center = best;
+        for (float angle = center - COARSE_STEP + FINE_STEP; angle < center + COARSE_STEP - 1e-3f; angle += FINE_STEP) {
+            double score = profileScore(xs, ys, count, angle, bins, margin);
+            if (score > bestScore) {
+                bestScore = score;
+                best = angle;
+            }
+        }
+
+        float gain = zeroScore > 0 ? (float) (bestScore / zeroScore) : 1f;
+        return new Estimate(Math.round(best * 10f) / 10f, gain);
+    }
+
+    /**
+     * Suma de cuadrados del perfil de las filas y' = y - x * tan(angle)
+     */
+    private static double profileScore(int[] xs, int[] ys, int count, float angle, int[] bins, int margin) {
+        Arrays.fill(bins, 0);
+        double tan = Math.tan(Math.toRadians(angle));
+        for (int i = 0; i < count; i++) {
+            int row = (int) Math.round(ys[i] - xs[i] * tan) + margin;
+            if (row >= 0 && row < bins.length) bins[row]++;
+        }
+        double score = 0;
+        for (int bin : bins) {
+            score += (double) bin * bin;
+        }
+        return score;
+    }
+
+    /**
+     * Endereza un frame en gris si la inclinación estimada es significativa. El lienzo crece
+     * para no cortar las esquinas y el hueco se rellena con el fondo (la mediana del frame).
+     * Si corrige, recicla el original y anota el ángulo en skewDegrees
+     */
+    public static LumaFrame correct(LumaFrame gray) {
+        Estimate estimate = estimate(gray);
+        boolean apply = estimate != null && estimate.isSignificant();
+        synchronized (SkewCorrector.class) {
+            scans++;
+            if (apply) {
+                corrected++;
+                sumAbsAngle += Math.abs(estimate.angle);
+            }
+        }
+        if (!apply) return gray;
+
+        LumaFrame rotated = rotateSmall(gray, estimate.angle);
+        rotated.uncroppedPixels = gray.uncroppedPixels;
+        rotated.rotationDegrees = gray.rotationDegrees;
+        rotated.skewDegrees = estimate.angle;
+        gray.recycle();
+        return rotated;
+    }
+
+    public static synchronized String getStats() {
+        float meanAngle = corrected == 0 ? 0f : sumAbsAngle / corrected;
+        return "enderezados=" + corrected + "/" + scans
+                + String.format(Locale.US, " inclinación media=%.1f°", meanAngle);
+    }
+
+    /**
+     * Gira el frame -angle grados (interpolación bilineal) para que las líneas queden horizontales
+     */
+    static LumaFrame rotateSmall(LumaFrame source, float angle) {
+        double radians = Math.toRadians(angle);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+        int w = source.width;
+        int h = source.height;
+        int outW = (int) Math.ceil(w * Math.abs(cos) + h * Math.abs(sin));
+        int outH = (int) Math.ceil(w * Math.abs(sin) + h * Math.abs(cos));
+        LumaFrame target = LumaFrame.obtain(outW, outH);
+        int background = median(source);
+
+        // Para cada píxel de destino se muestrea el origen girado +angle alrededor del centro
+        // (coordenadas en punto fijo de 16 bits)
+        double cx = w / 2.0;
+        double cy = h / 2.0;
+        double tcx = target.width / 2.0;
+        double tcy = target.height / 2.0;
+        int cosFixed = (int) Math.round(cos * 65536);
+        int sinFixed = (int) Math.round(sin * 65536);
+        byte[] src = source.data;
+        byte[] dst = target.data;
+
+        for (int v = 0; v < target.height; v++) {
+            double dy = v - tcy;
+            int sx = (int) Math.round((cx - tcx * cos - dy * sin) * 65536);
+            int sy = (int) Math.round((cy - tcx * sin + dy * cos) * 65536);
+            int out = v * target.width;
+            for (int u = 0; u < target.width; u++, sx += cosFixed, sy += sinFixed) {
+                int x0 = sx >> 16;
+                int y0 = sy >> 16;
+                if (x0 < 0 || y0 < 0 || x0 >= w - 1 || y0 >= h - 1) {
+                    dst[out + u] = (byte) background;
+                    continue;
+                }
+                int fx = (sx >> 8) & 0xff;
+                int fy = (sy >> 8) & 0xff;
+                int i = y0 * w + x0;
+                int top = (src[i] & 0xff) * (256 - fx) + (src[i + 1] & 0xff) * fx;
+                int bottom = (src[i + w] & 0xff) * (256 - fx) + (src[i + w + 1] & 0xff) * fx;
+                dst[out + u] = (byte) ((top * (256 - fy) + bottom * fy) >> 16);
+            }
+        }
+        return target;
+    }
+
+    private static int median(LumaFrame frame) {
+        int[] histogram = new int[256];
+        int size = frame.lumaSize();
+        for (int i = 0; i < size; i += 7) {
+            histogram[frame.data[i] & 0xff]++;
+        }
+        int half = (size / 7) / 2;
+        int seen = 0;
+        for (int v = 0; v < 256; v++) {
+            seen += histogram[v];
+            if (seen > half) return v;
+        }
+        return 255;
+    }
+}
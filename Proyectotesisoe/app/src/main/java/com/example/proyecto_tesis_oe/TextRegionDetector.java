@@ -0,0 +1,252 @@
+package com.example.proyecto_tesis_oe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detector de regiones con texto sobre el buffer en gris (antes de binarizar)
+ * Sobre una copia reducida: mapa de gradiente (los trazos de las letras dan bordes densos
+ * en ambas direcciones), cierre morfológico horizontal para unir letras en palabras y
+ * líneas, y componentes conexas. Se descartan las regiones con pocos bordes (fondo),
+ * las huecas (contornos de brillos y formas lisas) y las de bordes casi solo verticales
+ * (códigos de barras)
+ */
+public class TextRegionDetector {
+
+    // Lado mayor del mapa de trabajo
+    private static final int WORK_SIZE = 480;
+
+    // Umbral de borde: el mayor entre este mínimo y la media del gradiente por el factor
+    private static final int MIN_GRADIENT = 24;
+    private static final float GRADIENT_FACTOR = 2f;
+
+    // Cierre morfológico: radio horizontal (fracción del ancho) y vertical en píxeles
+    private static final int CLOSE_RADIUS_DIVISOR = 96;
+    private static final int CLOSE_RADIUS_Y = 1;
+
+    // Filtros de componentes (en píxeles del mapa de trabajo)
+    private static final int MIN_COMPONENT_HEIGHT = 4;
+    private static final int MIN_COMPONENT_AREA = 40;
+    private static final float MIN_EDGE_DENSITY = 0.08f;
+
+    // Fracción mínima de la caja cubierta por la componente: el cierre rellena las líneas de
+    // texto, mientras que un brillo o una forma lisa solo deja su contorno (un anillo hueco)
+    private static final float MIN_FILL_RATIO = 0.5f;
+
+    // Fracción de gradiente horizontal a partir de la cual una región es un código de barras
+    private static final float BARCODE_GRADIENT_RATIO = 0.85f;
+
+    // Margen de la unión (fracción del lado mayor) y cobertura a partir de la cual no se recorta
+    private static final float PADDING_RATIO = 0.03f;
+    private static final float MAX_CROP_COVERAGE = 0.85f;
+
+    // Estadísticas
+    private static int scans = 0;
+    private static int cropped = 0;
+    private static long pixelsBefore = 0;
+    private static long pixelsAfter = 0;
+
+    /**
+     * Rectángulo [left, right) x [top, bottom) en coordenadas del frame
+     */
+    public static class Region {
+        public final int left;
+        public final int top;
+        public final int right;
+        public final int bottom;
+
+        Region(int left, int top, int right, int bottom) {
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+
+        public int width() {
+            return right - left;
+        }
+
+        public int height() {
+            return bottom - top;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + left + "," + top + " - " + right + "," + bottom + "]";
+        }
+    }
+
+    /**
+     * Regiones con texto, ajustadas a sus bordes
+     */
+    public static List<Region> detect(LumaFrame frame) {
+        LumaFrame small = LumaPreprocessor.downsample(frame, WORK_SIZE);
+        int w = small.width;
+        int h = small.height;
+        float scaleX = (float) frame.width / w;
+        float scaleY = (float) frame.height / h;
+
+        // 1. Gradiente por píxel (diferencias centrales)
+        byte[] gx = new byte[w * h];
+        byte[] gy = new byte[w * h];
+        long sum = 0;
+        for (int y = 1; y < h - 1; y++) {
+            int row = y * w;
+            for (int x = 1; x < w - 1; x++) {
+                int i = row + x;
+                int dx = Math.abs((small.data[i + 1] & 0xff) - (small.data[i - 1] & 0xff));
+                int dy = Math.abs((small.data[i + w] & 0xff) - (small.data[i - w] & 0xff));
+                gx[i] = (byte) dx;
+                gy[i] = (byte) dy;
+                sum += Math.max(dx, dy);
+            }
+        }
+        if (small != frame) small.recycle();
+
+        int threshold = Math.max(MIN_GRADIENT, Math.round(sum * GRADIENT_FACTOR / Math.max(1, w * h)));
+        boolean[] edges = new boolean[w * h];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = Math.max(gx[i] & 0xff, gy[i] & 0xff) >= threshold;
+        }
+
+        // 2. Cierre: dilatar y erosionar (une letras y líneas vecinas)
+        int radiusX = Math.max(2, w / CLOSE_RADIUS_DIVISOR);
+        boolean[] closed = rows(edges, w, h, radiusX, true);
+        closed = columns(closed, w, h, CLOSE_RADIUS_Y, true);
+        closed = rows(closed, w, h, radiusX, false);
+        closed = columns(closed, w, h, CLOSE_RADIUS_Y, false);
+
+        // 3. Componentes conexas (4-vecinos) con sus estadísticas de borde
+        List<Region> regions = new ArrayList<>();
+        boolean[] visited = new boolean[w * h];
+        int[] stack = new int[w * h];
+        for (int start = 0; start < closed.length; start++) {
+            if (!closed[start] || visited[start]) continue;
+
+            int minX = w, minY = h, maxX = -1, maxY = -1;
+            int pixelCount = 0;
+            int edgeCount = 0;
+            long sumGx = 0, sumGy = 0;
+            int top = 0;
+            stack[top++] = start;
+            visited[start] = true;
+
+            while (top > 0) {
+                int i = stack[--top];
+                int x = i % w;
+                int y = i / w;
+                pixelCount++;
+                if (x < minX) minX = x;
+                if (x > maxX) maxX = x;
+                if (y < minY) minY = y;
+                if (y > maxY) maxY = y;
+                if (edges[i]) {
+                    edgeCount++;
+                    sumGx += gx[i] & 0xff;
+                    sumGy += gy[i] & 0xff;
+                }
+                if (x > 0 && closed[i - 1] && !visited[i - 1]) { visited[i - 1] = true; stack[top++] = i - 1; }
+                if (x < w - 1 && closed[i + 1] && !visited[i + 1]) { visited[i + 1] = true; stack[top++] = i + 1; }
+                if (y > 0 && closed[i - w] && !visited[i - w]) { visited[i - w] = true; stack[top++] = i - w; }
+                if (y < h - 1 && closed[i + w] && !visited[i + w]) { visited[i + w] = true; stack[top++] = i + w; }
+            }
+
+            int boxW = maxX - minX + 1;
+            int boxH = maxY - minY + 1;
+            if (boxH < MIN_COMPONENT_HEIGHT || boxW * boxH < MIN_COMPONENT_AREA) continue;
+            if ((float) pixelCount / (boxW * boxH) < MIN_FILL_RATIO) continue;
+            if ((float) edgeCount / (boxW * boxH) < MIN_EDGE_DENSITY) continue;
+            if (sumGx + sumGy > 0 && (float) sumGx / (sumGx + sumGy) >= BARCODE_GRADIENT_RATIO) continue;
+
+            regions.add(new Region(
+                    (int) (minX * scaleX), (int) (minY * scaleY),
+                    Math.min(frame.width, (int) Math.ceil((maxX + 1) * scaleX)),
+                    Math.min(frame.height, (int) Math.ceil((maxY + 1) * scaleY))));
+        }
+        return regions;
+    }
+
+    /**
+     * Unión de las regiones con margen, o null si no hay texto o si recortar no ahorra
+     * lo suficiente
+     */
+    public static Region textBounds(LumaFrame frame) {
+        List<Region> regions = detect(frame);
+        synchronized (TextRegionDetector.class) {
+            scans++;
+        }
+        if (regions.isEmpty()) return null;
+
+        int left = frame.width, top = frame.height, right = 0, bottom = 0;
+        for (Region region : regions) {
+            left = Math.min(left, region.left);
+            top = Math.min(top, region.top);
+            right = Math.max(right, region.right);
+            bottom = Math.max(bottom, region.bottom);
+        }
+
+        int padding = Math.round(PADDING_RATIO * Math.max(frame.width, frame.height));
+        Region union = new Region(Math.max(0, left - padding), Math.max(0, top - padding),
+                Math.min(frame.width, right + padding), Math.min(frame.height, bottom + padding));
+
+        long area = (long) union.width() * union.height();
+        if (area > MAX_CROP_COVERAGE * frame.lumaSize()) return null;
+        return union;
+    }
+
+    /**
+     * Registra un recorte aplicado (píxeles del frame antes y después)
+     */
+    public static synchronized void recordCrop(int before, int after) {
+        cropped++;
+        pixelsBefore += before;
+        pixelsAfter += after;
+    }
+
+    public static synchronized String getStats() {
+        int reduction = pixelsBefore == 0 ? 0 : Math.round(100f * (pixelsBefore - pixelsAfter) / pixelsBefore);
+        return "recortados=" + cropped + "/" + scans + " reducción media=" + reduction + "%";
+    }
+
+    /**
+     * Dilatación (dilate = true) o erosión horizontal con ventana de 2 * radius + 1
+     */
+    private static boolean[] rows(boolean[] map, int w, int h, int radius, boolean dilate) {
+        boolean[] out = new boolean[map.length];
+        for (int y = 0; y < h; y++) {
+            int row = y * w;
+            int count = 0;
+            for (int x = 0; x < Math.min(radius, w); x++) {
+                if (map[row + x]) count++;
+            }
+            for (int x = 0; x < w; x++) {
+                int enter = x + radius;
+                int leave = x - radius - 1;
+                if (enter < w && map[row + enter]) count++;
+                if (leave >= 0 && map[row + leave]) count--;
+                int window = Math.min(w - 1, x + radius) - Math.max(0, x - radius) + 1;
+                out[row + x] = dilate ? count > 0 : count == window;
+            }
+        }
+        return out;
+    }
+
+    private static boolean[] columns(boolean[] map, int w, int h, int radius, boolean dilate) {
+        boolean[] out = new boolean[map.length];
+        for (int x = 0; x < w; x++) {
+            int count = 0;
+            for (int y = 0; y < Math.min(radius, h); y++) {
+                if (map[y * w + x]) count++;
+            }
+            for (int y = 0; y < h; y++) {
+                int enter = y + radius;
+                int leave = y - radius - 1;
+                if (enter < h && map[enter * w + x]) count++;
+                if (leave >= 0 && map[leave * w + x]) count--;
+                int window = Math.min(h - 1, y + radius) - Math.max(0, y - radius) + 1;
+                out[y * w + x] = dilate ? count > 0 : count == window;
+            }
+        }
+        return out;
+    }
+}
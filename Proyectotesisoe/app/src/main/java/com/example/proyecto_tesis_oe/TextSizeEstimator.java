@@ -0,0 +1,97 @@
+package com.example.proyecto_tesis_oe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Estima la altura de las líneas de texto con perfiles de proyección
+ * Sobre una copia reducida, la imagen se divide en franjas verticales estrechas (así las
+ * columnas y una ligera inclinación no mezclan líneas). En cada franja, las filas con
+ * bastantes bordes verticales (trazos de letras) son filas de texto; cada tramo seguido de
+ * esas filas es una línea y su alto, la altura del texto
+ */
+public class TextSizeEstimator {
+
+    // Lado mayor del mapa de trabajo (la letra pequeña sigue midiendo varios píxeles)
+    private static final int WORK_SIZE = 960;
+
+    // Ancho de cada franja y fracción de sus píxeles con borde para contar la fila como texto
+    private static final int STRIP_WIDTH = 48;
+    private static final float ROW_EDGE_FRACTION = 0.1f;
+
+    // Diferencia horizontal mínima para considerar un borde de trazo
+    private static final int MIN_EDGE = 32;
+
+    // Tramos aceptados como línea (en píxeles del mapa de trabajo) y mínimo de líneas
+    private static final int MIN_LINE_HEIGHT = 3;
+    private static final int MIN_LINES = 3;
+
+    // Percentil que representa la letra más pequeña que hay que conservar legible
+    private static final float FINE_PRINT_PERCENTILE = 0.2f;
+
+    public static class Estimate {
+        // Alturas en píxeles del frame original
+        public final float dominantHeight;
+        public final float finePrintHeight;
+        // Tramos de línea medidos (una línea cuenta una vez por franja)
+        public final int lines;
+
+        Estimate(float dominantHeight, float finePrintHeight, int lines) {
+            this.dominantHeight = dominantHeight;
+            this.finePrintHeight = finePrintHeight;
+            this.lines = lines;
+        }
+
+        @Override
+        public String toString() {
+            return "línea dominante " + Math.round(dominantHeight) + " px, letra pequeña "
+                    + Math.round(finePrintHeight) + " px (" + lines + " tramos)";
+        }
+    }
+
+    /**
+     * Estimación de alturas, o null si no se encuentran suficientes líneas
+     */
+    public static Estimate estimate(LumaFrame frame) {
+        LumaFrame small = LumaPreprocessor.downsample(frame, WORK_SIZE);
+        int w = small.width;
+        int h = small.height;
+        float scale = (float) frame.height / h;
+        int maxLineHeight = Math.max(MIN_LINE_HEIGHT + 1, h / 4);
+        int minRowEdges = Math.max(2, Math.round(STRIP_WIDTH * ROW_EDGE_FRACTION));
+
+        List<Integer> heights = new ArrayList<>();
+        for (int stripLeft = 1; stripLeft + STRIP_WIDTH < w; stripLeft += STRIP_WIDTH) {
+            int runStart = -1;
+            for (int y = 0; y <= h; y++) {
+                boolean textRow = false;
+                if (y < h) {
+                    int row = y * w;
+                    int edges = 0;
+                    for (int x = stripLeft; x < stripLeft + STRIP_WIDTH; x++) {
+                        if (Math.abs((small.data[row + x + 1] & 0xff) - (small.data[row + x - 1] & 0xff)) >= MIN_EDGE) {
+                            edges++;
+                        }
+                    }
+                    textRow = edges >= minRowEdges;
+                }
+
+                if (textRow && runStart < 0) {
+                    runStart = y;
+                } else if (!textRow && runStart >= 0) {
+                    int height = y - runStart;
+                    if (height >= MIN_LINE_HEIGHT && height <= maxLineHeight) heights.add(height);
+                    runStart = -1;
+                }
+            }
+        }
+        if (small != frame) small.recycle();
+
+        if (heights.size() < MIN_LINES) return null;
+        Collections.sort(heights);
+        float dominant = heights.get(heights.size() / 2) * scale;
+        float finePrint = heights.get((int) (FINE_PRINT_PERCENTILE * (heights.size() - 1))) * scale;
+        return new Estimate(dominant, finePrint, heights.size());
+    }
+}
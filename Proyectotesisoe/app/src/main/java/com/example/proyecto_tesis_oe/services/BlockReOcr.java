@@ -0,0 +1,245 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.graphics.Rect;
+import android.util.Log;
+import com.example.proyecto_tesis_oe.LumaFrame;
+import com.example.proyecto_tesis_oe.LumaPreprocessor;
+import com.google.mlkit.vision.text.Text;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Re-OCR selectivo por bloques
+ * En vez de repetir la imagen completa con otro reconocedor, solo se vuelven a leer los
+ * bloques del resultado estructurado de ML Kit cuya confianza es baja o cuyo texto apunta a
+ * otro script. Cada bloque se recorta del frame y va al reconocedor que sugiere
+ * ScriptRouter; se queda la lectura con mejor puntuación y los bloques se unen por posición
+ */
+class BlockReOcr {
+    private static final String TAG = "BlockReOcr";
+
+    // Confianza media por debajo de la cual un bloque se vuelve a leer
+    private static final float BLOCK_MIN_CONFIDENCE = 0.6f;
+
+    // Bloques como máximo por escaneo (los de menor confianza primero)
+    private static final int MAX_BLOCKS = 6;
+
+    // Margen alrededor del bloque y tamaño mínimo que acepta ML Kit
+    private static final int BLOCK_PADDING = 12;
+    private static final int MIN_CROP_SIZE = 32;
+
+    /**
+     * Un bloque de texto con su posición y la lectura elegida
+     */
+    static class Piece {
+        final Rect box;
+        String text;
+        float confidence;
+        RecognizerManager.Script script;
+
+        Piece(Rect box, String text, float confidence, RecognizerManager.Script script) {
+            this.box = box;
+            this.text = text;
+            this.confidence = confidence;
+            this.script = script;
+        }
+
+        float score() {
+            return OcrResultScorer.score(script, text, 1, confidence);
+        }
+    }
+
+    interface MergeCallback {
+        void onMerged(String text, float meanConfidence);
+    }
+
+    static List<Piece> pieces(Text visionText, RecognizerManager.Script script) {
+        List<Piece> pieces = new ArrayList<>();
+        for (Text.TextBlock block : visionText.getTextBlocks()) {
+            String text = TextAnalyzer.normalize(block.getText());
+            if (text == null || text.isEmpty()) continue;
+            pieces.add(new Piece(block.getBoundingBox(), text, blockConfidence(block), script));
+        }
+        return pieces;
+    }
+
+    /**
+     * Reconocedor al que conviene enviar el bloque, o null si la lectura actual es buena
+     */
+    static RecognizerManager.Script retargetFor(Piece piece, List<RecognizerManager.Script> ranking) {
+        if (piece.box == null) return null;
+        RecognizerManager.Script suggested = ScriptRouter.chooseFromProbe(piece.script, piece.text,
+                piece.confidence, ranking);
+
+        // Otro script asiático en el bloque: el reconocedor actual no lo lee bien
+        if (suggested != piece.script && suggested != RecognizerManager.Script.LATIN) return suggested;
+        if (piece.confidence >= BLOCK_MIN_CONFIDENCE) return null;
+
+        if (suggested != piece.script) return suggested;
+        for (RecognizerManager.Script script : ranking) {
+            if (script != piece.script) return script;
+        }
+        return null;
+    }
+
+    /**
+     * Vuelve a leer los bloques débiles y entrega el texto unido. El frame solo se lee aquí
+     * dentro (los recortes son copias), así que el llamador puede reciclarlo al volver
+     */
+    static void refine(LumaFrame frame, List<Piece> pieces, List<RecognizerManager.Script> ranking,
+                       MergeCallback callback) {
+        List<Piece> weak = new ArrayList<>();
+        List<RecognizerManager.Script> targets = new ArrayList<>();
+        List<Piece> byConfidence = new ArrayList<>(pieces);
+        Collections.sort(byConfidence, (a, b) -> Float.compare(a.confidence, b.confidence));
+        for (Piece piece : byConfidence) {
+            if (weak.size() >= MAX_BLOCKS) break;
+            RecognizerManager.Script target = retargetFor(piece, ranking);
+            if (target == null) continue;
+            weak.add(piece);
+            targets.add(target);
+        }
+
+        if (weak.isEmpty()) {
+            callback.onMerged(merge(pieces), meanConfidence(pieces));
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        AtomicInteger pending = new AtomicInteger(weak.size());
+        AtomicInteger replaced = new AtomicInteger(0);
+
+        for (int i = 0; i < weak.size(); i++) {
+            Piece piece = weak.get(i);
+            RecognizerManager.Script target = targets.get(i);
+            LumaFrame crop = cropBlock(frame, piece.box);
+            if (crop == null) {
+                finishOne(pending, replaced, weak.size(), pieces, start, callback);
+                continue;
+            }
+
+            RecognizerManager.process(target, OcrService.toInputImage(crop))
+                    .addOnCompleteListener(task -> {
+                        crop.recycle();
+                        if (task.isSuccessful()) {
+                            Text result = task.getResult();
+                            Piece candidate = new Piece(piece.box, TextAnalyzer.normalize(result.getText()),
+                                    OcrService.meanConfidence(result), target);
+                            synchronized (pieces) {
+                                if (!candidate.text.isEmpty() && candidate.score() > piece.score()) {
+                                    Log.d(TAG, "Bloque " + piece.box + ": " + piece.script.label + " → "
+                                            + target.label + " (" + piece.confidence + " → " + candidate.confidence + ")");
+                                    piece.text = candidate.text;
+                                    piece.confidence = candidate.confidence;
+                                    piece.script = target;
+                                    replaced.incrementAndGet();
+                                }
+                            }
+                        } else {
+                            Log.w(TAG, "Error releyendo bloque con " + target.label, task.getException());
+                        }
+                        finishOne(pending, replaced, weak.size(), pieces, start, callback);
+                    });
+        }
+    }
+
+    private static void finishOne(AtomicInteger pending, AtomicInteger replaced, int total, List<Piece> pieces,
+                                  long start, MergeCallback callback) {
+        if (pending.decrementAndGet() != 0) return;
+        Log.d(TAG, "Bloques releídos: " + total + "/" + pieces.size() + ", reemplazados: " + replaced.get()
+                + " (" + (System.currentTimeMillis() - start) + " ms)");
+        synchronized (pieces) {
+            callback.onMerged(merge(pieces), meanConfidence(pieces));
+        }
+    }
+
+    private static LumaFrame cropBlock(LumaFrame frame, Rect box) {
+        int left = box.left - BLOCK_PADDING;
+        int top = box.top - BLOCK_PADDING;
+        int right = box.right + BLOCK_PADDING;
+        int bottom = box.bottom + BLOCK_PADDING;
+
+        // ML Kit rechaza imágenes de menos de 32 px de lado
+        if (right - left < MIN_CROP_SIZE) {
+            int grow = (MIN_CROP_SIZE - (right - left) + 1) / 2;
+            left -= grow;
+            right += grow;
+        }
+        if (bottom - top < MIN_CROP_SIZE) {
+            int grow = (MIN_CROP_SIZE - (bottom - top) + 1) / 2;
+            top -= grow;
+            bottom += grow;
+        }
+        return LumaPreprocessor.crop(frame, left, top, right, bottom);
+    }
+
+    /**
+     * Une los bloques en orden de lectura: filas de arriba abajo (bloques que se solapan en
+     * vertical forman una fila) y, dentro de cada fila, de izquierda a derecha
+     */
+    static String merge(List<Piece> pieces) {
+        List<Piece> placed = new ArrayList<>();
+        List<Piece> unplaced = new ArrayList<>();
+        for (Piece piece : pieces) {
+            if (piece.text == null || piece.text.isEmpty()) continue;
+            if (piece.box != null) placed.add(piece);
+            else unplaced.add(piece);
+        }
+        Collections.sort(placed, (a, b) -> Integer.compare(a.box.top, b.box.top));
+
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (i < placed.size()) {
+            // Fila: bloques cuyo centro vertical cae dentro del primero
+            Piece first = placed.get(i);
+            List<Piece> row = new ArrayList<>();
+            int j = i;
+            while (j < placed.size()) {
+                Rect box = placed.get(j).box;
+                int centerY = (box.top + box.bottom) / 2;
+                if (j > i && centerY > first.box.bottom) break;
+                row.add(placed.get(j));
+                j++;
+            }
+            Collections.sort(row, (a, b) -> Integer.compare(a.box.left, b.box.left));
+            for (Piece piece : row) {
+                if (sb.length() > 0) sb.append('\n');
+                sb.append(piece.text);
+            }
+            i = j;
+        }
+        for (Piece piece : unplaced) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(piece.text);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Confianza media de los bloques, ponderada por su longitud
+     */
+    private static float meanConfidence(List<Piece> pieces) {
+        float sum = 0f;
+        int weight = 0;
+        for (Piece piece : pieces) {
+            sum += piece.confidence * piece.text.length();
+            weight += piece.text.length();
+        }
+        return weight == 0 ? 0f : sum / weight;
+    }
+
+    private static float blockConfidence(Text.TextBlock block) {
+        float sum = 0f;
+        int weight = 0;
+        for (Text.Line line : block.getLines()) {
+            for (Text.Element element : line.getElements()) {
+                int length = element.getText().length();
+                sum += element.getConfidence() * length;
+                weight += length;
+            }
+        }
+        return weight == 0 ? 0f : sum / weight;
+    }
+}
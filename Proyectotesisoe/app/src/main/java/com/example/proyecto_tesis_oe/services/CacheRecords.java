@@ -0,0 +1,57 @@
+package com.example.proyecto_tesis_oe.services;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+
+/**
+ * Formato de los registros del archivo de TranslationCache: fecha de creación (long), clave
+ * (UTF), longitud del valor (int) y el valor en UTF-8. Es Java puro, sin Log ni Context,
+ * para poder probar la lectura de archivos cortados a medias
+ */
+class CacheRecords {
+
+    /**
+     * Registro completo encontrado al recorrer el archivo
+     */
+    interface Visitor {
+        void onRecord(String key, long offset, long createdAt, int size);
+    }
+
+    static void write(RandomAccessFile target, long position, String key,
+                      long createdAt, byte[] value) throws IOException {
+        target.seek(position);
+        target.writeLong(createdAt);
+        target.writeUTF(key);
+        target.writeInt(value.length);
+        target.write(value);
+    }
+
+    /**
+     * Recorre los registros desde el principio y devuelve dónde termina el último completo.
+     * Un registro cuyo valor no cabe en el archivo (la app se cerró a medias) no se visita,
+     * ni nada de lo que le siga
+     */
+    static long scan(RandomAccessFile file, Visitor visitor) throws IOException {
+        long length = file.length();
+        long position = 0;
+        while (position < length) {
+            file.seek(position);
+            try {
+                long createdAt = file.readLong();
+                String key = file.readUTF();
+                int valueLength = file.readInt();
+                // skipBytes se detiene en el final del archivo: el límite se comprueba antes
+                long end = file.getFilePointer() + valueLength;
+                if (valueLength < 0 || end > length) return position;
+
+                visitor.onRecord(key, position, createdAt, (int) (end - position));
+                position = end;
+            } catch (EOFException | UTFDataFormatException e) {
+                return position;
+            }
+        }
+        return position;
+    }
+}
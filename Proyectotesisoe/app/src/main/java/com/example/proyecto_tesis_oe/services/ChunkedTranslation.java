@@ -0,0 +1,144 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.util.Log;
+import java.util.List;
+
+/**
+ * Traducción de un texto largo por trozos (TextChunker): se traducen varios a la vez, con
+ * un máximo de peticiones simultáneas, y se recomponen en el orden original. Los avances
+ * parciales muestran lo que ya llegó de cada trozo
+ */
+class ChunkedTranslation {
+    private static final String TAG = "ChunkedTranslation";
+
+    /**
+     * Traduce un trozo (con caché, memoria de segmentos y agrupación de peticiones)
+     */
+    interface PieceTranslator {
+        void translate(String text, TranslationService.TranslationCallback callback);
+    }
+
+    private final List<TextChunker.Chunk> chunks;
+    private final String[] translations;
+    private final String[] partials;
+    private final int maxParallel;
+    private final PieceTranslator translator;
+    private final TranslationService.TranslationHandle handle;
+    private final TranslationService.TranslationCallback callback;
+
+    private final long startMs = System.currentTimeMillis();
+    private long firstTokenMs = -1;
+    private int nextChunk = 0;
+    private int running = 0;
+    private int done = 0;
+    private boolean failed = false;
+
+    ChunkedTranslation(List<TextChunker.Chunk> chunks, int maxParallel, PieceTranslator translator,
+                       TranslationService.TranslationHandle handle,
+                       TranslationService.TranslationCallback callback) {
+        this.chunks = chunks;
+        this.translations = new String[chunks.size()];
+        this.partials = new String[chunks.size()];
+        this.maxParallel = Math.max(1, maxParallel);
+        this.translator = translator;
+        this.handle = handle;
+        this.callback = callback;
+    }
+
+    void start() {
+        Log.d(TAG, "Texto largo: " + chunks.size() + " trozos, hasta " + maxParallel + " a la vez");
+        launchNext();
+    }
+
+    /**
+     * Lanza trozos hasta llenar el cupo de peticiones simultáneas
+     */
+    private void launchNext() {
+        while (true) {
+            int index;
+            synchronized (this) {
+                if (failed || handle.isCancelled() || nextChunk >= chunks.size() || running >= maxParallel) return;
+                index = nextChunk++;
+                running++;
+            }
+            translator.translate(chunks.get(index).text, new PieceCallback(index));
+        }
+    }
+
+    private class PieceCallback implements TranslationService.TranslationCallback {
+        private final int index;
+
+        PieceCallback(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void onPartialTranslation(String partialText) {
+            String assembled;
+            synchronized (ChunkedTranslation.this) {
+                if (failed || translations[index] != null) return;
+                partials[index] = partialText;
+                markFirstToken();
+                assembled = assembleLocked();
+            }
+            callback.onPartialTranslation(assembled);
+        }
+
+        @Override
+        public void onServerTimings(OllamaTimings timings) {
+            callback.onServerTimings(timings);
+        }
+
+        @Override
+        public void onTextTranslated(String translatedText) {
+            String result = null;
+            String assembled;
+            long firstToken;
+            long total;
+            synchronized (ChunkedTranslation.this) {
+                if (failed) return;
+                translations[index] = translatedText;
+                partials[index] = null;
+                markFirstToken();
+                running--;
+                done++;
+                assembled = assembleLocked();
+                if (done == chunks.size()) result = assembled;
+                firstToken = firstTokenMs;
+                total = System.currentTimeMillis() - startMs;
+            }
+
+            if (result == null) {
+                callback.onPartialTranslation(assembled);
+                launchNext();
+                return;
+            }
+            Log.d(TAG, chunks.size() + " trozos traducidos en " + total + " ms");
+            callback.onTranslationStats(firstToken, total);
+            callback.onTextTranslated(result);
+        }
+
+        @Override
+        public void onError(String error) {
+            synchronized (ChunkedTranslation.this) {
+                if (failed) return;
+                failed = true;
+            }
+            Log.w(TAG, "Falló el trozo " + (index + 1) + " de " + chunks.size() + ", se cancelan los demás");
+            handle.cancel();
+            callback.onError(error);
+        }
+    }
+
+    private void markFirstToken() {
+        if (firstTokenMs < 0) firstTokenMs = System.currentTimeMillis() - startMs;
+    }
+
+    private String assembleLocked() {
+        String[] merged = new String[chunks.size()];
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = translations[i] != null ? translations[i] : partials[i];
+        }
+        return TextChunker.join(chunks, merged);
+    }
+}
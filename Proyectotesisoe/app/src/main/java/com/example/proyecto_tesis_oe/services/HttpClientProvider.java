@@ -0,0 +1,150 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.util.Log;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+
+/**
+ * Un único OkHttpClient para toda la app. Comparte el pool de conexiones, los hilos del
+ * dispatcher y los sockets keep-alive con el host de Ollama, así escaneos seguidos
+ * reutilizan la conexión TCP ya abierta. Los tiempos de espera se fijan por petición
+ */
+public class HttpClientProvider {
+    private static final String TAG = "HttpClientProvider";
+
+    // Pool: pocas conexiones (un solo host), mantenidas vivas entre escaneos
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    // Dispatcher: por servidor, los trozos de un texto largo que se traducen a la vez, una
+    // petición duplicada (hedging) y el chequeo de salud; más solo formaría cola en Ollama
+    private static final int MAX_REQUESTS = 8;
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+
+    // Tiempos base del cliente; el límite real de cada llamada se fija en la petición.
+    // La lectura es holgada porque sin streaming Ollama no envía nada hasta terminar
+    private static final long CONNECT_TIMEOUT_SECONDS = 5;
+    private static final long READ_TIMEOUT_SECONDS = 90;
+    private static final long WRITE_TIMEOUT_SECONDS = 10;
+
+    private static OkHttpClient client;
+
+    // Estadísticas
+    private static final AtomicLong callCount = new AtomicLong();
+    private static final AtomicLong failedCount = new AtomicLong();
+    private static final AtomicLong newConnectionCount = new AtomicLong();
+    private static final AtomicLong reusedConnectionCount = new AtomicLong();
+    private static final AtomicLong totalHeadersMs = new AtomicLong();
+    private static final AtomicLong totalCallMs = new AtomicLong();
+
+    public static synchronized OkHttpClient get() {
+        if (client == null) {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(MAX_REQUESTS);
+            dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+            client = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                    .dispatcher(dispatcher)
+                    .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .writeTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .retryOnConnectionFailure(true)
+                    .eventListenerFactory(call -> new StatsListener())
+                    .build();
+            Log.d(TAG, "Cliente HTTP compartido creado");
+        }
+        return client;
+    }
+
+    /**
+     * Crea la llamada con su propio límite total (conexión + envío + respuesta)
+     */
+    public static Call newCall(okhttp3.Request request, long callTimeoutMs) {
+        Call call = get().newCall(request);
+        call.timeout().timeout(callTimeoutMs, TimeUnit.MILLISECONDS);
+        return call;
+    }
+
+    public static synchronized String getStats() {
+        long calls = callCount.get();
+        long connections = newConnectionCount.get() + reusedConnectionCount.get();
+        StringBuilder sb = new StringBuilder();
+        sb.append("llamadas=").append(calls)
+                .append(" fallidas=").append(failedCount.get())
+                .append(" conexiones nuevas=").append(newConnectionCount.get())
+                .append(" reusadas=").append(reusedConnectionCount.get());
+        if (connections > 0) {
+            sb.append(" (").append(reusedConnectionCount.get() * 100 / connections).append("%)");
+        }
+        if (calls > 0) {
+            sb.append(" cabeceras prom=").append(totalHeadersMs.get() / calls).append("ms")
+                    .append(" total prom=").append(totalCallMs.get() / calls).append("ms");
+        }
+        if (client != null) {
+            sb.append(" pool=").append(client.connectionPool().connectionCount())
+                    .append(" (libres ").append(client.connectionPool().idleConnectionCount()).append(")")
+                    .append(" en curso=").append(client.dispatcher().runningCallsCount())
+                    .append(" en cola=").append(client.dispatcher().queuedCallsCount());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Mide cada llamada: si abrió conexión nueva o reutilizó una del pool,
+     * tiempo hasta las cabeceras de respuesta y tiempo total
+     */
+    private static class StatsListener extends EventListener {
+        private long startNs;
+        private boolean connected;
+
+        @Override
+        public void callStart(Call call) {
+            startNs = System.nanoTime();
+            callCount.incrementAndGet();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            connected = true;
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            if (connected) {
+                newConnectionCount.incrementAndGet();
+            } else {
+                reusedConnectionCount.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            totalHeadersMs.addAndGet(elapsedMs());
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            totalCallMs.addAndGet(elapsedMs());
+        }
+
+        @Override
+        public void callFailed(Call call, IOException e) {
+            failedCount.incrementAndGet();
+            totalCallMs.addAndGet(elapsedMs());
+        }
+
+        private long elapsedMs() {
+            return (System.nanoTime() - startNs) / 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Índice de casi-duplicados sobre los textos ya traducidos
+ * El OCR de una misma etiqueta varía entre escaneos (un carácter perdido, saltos de línea
+ * distintos, un glifo mal leído) y la clave exacta de TranslationCache falla. Aquí cada texto
+ * se reduce a trigramas de caracteres → firma MinHash → cubetas LSH; una consulta solo
+ * compara contra los candidatos de sus cubetas (sublineal en el historial) y confirma con
+ * distancia de edición antes de devolver la clave de la traducción guardada
+ */
+public class NearDuplicateIndex {
+    private static final String TAG = "NearDuplicateIndex";
+    private static final String FILE_NAME = "near_duplicates.bin";
+
+    // Trigramas de caracteres (funcionan igual para alfabeto latino y CJK)
+    private static final int SHINGLE_SIZE = 3;
+
+    // 16 bandas x 4 filas: candidatos a partir de ~50% de similitud de Jaccard
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int NUM_HASHES = BANDS * ROWS;
+
+    // Margen sobre el umbral al filtrar por la similitud estimada con MinHash
+    private static final float ESTIMATE_SLACK = 0.15f;
+
+    // Tope del historial (se conservan los más recientes); al alcanzarlo se desaloja hasta
+    // KEEP_AFTER_EVICT de una vez para no rehacer las cubetas en cada alta
+    private static final int MAX_ENTRIES = 50_000;
+    private static final int KEEP_AFTER_EVICT = MAX_ENTRIES * 3 / 4;
+
+    // Textos más largos no se indexan: el archivo los guarda con writeUTF (máx. 64 KB)
+    private static final int MAX_TEXT_CHARS = 8000;
+
+    // Similitud mínima (1 - distancia de edición normalizada) para reutilizar una traducción
+    public static final float DEFAULT_SIMILARITY_THRESHOLD = 0.9f;
+    private static volatile float similarityThreshold = DEFAULT_SIMILARITY_THRESHOLD;
+
+    // Semillas fijas: las firmas guardadas en disco deben seguir siendo válidas entre ejecuciones
+    private static final long[] SEEDS = new long[NUM_HASHES];
+
+    static {
+        long state = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            SEEDS[i] = mix64(state);
+        }
+    }
+
+    /**
+     * Coincidencia encontrada: clave de TranslationCache y similitud verificada
+     */
+    public static class Match {
+        public final String cacheKey;
+        public final float similarity;
+
+        Match(String cacheKey, float similarity) {
+            this.cacheKey = cacheKey;
+            this.similarity = similarity;
+        }
+    }
+
+    private static class Entry {
+        final String lang;
+        final String cacheKey;
+        final String text;
+        final int[] signature;
+
+        Entry(String lang, String cacheKey, String text, int[] signature) {
+            this.lang = lang;
+            this.cacheKey = cacheKey;
+            this.text = text;
+            this.signature = signature;
+        }
+    }
+
+    private static final List<Entry> entries = new ArrayList<>();
+    private static final Map<Long, List<Integer>> buckets = new HashMap<>();
+    private static final Set<String> indexedKeys = new HashSet<>();
+    private static final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private static File indexFile;
+    private static boolean loaded = false;
+
+    // Estadísticas
+    private static int queries = 0;
+    private static int hits = 0;
+    private static long candidatesChecked = 0;
+    private static int evicted = 0;
+
+    /**
+     * Carga el historial en segundo plano. Hasta que termine, las consultas no encuentran nada
+     */
+    public static synchronized void init(Context context) {
+        if (indexFile != null) return;
+        indexFile = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        ioExecutor.execute(NearDuplicateIndex::load);
+    }
+
+    public static void setSimilarityThreshold(float threshold) {
+        similarityThreshold = Math.max(0.5f, Math.min(1f, threshold));
+    }
+
+    public static float getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+
+    /**
+     * Busca un texto ya traducido casi igual (mismo idioma, similitud >= umbral)
+     */
+    public static Match findSimilar(String sourceText, String detectedLang) {
+        String text = normalize(sourceText);
+        if (text.length() < SHINGLE_SIZE) return null;
+
+        int[] signature = signature(text);
+        float threshold = similarityThreshold;
+        long start = System.currentTimeMillis();
+
+        synchronized (NearDuplicateIndex.class) {
+            if (!loaded) return null;
+            queries++;
+
+            Set<Integer> candidates = new HashSet<>();
+            for (int band = 0; band < BANDS; band++) {
+                List<Integer> bucket = buckets.get(bandKey(signature, band));
+                if (bucket != null) candidates.addAll(bucket);
+            }
+
+            Entry best = null;
+            float bestSimilarity = 0;
+            for (int id : candidates) {
+                Entry entry = entries.get(id);
+                if (!entry.lang.equals(detectedLang)) continue;
+                if (estimateJaccard(signature, entry.signature) < threshold - ESTIMATE_SLACK) continue;
+
+                candidatesChecked++;
+                float similarity = editSimilarity(text, entry.text, threshold);
+                if (similarity >= threshold && similarity > bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+
+            Log.d(TAG, "Consulta: " + candidates.size() + " candidatos de " + entries.size()
+                    + " en " + (System.currentTimeMillis() - start) + " ms"
+                    + (best != null ? " → similitud " + bestSimilarity : " → sin coincidencia"));
+
+            if (best == null) return null;
+            hits++;
+            return new Match(best.cacheKey, bestSimilarity);
+        }
+    }
+
+    /**
+     * Registra un texto recién traducido (su traducción está en TranslationCache bajo cacheKey)
+     */
+    public static void add(String sourceText, String detectedLang, String cacheKey) {
+        String text = normalize(sourceText);
+        if (text.length() < SHINGLE_SIZE || text.length() > MAX_TEXT_CHARS) return;
+
+        Entry entry = new Entry(detectedLang, cacheKey, text, signature(text));
+        synchronized (NearDuplicateIndex.class) {
+            if (!insert(entry)) return;
+        }
+        ioExecutor.execute(() -> append(entry));
+    }
+
+    public static synchronized String getStats() {
+        return "entradas=" + entries.size() + " desalojadas=" + evicted + " consultas=" + queries + " aciertos=" + hits
+                + " candidatos verificados=" + candidatesChecked + " umbral=" + similarityThreshold;
+    }
+
+    // ---- Firma ----
+
+    /**
+     * Minúsculas y todo espacio (incluidos saltos de línea) reducido a uno solo
+     */
+    static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+    }
+
+    static int[] signature(String text) {
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        for (int i = 0; i + SHINGLE_SIZE <= text.length(); i++) {
+            long shingle = 0;
+            for (int j = 0; j < SHINGLE_SIZE; j++) {
+                shingle = shingle * 31 + text.charAt(i + j);
+            }
+            for (int h = 0; h < NUM_HASHES; h++) {
+                int value = (int) (mix64(shingle ^ SEEDS[h]) >>> 33);
+                if (value < signature[h]) signature[h] = value;
+            }
+        }
+        return signature;
+    }
+
+    private static float estimateJaccard(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) equal++;
+        }
+        return (float) equal / NUM_HASHES;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int r = 0; r < ROWS; r++) {
+            key = key * 0x100000001B3L + signature[band * ROWS + r];
+        }
+        return mix64(key);
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 1 - distancia de Levenshtein / longitud mayor. Solo se calcula la banda diagonal
+     * permitida por el umbral y se corta en cuanto no puede alcanzarlo
+     */
+    static float editSimilarity(String a, String b, float threshold) {
+        int maxLength = Math.max(a.length(), b.length());
+        if (maxLength == 0) return 1f;
+        int maxDistance = (int) Math.floor((1f - threshold) * maxLength);
+        if (Math.abs(a.length() - b.length()) > maxDistance) return 0f;
+
+        int inf = maxDistance + 1;
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j <= maxDistance ? j : inf;
+
+        for (int i = 1; i <= a.length(); i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(b.length(), i + maxDistance);
+            current[0] = i <= maxDistance ? i : inf;
+            if (from > 1) current[from - 1] = inf;
+
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j] + 1, current[j - 1] + 1));
+                current[j] = Math.min(value, inf);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < b.length()) current[to + 1] = inf;
+            if (rowMin > maxDistance) return 0f;
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        int distance = previous[b.length()];
+        return distance > maxDistance ? 0f : 1f - (float) distance / maxLength;
+    }
+
+    // ---- Índice y disco ----
+
+    /**
+     * Añade una entrada si su clave no estaba; con el historial lleno desaloja antes las más viejas
+     */
+    private static boolean insert(Entry entry) {
+        if (indexedKeys.contains(entry.cacheKey)) return false;
+        if (entries.size() >= MAX_ENTRIES) evictOldest();
+
+        indexedKeys.add(entry.cacheKey);
+        int id = entries.size();
+        entries.add(entry);
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(entry.signature, band);
+            List<Integer> bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<>(2);
+                buckets.put(key, bucket);
+            }
+            bucket.add(id);
+        }
+        return true;
+    }
+
+    /**
+     * Conserva las KEEP_AFTER_EVICT entradas más recientes y rehace cubetas y claves (los ids
+     * de las cubetas son posiciones en entries). El archivo se reescribe para que tampoco crezca;
+     * durante la carga no, porque aún no tiene todo el historial (se recorta al cargar)
+     */
+    private static void evictOldest() {
+        List<Entry> kept = new ArrayList<>(entries.subList(entries.size() - KEEP_AFTER_EVICT, entries.size()));
+        evicted += entries.size() - kept.size();
+        entries.clear();
+        buckets.clear();
+        indexedKeys.clear();
+        for (Entry entry : kept) insert(entry);
+
+        if (loaded) ioExecutor.execute(() -> rewrite(kept));
+        Log.d(TAG, "Historial lleno: se conservan las " + kept.size() + " entradas más recientes");
+    }
+
+    private static void load() {
+        long start = System.currentTimeMillis();
+        List<Entry> stored = new ArrayList<>();
+
+        if (indexFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+                while (true) {
+                    String lang = in.readUTF();
+                    String cacheKey = in.readUTF();
+                    String text = in.readUTF();
+                    int[] signature = new int[NUM_HASHES];
+                    for (int i = 0; i < NUM_HASHES; i++) signature[i] = in.readInt();
+                    stored.add(new Entry(lang, cacheKey, text, signature));
+                }
+            } catch (EOFException e) {
+                // Fin del archivo (o última escritura incompleta)
+            } catch (IOException e) {
+                Log.e(TAG, "Error leyendo el índice de casi-duplicados", e);
+            }
+        }
+
+        // Solo los más recientes si el historial creció demasiado
+        boolean trimmed = stored.size() > MAX_ENTRIES;
+        List<Entry> kept = trimmed ? stored.subList(stored.size() - MAX_ENTRIES, stored.size()) : stored;
+
+        synchronized (NearDuplicateIndex.class) {
+            // Las entradas añadidas antes de terminar la carga van después de las guardadas
+            List<Entry> added = new ArrayList<>(entries);
+            entries.clear();
+            buckets.clear();
+            indexedKeys.clear();
+            for (Entry entry : kept) insert(entry);
+            for (Entry entry : added) insert(entry);
+            loaded = true;
+        }
+
+        if (trimmed) {
+            rewrite(new ArrayList<>(kept));
+        }
+        Log.d(TAG, "Índice cargado: " + kept.size() + " textos en " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private static void append(Entry entry) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)))) {
+            write(out, entry);
+        } catch (IOException e) {
+            Log.e(TAG, "Error guardando en el índice de casi-duplicados", e);
+        }
+    }
+
+    private static void rewrite(List<Entry> kept) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, false)))) {
+            for (Entry entry : kept) write(out, entry);
+        } catch (IOException e) {
+            Log.e(TAG, "Error reescribiendo el índice de casi-duplicados", e);
+        }
+    }
+
+    private static void write(DataOutputStream out, Entry entry) throws IOException {
+        out.writeUTF(entry.lang);
+        out.writeUTF(entry.cacheKey);
+        out.writeUTF(entry.text);
+        for (int value : entry.signature) out.writeInt(value);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.proyecto_tesis_oe.services;
+
+/**
+ * Puntúa el resultado de un reconocedor para elegir el mejor entre varios scripts
+ * Combina cobertura del script, número de bloques y confianza de los elementos
+ */
+public class OcrResultScorer {
+
+    // Longitud mínima que el flujo original consideraba "texto suficiente"
+    private static final int MIN_USEFUL_LENGTH = 15;
+
+    // Número de bloques a partir del cual no se suma más puntuación
+    private static final int FULL_BLOCK_COUNT = 3;
+
+    // Con esta puntuación se acepta el resultado sin esperar a los demás reconocedores
+    public static final float EARLY_ACCEPT_SCORE = 0.85f;
+
+    /**
+     * Puntuación en [0, 1]; mayor es mejor
+     */
+    public static float score(RecognizerManager.Script script, String text, int blockCount, float meanConfidence) {
+        if (text == null) return 0f;
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) return 0f;
+
+        float coverage = scriptCoverage(script, trimmed);
+        float lengthFactor = Math.min(1f, (float) trimmed.length() / MIN_USEFUL_LENGTH);
+        float blockFactor = Math.min(1f, (float) blockCount / FULL_BLOCK_COUNT);
+        float confidence = Math.max(0f, Math.min(1f, meanConfidence));
+
+        return confidence
+                * (0.6f + 0.4f * coverage)
+                * (0.7f + 0.3f * blockFactor)
+                * lengthFactor;
+    }
+
+    /**
+     * Fracción de letras que pertenecen al script nativo del reconocedor.
+     * Los reconocedores CJK también leen Latín, así que esas letras cuentan a medias
+     */
+    public static float scriptCoverage(RecognizerManager.Script script, String text) {
+        TextAnalyzer.Result analysis = TextAnalyzer.analyze(text);
+        int letters = analysis.latin + analysis.asian();
+        if (letters == 0) return 0f;
+
+        float matched;
+        switch (script) {
+            case CHINESE:
+                matched = analysis.han + 0.5f * analysis.latin;
+                break;
+            case KOREAN:
+                matched = analysis.hangul + 0.5f * analysis.latin;
+                break;
+            case JAPANESE:
+                // El japonés mezcla kana y kanji; los kanji solos también son chino
+                matched = analysis.kana + 0.75f * analysis.han + 0.5f * analysis.latin;
+                break;
+            case LATIN:
+            default:
+                matched = analysis.latin;
+                break;
+        }
+        return matched / letters;
+    }
+}
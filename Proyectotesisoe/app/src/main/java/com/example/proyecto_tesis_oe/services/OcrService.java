@@ -1,22 +1,64 @@
 package com.example.proyecto_tesis_oe.services;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.util.Log;
 import com.example.proyecto_tesis_oe.ImagePreprocessor;
+import com.example.proyecto_tesis_oe.LocalThresholder;
+import com.example.proyecto_tesis_oe.LumaFrame;
+import com.google.android.gms.tasks.Task;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.text.Text;
-import com.google.mlkit.vision.text.TextRecognition;
-import com.google.mlkit.vision.text.TextRecognizer;
-import com.google.mlkit.vision.text.chinese.ChineseTextRecognizerOptions;
-import com.google.mlkit.vision.text.korean.KoreanTextRecognizerOptions;
-import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OcrService {
     private static final String TAG = "OcrService";
 
+    /**
+     * SEQUENTIAL: Latín → Chino → Coreano encadenados (flujo original)
+     * CONCURRENT: todos los reconocedores habilitados a la vez, gana el de mejor puntuación
+     * ROUTED: un reconocedor asiático hace de sonda; si lee el script de la etiqueta (el suyo o
+     * latín) su pasada es la definitiva y si no, corre el elegido por ScriptRouter. Los bloques
+     * dudosos se releen recortados con otro (BlockReOcr) y solo si no encontró nada se prueban
+     * los demás completos
+     */
+    public enum OcrMode { SEQUENTIAL, CONCURRENT, ROUTED }
+
+    // Puntuación con la que el modo ROUTED no ejecuta reconocedores de respaldo
+    private static final float ROUTED_ACCEPT_SCORE = 0.6f;
+
+    // Tiempo de OCR por megapíxel (media móvil) para estimar lo que ahorra el recorte de texto
+    private static final float MS_PER_MEGAPIXEL_ALPHA = 0.3f;
+    private static float msPerMegapixel = -1f;
+    private static long estimatedSavedMs = 0;
+
+    private static volatile OcrMode mode = OcrMode.ROUTED;
+    private static volatile Set<RecognizerManager.Script> enabledScripts =
+            EnumSet.allOf(RecognizerManager.Script.class);
+
+    public static void setMode(OcrMode newMode) {
+        mode = newMode;
+    }
+
+    public static OcrMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Reconocedores que participan en el modo CONCURRENT
+     */
+    public static void setEnabledScripts(Set<RecognizerManager.Script> scripts) {
+        enabledScripts = scripts.isEmpty()
+                ? EnumSet.allOf(RecognizerManager.Script.class)
+                : EnumSet.copyOf(scripts);
+    }
+
     public interface OcrCallback {
         void onTextRecognized(String text);
         default void onError(Exception e) {
@@ -25,23 +67,84 @@ public class OcrService {
     }
 
     /**
-     * Reconoce texto en múltiples idiomas (Inglés/Latín, Chino, Coreano) con chaining
-     * Ahora aplica preprocesamiento previo al OCR
+     * Reconoce el texto de una imagen en disco: la preprocesa a luminancia y sigue como
+     * recognizeFrame, con el modo de OCR configurado
+     */
+    public static void recognizeText(Context context, String imagePath, OcrCallback resultCallback) {
+        recognizeText(context, imagePath, ImagePreprocessor.DEFAULT_THRESHOLD, resultCallback);
+    }
+
+    /**
+     * Igual que recognizeText pero con el método de binarización elegido para este escaneo
+     */
+    public static void recognizeText(Context context, String imagePath, LocalThresholder.Method thresholdMethod,
+                                     OcrCallback resultCallback) {
+        // 1. Preprocesar imagen a un buffer de luminancia de 8 bits
+        Log.d(TAG, "Aplicando preprocesamiento a: " + imagePath);
+        LumaFrame frame = ImagePreprocessor.preprocessToLuma(imagePath, thresholdMethod);
+        if (frame == null) {
+            Log.e(TAG, "Fallo en preprocesamiento de imagen");
+            resultCallback.onError(new Exception("Preprocesamiento fallido"));
+            return;
+        }
+
+        recognizeFrame(context, frame, resultCallback);
+    }
+
+    /**
+     * Reconoce texto en un frame ya preprocesado (por ejemplo la captura en memoria).
+     * OcrService pasa a ser dueño del frame y lo recicla al terminar
      */
-    public static void recognizeText(Context context, String imagePath, OcrCallback callback) {
+    public static void recognizeFrame(Context context, LumaFrame frame, OcrCallback resultCallback) {
+        long ocrStart = System.currentTimeMillis();
+        int pixels = frame.lumaSize();
+        int uncroppedPixels = frame.uncroppedPixels;
+
+        // La historia del enrutador de scripts solo la alimentan las capturas (ScanJob), no el
+        // modo en vivo, que pasaría por aquí decenas de veces en unos segundos
+        OcrCallback callback = new OcrCallback() {
+            @Override
+            public void onTextRecognized(String text) {
+                reportTiming(pixels, uncroppedPixels, System.currentTimeMillis() - ocrStart);
+                resultCallback.onTextRecognized(text);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                resultCallback.onError(e);
+            }
+        };
+
         try {
-            // 1. Preprocesar imagen para mejorar OCR
-            Log.d(TAG, "Aplicando preprocesamiento a: " + imagePath);
-            Bitmap processedBitmap = ImagePreprocessor.preprocessForOCR(imagePath);
-            if (processedBitmap == null) {
-                Log.e(TAG, "Fallo en preprocesamiento de imagen");
-                callback.onError(new Exception("Preprocesamiento fallido"));
+            // 2. Crear InputImage desde el buffer NV21 (sin bitmaps intermedios)
+            InputImage image = toInputImage(frame);
+            Log.d(TAG, "Imagen procesada: " + frame.width + "x" + frame.height + " (giro " + frame.rotationDegrees
+                    + "°, inclinación corregida " + frame.skewDegrees + "°)");
+            Log.d(TAG, "Reconocedores: " + RecognizerManager.getStats());
+
+            if (mode == OcrMode.CONCURRENT) {
+                recognizeConcurrently(image, frame, callback);
+                return;
+            }
+            if (mode == OcrMode.ROUTED) {
+                recognizeRouted(image, frame, callback);
                 return;
             }
 
-            // 2. Crear InputImage desde el Bitmap procesado
-            InputImage image = InputImage.fromBitmap(processedBitmap, 0);
-            Log.d(TAG, "Imagen procesada: " + processedBitmap.getWidth() + "x" + processedBitmap.getHeight());
+            // Modo secuencial: el frame se libera cuando termina la última pasada
+            OcrCallback chainCallback = new OcrCallback() {
+                @Override
+                public void onTextRecognized(String text) {
+                    frame.recycle();
+                    callback.onTextRecognized(text);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    frame.recycle();
+                    callback.onError(e);
+                }
+            };
 
             // Intento 1: Latín/Inglés (base y rápido)
             recognizeWithLatinScript(image, new OcrCallback() {
@@ -52,8 +155,7 @@ public class OcrService {
                         Log.d(TAG, "Texto detectado con Latín/Inglés: " + cleanedText.length() + " caracteres");
                         String detectedLang = detectLanguage(cleanedText);
                         Log.d(TAG, "Idioma inferido: " + detectedLang);
-                        callback.onTextRecognized(cleanedText);
-                        processedBitmap.recycle(); // Liberar memoria
+                        chainCallback.onTextRecognized(cleanedText);
                     } else {
                         // Intento 2: Chino
                         Log.d(TAG, "Texto Latín insuficiente, intentando Chino...");
@@ -65,21 +167,18 @@ public class OcrService {
                                     Log.d(TAG, "Texto detectado con Chino: " + cleanedText.length() + " caracteres");
                                     String detectedLang = detectLanguage(cleanedText);
                                     Log.d(TAG, "Idioma inferido: " + detectedLang);
-                                    callback.onTextRecognized(cleanedText);
-                                    processedBitmap.recycle(); // Liberar memoria
+                                    chainCallback.onTextRecognized(cleanedText);
                                 } else {
                                     // Intento 3: Coreano
                                     Log.d(TAG, "Texto Chino insuficiente, intentando Coreano...");
-                                    recognizeWithKoreanScript(image, callback);
-                                    processedBitmap.recycle(); // Liberar memoria
+                                    recognizeWithKoreanScript(image, chainCallback);
                                 }
                             }
 
                             @Override
                             public void onError(Exception e) {
                                 Log.w(TAG, "Error en Chino, intentando Coreano...");
-                                recognizeWithKoreanScript(image, callback);
-                                processedBitmap.recycle(); // Liberar memoria
+                                recognizeWithKoreanScript(image, chainCallback);
                             }
                         });
                     }
@@ -96,20 +195,17 @@ public class OcrService {
                                 Log.d(TAG, "Texto detectado con Chino: " + cleanedText.length() + " caracteres");
                                 String detectedLang = detectLanguage(cleanedText);
                                 Log.d(TAG, "Idioma inferido: " + detectedLang);
-                                callback.onTextRecognized(cleanedText);
-                                processedBitmap.recycle(); // Liberar memoria
+                                chainCallback.onTextRecognized(cleanedText);
                             } else {
                                 Log.d(TAG, "Texto Chino insuficiente, intentando Coreano...");
-                                recognizeWithKoreanScript(image, callback);
-                                processedBitmap.recycle(); // Liberar memoria
+                                recognizeWithKoreanScript(image, chainCallback);
                             }
                         }
 
                         @Override
                         public void onError(Exception e) {
                             Log.w(TAG, "Error en Chino, intentando Coreano...");
-                            recognizeWithKoreanScript(image, callback);
-                            processedBitmap.recycle(); // Liberar memoria
+                            recognizeWithKoreanScript(image, chainCallback);
                         }
                     });
                 }
@@ -122,22 +218,267 @@ public class OcrService {
     }
 
     /**
-     * Reconocedor para Latín/Inglés
+     * Registra el tiempo de OCR por megapíxel y, si el frame se recortó a la región con
+     * texto, estima el tiempo que se ahorró frente al frame completo
      */
-    private static void recognizeWithLatinScript(InputImage image, OcrCallback callback) {
-        TextRecognizer recognizer = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
+    private static synchronized void reportTiming(int pixels, int uncroppedPixels, long elapsedMs) {
+        float megapixels = pixels / 1_000_000f;
+        if (megapixels <= 0f) return;
+        float sample = elapsedMs / megapixels;
+        msPerMegapixel = msPerMegapixel < 0 ? sample
+                : MS_PER_MEGAPIXEL_ALPHA * sample + (1 - MS_PER_MEGAPIXEL_ALPHA) * msPerMegapixel;
+
+        if (uncroppedPixels <= pixels) {
+            Log.d(TAG, "OCR en " + elapsedMs + " ms sobre " + pixels + " px");
+            return;
+        }
+        long savedMs = Math.round((uncroppedPixels - pixels) / 1_000_000f * msPerMegapixel);
+        estimatedSavedMs += savedMs;
+        Log.d(TAG, "OCR en " + elapsedMs + " ms sobre " + pixels + " px; recorte de texto: -"
+                + Math.round(100f * (uncroppedPixels - pixels) / uncroppedPixels) + "% píxeles, ~"
+                + savedMs + " ms ahorrados (total ~" + estimatedSavedMs + " ms)");
+    }
+
+    /**
+     * Envía la misma imagen a todos los reconocedores habilitados a la vez.
+     * Entrega el primer resultado que supere EARLY_ACCEPT_SCORE o, si ninguno lo hace,
+     * el de mejor puntuación cuando terminan todos. Las tareas de ML Kit no se pueden
+     * cancelar, así que los resultados tardíos simplemente se ignoran
+     */
+    private static void recognizeConcurrently(InputImage image, LumaFrame frame, OcrCallback callback) {
+        Set<RecognizerManager.Script> scripts = enabledScripts;
+        long start = System.currentTimeMillis();
+
+        AtomicInteger pending = new AtomicInteger(scripts.size());
+        AtomicBoolean delivered = new AtomicBoolean(false);
+        Object lock = new Object();
+        String[] bestText = {null};
+        float[] bestScore = {-1f};
+        RecognizerManager.Script[] bestScript = {null};
+        Exception[] lastError = {null};
+
+        for (RecognizerManager.Script script : scripts) {
+            RecognizerManager.process(script, image)
+                    .addOnCompleteListener(task -> {
+                        if (task.isSuccessful()) {
+                            Text visionText = task.getResult();
+                            String cleanedText = cleanDetectedText(visionText.getText());
+                            float score = scoreResult(script, visionText, cleanedText);
+                            Log.d(TAG, script.label + " - puntuación " + score + " ("
+                                    + (System.currentTimeMillis() - start) + " ms)");
+
+                            synchronized (lock) {
+                                if (score > bestScore[0]) {
+                                    bestScore[0] = score;
+                                    bestText[0] = cleanedText;
+                                    bestScript[0] = script;
+                                }
+                            }
+
+                            if (score >= OcrResultScorer.EARLY_ACCEPT_SCORE
+                                    && delivered.compareAndSet(false, true)) {
+                                deliverWinner(script, cleanedText, score, start, callback);
+                            }
+                        } else {
+                            Log.w(TAG, "Error en " + script.label, task.getException());
+                            synchronized (lock) {
+                                lastError[0] = task.getException();
+                            }
+                        }
+
+                        if (pending.decrementAndGet() == 0) {
+                            // El buffer solo se libera cuando ningún reconocedor lo está leyendo
+                            frame.recycle();
+
+                            if (delivered.compareAndSet(false, true)) {
+                                synchronized (lock) {
+                                    if (bestScript[0] == null) {
+                                        callback.onError(lastError[0] != null
+                                                ? lastError[0] : new Exception("OCR sin resultados"));
+                                    } else {
+                                        deliverWinner(bestScript[0], bestText[0], bestScore[0], start, callback);
+                                    }
+                                }
+                            }
+                        }
+                    });
+        }
+    }
+
+    private static void deliverWinner(RecognizerManager.Script script, String text, float score,
+                                      long start, OcrCallback callback) {
+        Log.d(TAG, "Ganador: " + script.label + " (puntuación " + score + ", "
+                + (System.currentTimeMillis() - start) + " ms)");
+        if (text == null || text.isEmpty()) {
+            Log.w(TAG, "No se detectó texto en ningún idioma");
+            callback.onTextRecognized("");
+            return;
+        }
+        Log.d(TAG, "Idioma inferido: " + detectLanguage(text));
+        callback.onTextRecognized(text);
+    }
 
-        recognizer.process(image)
+    /**
+     * Sonda a resolución completa con el reconocedor asiático de ScriptRouter.probeScript.
+     * Si el script elegido es uno que la sonda lee (el suyo o latín), la sonda es la pasada
+     * definitiva y no se repite; si no, su resultado queda como candidato y corre el elegido.
+     * Los bloques dudosos se releen recortados; los de respaldo a imagen completa solo corren
+     * si no encontró ningún bloque, y mientras la puntuación quede por debajo de
+     * ROUTED_ACCEPT_SCORE (nunca uno que la sonda ya lee)
+     */
+    private static void recognizeRouted(InputImage image, LumaFrame frame, OcrCallback callback) {
+        List<RecognizerManager.Script> ranking = ScriptRouter.rankScripts();
+        RecognizerManager.Script probeScript = ScriptRouter.probeScript();
+        long start = System.currentTimeMillis();
+
+        RecognizerManager.process(probeScript, image)
+                .addOnCompleteListener(task -> {
+                    if (!task.isSuccessful()) {
+                        Log.w(TAG, "Error en la sonda con " + probeScript.label, task.getException());
+                        List<RecognizerManager.Script> order = new ArrayList<>(ranking);
+                        order.remove(probeScript);
+                        runRoutedPass(image, frame, order, 0, null, -1f, null, start, callback);
+                        return;
+                    }
+
+                    Text probe = task.getResult();
+                    RecognizerManager.Script chosen = ScriptRouter.chooseFromProbe(probeScript, probe.getText(),
+                            meanConfidence(probe), ranking);
+                    boolean reuse = ScriptRouter.canRead(probeScript, chosen);
+                    Log.d(TAG, "Sonda con " + probeScript.label + " → " + chosen.label
+                            + (reuse ? " (se usa la sonda)" : "") + " (" + (System.currentTimeMillis() - start) + " ms)");
+
+                    // Los respaldos que la sonda ya lee no aportarían nada
+                    List<RecognizerManager.Script> order = new ArrayList<>();
+                    if (reuse) order.add(probeScript);
+                    for (RecognizerManager.Script script : ScriptRouter.executionOrder(chosen, ranking)) {
+                        if (!ScriptRouter.canRead(probeScript, script)) order.add(script);
+                    }
+
+                    if (reuse) {
+                        onRoutedPass(task, image, frame, order, 0, null, -1f, null, start, callback);
+                    } else {
+                        String probeText = cleanDetectedText(probe.getText());
+                        runRoutedPass(image, frame, order, 0, probeScript,
+                                scoreResult(probeScript, probe, probeText), probeText, start, callback);
+                    }
+                });
+    }
+
+    private static void runRoutedPass(InputImage image, LumaFrame frame,
+                                      List<RecognizerManager.Script> order, int index,
+                                      RecognizerManager.Script bestScript, float bestScore, String bestText,
+                                      long start, OcrCallback callback) {
+        RecognizerManager.process(order.get(index), image)
+                .addOnCompleteListener(task -> onRoutedPass(task, image, frame, order, index,
+                        bestScript, bestScore, bestText, start, callback));
+    }
+
+    /**
+     * Resultado de la pasada order[index] del modo ROUTED
+     */
+    private static void onRoutedPass(Task<Text> task, InputImage image, LumaFrame frame,
+                                     List<RecognizerManager.Script> order, int index,
+                                     RecognizerManager.Script bestScript, float bestScore, String bestText,
+                                     long start, OcrCallback callback) {
+        RecognizerManager.Script script = order.get(index);
+        RecognizerManager.Script winner = bestScript;
+        float winnerScore = bestScore;
+        String winnerText = bestText;
+
+        if (task.isSuccessful() && index == 0) {
+            // El reconocedor elegido encontró texto: en vez de repetir la imagen
+            // completa con otros, solo se releen los bloques dudosos
+            List<BlockReOcr.Piece> pieces = BlockReOcr.pieces(task.getResult(), script);
+            if (!pieces.isEmpty()) {
+                BlockReOcr.refine(frame, pieces, order, (mergedText, confidence) -> {
+                    float score = OcrResultScorer.score(script, mergedText, pieces.size(), confidence);
+                    deliverWinner(script, mergedText, score, start, callback);
+                });
+                frame.recycle();
+                return;
+            }
+        }
+
+        if (task.isSuccessful()) {
+            Text visionText = task.getResult();
+            String cleanedText = cleanDetectedText(visionText.getText());
+            float score = scoreResult(script, visionText, cleanedText);
+            Log.d(TAG, script.label + " - puntuación " + score);
+            if (score > winnerScore) {
+                winner = script;
+                winnerScore = score;
+                winnerText = cleanedText;
+            }
+        } else {
+            Log.w(TAG, "Error en " + script.label, task.getException());
+        }
+
+        boolean last = index == order.size() - 1;
+        if (winnerScore >= ROUTED_ACCEPT_SCORE || last) {
+            frame.recycle();
+            if (winner == null) {
+                callback.onError(task.getException() != null
+                        ? task.getException() : new Exception("OCR sin resultados"));
+            } else {
+                Log.d(TAG, "Pasadas ejecutadas: " + (index + 1) + "/" + order.size());
+                deliverWinner(winner, winnerText, winnerScore, start, callback);
+            }
+            return;
+        }
+
+        Log.d(TAG, "Confianza baja, respaldo con " + order.get(index + 1).label);
+        runRoutedPass(image, frame, order, index + 1, winner, winnerScore, winnerText, start, callback);
+    }
+
+    /**
+     * Envuelve el buffer NV21 del frame sin copiarlo
+     */
+    static InputImage toInputImage(LumaFrame frame) {
+        return InputImage.fromByteArray(frame.data, frame.width, frame.height, 0, InputImage.IMAGE_FORMAT_NV21);
+    }
+
+    /**
+     * Extrae bloques y confianza media del resultado estructurado y lo puntúa
+     */
+    private static float scoreResult(RecognizerManager.Script script, Text visionText, String cleanedText) {
+        int blockCount = visionText.getTextBlocks().size();
+        return OcrResultScorer.score(script, cleanedText, blockCount, meanConfidence(visionText));
+    }
+
+    /**
+     * Confianza media de los elementos, ponderada por su longitud
+     */
+    static float meanConfidence(Text visionText) {
+        float confidenceSum = 0f;
+        int weight = 0;
+
+        for (Text.TextBlock block : visionText.getTextBlocks()) {
+            for (Text.Line line : block.getLines()) {
+                for (Text.Element element : line.getElements()) {
+                    int length = element.getText().length();
+                    confidenceSum += element.getConfidence() * length;
+                    weight += length;
+                }
+            }
+        }
+
+        return weight == 0 ? 0f : confidenceSum / weight;
+    }
+
+    /**
+     * Reconocedor para Latín/Inglés (instancia compartida de RecognizerManager, no se cierra)
+     */
+    private static void recognizeWithLatinScript(InputImage image, OcrCallback callback) {
+        RecognizerManager.process(RecognizerManager.Script.LATIN, image)
                 .addOnSuccessListener(visionText -> {
                     String text = visionText.getText();
                     Log.d(TAG, "Latín - Texto detectado: " + (text != null ? text.length() : 0) + " chars");
                     callback.onTextRecognized(text != null ? text : "");
-                    recognizer.close();
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error en Latín", e);
                     callback.onError(e);
-                    recognizer.close();
                 });
     }
 
@@ -145,19 +486,15 @@ public class OcrService {
      * Reconocedor para Chino
      */
     private static void recognizeWithChineseScript(InputImage image, OcrCallback callback) {
-        TextRecognizer recognizer = TextRecognition.getClient(new ChineseTextRecognizerOptions.Builder().build());
-
-        recognizer.process(image)
+        RecognizerManager.process(RecognizerManager.Script.CHINESE, image)
                 .addOnSuccessListener(visionText -> {
                     String text = visionText.getText();
                     Log.d(TAG, "Chino - Texto detectado: " + (text != null ? text.length() : 0) + " chars");
                     callback.onTextRecognized(text != null ? text : "");
-                    recognizer.close();
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error en Chino", e);
                     callback.onError(e);
-                    recognizer.close();
                 });
     }
 
@@ -165,9 +502,7 @@ public class OcrService {
      * Reconocedor para Coreano (nuevo)
      */
     private static void recognizeWithKoreanScript(InputImage image, OcrCallback callback) {
-        TextRecognizer recognizer = TextRecognition.getClient(new KoreanTextRecognizerOptions.Builder().build());
-
-        recognizer.process(image)
+        RecognizerManager.process(RecognizerManager.Script.KOREAN, image)
                 .addOnSuccessListener(visionText -> {
                     String text = visionText.getText();
                     Log.d(TAG, "Coreano - Texto detectado: " + (text != null ? text.length() : 0) + " chars");
@@ -181,91 +516,46 @@ public class OcrService {
                         Log.d(TAG, "Idioma inferido: " + detectedLang);
                         callback.onTextRecognized(cleanedText);
                     }
-                    recognizer.close();
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error en Coreano", e);
                     callback.onError(e);
-                    recognizer.close();
                 });
     }
 
     /**
-     * Limpia y normaliza el texto detectado
+     * Limpia y normaliza el texto detectado (ver TextAnalyzer)
      */
     private static String cleanDetectedText(String text) {
-        if (text == null) return null;
-
-        // 1. Eliminar espacios en blanco innecesarios
-        text = text.trim();
-
-        // 2. Reemplazar múltiples espacios/retornos de carro por un solo espacio
-        text = text.replaceAll("\\s+", " ");
-
-        // 3. Eliminar caracteres no imprimibles o de control
-        text = text.replaceAll("[\\p{Cntrl}&&[^\r\n\t]]", "");
-
-        // 4. Eliminar cadenas de caracteres extraños repetidos (como "---", "///")
-        text = text.replaceAll("([\\-\\./])\\1{2,}", "$1");
-
-        // 5. Limpiar líneas vacías sobrantes
-        text = text.replaceAll("\\n\\s*\\n", "\n");
-
-        return text;
+        return TextAnalyzer.normalize(text);
     }
 
     /**
      * Detecta si el texto contiene caracteres asiáticos (Chino/Japonés/Coreano)
      */
     public static boolean containsAsianCharacters(String text) {
-        if (text == null) return false;
-        for (char c : text.toCharArray()) {
-            if ((c >= 0x4E00 && c <= 0x9FFF) ||  // CJK (Chino/Japonés)
-                    (c >= 0x3040 && c <= 0x309F) ||  // Hiragana
-                    (c >= 0x30A0 && c <= 0x30FF) ||  // Katakana
-                    (c >= 0xAC00 && c <= 0xD7AF)) {  // Hangul (Coreano)
-                return true;
-            }
-        }
-        return false;
+        return text != null && TextAnalyzer.analyze(text).containsAsian();
     }
 
     /**
      * Detecta específicamente Coreano (solo Hangul)
      */
     public static boolean isKorean(String text) {
-        if (text == null) return false;
-        boolean hasHangul = false;
-        boolean hasOtherAsian = false;
-        for (char c : text.toCharArray()) {
-            if (c >= 0xAC00 && c <= 0xD7AF) {  // Hangul
-                hasHangul = true;
-            } else if ((c >= 0x4E00 && c <= 0x9FFF) ||  // CJK
-                    (c >= 0x3040 && c <= 0x309F) ||  // Hiragana
-                    (c >= 0x30A0 && c <= 0x30FF)) {  // Katakana
-                hasOtherAsian = true;
-            }
-        }
-        return hasHangul && !hasOtherAsian;
+        return text != null && TextAnalyzer.analyze(text).isKorean();
     }
 
     /**
      * Detecta específicamente Chino (solo CJK)
      */
     public static boolean isChinese(String text) {
-        if (text == null) return false;
-        boolean hasCJK = false;
-        boolean hasOther = false;
-        for (char c : text.toCharArray()) {
-            if (c >= 0x4E00 && c <= 0x9FFF) {  // CJK
-                hasCJK = true;
-            } else if ((c >= 0x3040 && c <= 0x309F) ||  // Hiragana
-                    (c >= 0x30A0 && c <= 0x30FF) ||  // Katakana
-                    (c >= 0xAC00 && c <= 0xD7AF)) {  // Hangul
-                hasOther = true;
-            }
-        }
-        return hasCJK && !hasOther;
+        return text != null && TextAnalyzer.analyze(text).isChinese();
+    }
+
+    /**
+     * Detecta Japonés (kana, con o sin kanji, sin Hangul)
+     */
+    public static boolean isJapanese(String text) {
+        return text != null && TextAnalyzer.analyze(text).isJapanese();
     }
 
     /**
@@ -273,26 +563,6 @@ public class OcrService {
      */
     public static String detectLanguage(String text) {
         if (text == null || text.trim().isEmpty()) return "unknown";
-
-        boolean hasLatinOnly = true;
-        boolean isAsian = containsAsianCharacters(text);
-
-        for (char c : text.toCharArray()) {
-            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') ||
-                    (c >= '0' && c <= '9') || (c == ' ' || c == '.' || c == ',' || c == '-' || c == '/' || c == '\n'))) {
-                hasLatinOnly = false;
-            }
-        }
-
-        if (hasLatinOnly && !isAsian) {
-            return "en";  // Inglés/Latín
-        } else if (isKorean(text)) {
-            return "ko";  // Coreano
-        } else if (isChinese(text)) {
-            return "zh";  // Chino
-        } else if (isAsian) {
-            return "mixed_asian";
-        }
-        return "unknown";
+        return TextAnalyzer.analyze(text).language();
     }
-}
\ No newline at end of file
+}
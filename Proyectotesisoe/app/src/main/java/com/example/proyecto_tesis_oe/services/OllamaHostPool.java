@@ -0,0 +1,312 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servidores de Ollama disponibles para traducir
+ * - Lista configurable (SharedPreferences), por defecto la PC del laboratorio
+ * - Monitor de salud sobre checkOllamaConnection (/api/tags), solo mientras hay una
+ *   pantalla visible (startMonitor/stopMonitor)
+ * - Reparto ponderado por latencia observada; los que fallan quedan en espera con
+ *   backoff exponencial
+ * - p95 por servidor para decidir cuándo duplicar una petición lenta en otro (hedging)
+ */
+public class OllamaHostPool {
+    private static final String TAG = "OllamaHostPool";
+    private static final String PREFS_NAME = "ollama_hosts";
+    private static final String KEY_HOSTS = "hosts";
+    private static final String KEY_HEDGING = "hedging";
+
+    // IP confirmada para tu PC en red local (puerto 11434 por defecto de Ollama)
+    // Para emulador Android: usa "http://10.0.2.2:11434"
+    public static final String DEFAULT_HOST = "http://192.168.18.38:11434";
+
+    // Monitor de salud
+    private static final long HEALTH_CHECK_INTERVAL_MS = 30_000;
+
+    // Backoff tras fallos consecutivos: 2 s, 4 s, 8 s... hasta 5 min
+    private static final long BACKOFF_BASE_MS = 2_000;
+    private static final long BACKOFF_MAX_MS = 5 * 60_000;
+
+    // Latencia supuesta de un servidor sin historial y peso de cada muestra nueva (EWMA)
+    private static final long DEFAULT_LATENCY_MS = 3_000;
+    private static final double LATENCY_ALPHA = 0.3;
+
+    // Muestras para el p95 y mínimo de muestras antes de usarlo
+    private static final int LATENCY_WINDOW = 50;
+    private static final int MIN_SAMPLES_FOR_P95 = 10;
+    private static final long HEDGE_MIN_DELAY_MS = 500;
+
+    /**
+     * Estado de un servidor
+     */
+    public static class Host {
+        public final String baseUrl;
+        private double latencyEwmaMs = -1;
+        private final long[] samples = new long[LATENCY_WINDOW];
+        private int sampleCount = 0;
+        private int consecutiveFailures = 0;
+        private long backoffUntil = 0;
+        private int requests = 0;
+        private int failures = 0;
+
+        Host(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String generateUrl() {
+            return baseUrl + "/api/generate";
+        }
+
+        public String tagsUrl() {
+            return baseUrl + "/api/tags";
+        }
+
+        synchronized boolean isAvailable(long now) {
+            return now >= backoffUntil;
+        }
+
+        synchronized double expectedLatencyMs() {
+            return latencyEwmaMs > 0 ? latencyEwmaMs : DEFAULT_LATENCY_MS;
+        }
+
+        /**
+         * Respuesta correcta; latencyMs < 0 si no debe contar como muestra (chequeo de salud)
+         */
+        synchronized void recordSuccess(long latencyMs) {
+            consecutiveFailures = 0;
+            backoffUntil = 0;
+            if (latencyMs < 0) return;
+
+            requests++;
+            latencyEwmaMs = latencyEwmaMs < 0 ? latencyMs
+                    : LATENCY_ALPHA * latencyMs + (1 - LATENCY_ALPHA) * latencyEwmaMs;
+            samples[sampleCount % LATENCY_WINDOW] = latencyMs;
+            sampleCount++;
+        }
+
+        synchronized void recordFailure() {
+            failures++;
+            consecutiveFailures++;
+            long backoff = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(consecutiveFailures - 1, 20));
+            // Jitter ±20% para que varios clientes no reintenten a la vez
+            backoff = (long) (backoff * (0.8 + 0.4 * random.nextDouble()));
+            backoffUntil = System.currentTimeMillis() + backoff;
+            Log.w(TAG, baseUrl + " falló " + consecutiveFailures + " veces seguidas, en espera " + backoff + " ms");
+        }
+
+        /**
+         * p95 de las últimas respuestas, o -1 si aún no hay suficientes
+         */
+        synchronized long p95Ms() {
+            int n = Math.min(sampleCount, LATENCY_WINDOW);
+            if (n < MIN_SAMPLES_FOR_P95) return -1;
+            long[] sorted = Arrays.copyOf(samples, n);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(0.95 * n) - 1];
+        }
+
+        @Override
+        public synchronized String toString() {
+            return baseUrl + " (ewma=" + Math.round(expectedLatencyMs()) + "ms p95=" + p95Ms()
+                    + "ms ok=" + requests + " fallos=" + failures
+                    + (backoffUntil > System.currentTimeMillis() ? " en espera" : "") + ")";
+        }
+    }
+
+    private static final Random random = new Random();
+    private static final List<Host> hosts = new ArrayList<>();
+    private static SharedPreferences prefs;
+    private static ScheduledExecutorService scheduler;
+    private static volatile boolean hedgingEnabled = false;
+
+    // Pantallas visibles que usan el monitor, tarea periódica y último chequeo
+    private static int monitorUsers = 0;
+    private static ScheduledFuture<?> monitorTask;
+    private static volatile long lastCheckMs = 0;
+
+    static {
+        hosts.add(new Host(DEFAULT_HOST));
+    }
+
+    /**
+     * Carga la configuración guardada
+     */
+    public static synchronized void init(Context context) {
+        if (prefs != null) return;
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String saved = prefs.getString(KEY_HOSTS, null);
+        if (saved != null && !saved.trim().isEmpty()) {
+            replaceHosts(Arrays.asList(saved.split(",")));
+        }
+        hedgingEnabled = prefs.getBoolean(KEY_HEDGING, false);
+        Log.d(TAG, "Servidores: " + hosts + " hedging=" + hedgingEnabled);
+    }
+
+    /**
+     * Arranca el monitor de salud al hacerse visible una pantalla (onResume). Si el último
+     * chequeo es reciente, el primero espera lo que falta del intervalo
+     */
+    public static synchronized void startMonitor() {
+        if (monitorUsers++ > 0) return;
+        long sinceLast = System.currentTimeMillis() - lastCheckMs;
+        long delayMs = Math.max(0, HEALTH_CHECK_INTERVAL_MS - sinceLast);
+        monitorTask = scheduler().scheduleWithFixedDelay(OllamaHostPool::checkAll,
+                delayMs, HEALTH_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Log.d(TAG, "Monitor de salud en marcha (primer chequeo en " + delayMs + " ms)");
+    }
+
+    /**
+     * Detiene el monitor cuando ya no queda ninguna pantalla visible (onPause)
+     */
+    public static synchronized void stopMonitor() {
+        if (monitorUsers == 0 || --monitorUsers > 0) return;
+        monitorTask.cancel(false);
+        monitorTask = null;
+        Log.d(TAG, "Monitor de salud detenido");
+    }
+
+    /**
+     * Reemplaza la lista (URLs base, p. ej. "http://192.168.1.20:11434") y la guarda
+     */
+    public static synchronized void setHosts(List<String> baseUrls) {
+        replaceHosts(baseUrls);
+        if (prefs != null) {
+            StringBuilder joined = new StringBuilder();
+            for (Host host : hosts) {
+                if (joined.length() > 0) joined.append(',');
+                joined.append(host.baseUrl);
+            }
+            prefs.edit().putString(KEY_HOSTS, joined.toString()).apply();
+        }
+    }
+
+    private static void replaceHosts(List<String> baseUrls) {
+        List<Host> updated = new ArrayList<>();
+        for (String url : baseUrls) {
+            String trimmed = url.trim();
+            while (trimmed.endsWith("/")) trimmed = trimmed.substring(0, trimmed.length() - 1);
+            if (trimmed.isEmpty()) continue;
+            // Se conserva el historial de los que ya estaban
+            Host existing = find(trimmed);
+            updated.add(existing != null ? existing : new Host(trimmed));
+        }
+        if (updated.isEmpty()) return;
+        hosts.clear();
+        hosts.addAll(updated);
+    }
+
+    private static Host find(String baseUrl) {
+        for (Host host : hosts) {
+            if (host.baseUrl.equals(baseUrl)) return host;
+        }
+        return null;
+    }
+
+    public static synchronized List<Host> getHosts() {
+        return new ArrayList<>(hosts);
+    }
+
+    public static synchronized Host primary() {
+        return hosts.get(0);
+    }
+
+    public static void setHedgingEnabled(boolean enabled) {
+        hedgingEnabled = enabled;
+        if (prefs != null) prefs.edit().putBoolean(KEY_HEDGING, enabled).apply();
+    }
+
+    public static boolean isHedgingEnabled() {
+        return hedgingEnabled;
+    }
+
+    /**
+     * Elige un servidor disponible al azar con peso 1/latencia. Si todos están en espera
+     * devuelve el que sale antes de ella (exclude = null) o null si se pide una alternativa
+     */
+    public static synchronized Host pick(Host exclude) {
+        long now = System.currentTimeMillis();
+        List<Host> available = new ArrayList<>();
+        double totalWeight = 0;
+        for (Host host : hosts) {
+            if (host != exclude && host.isAvailable(now)) {
+                available.add(host);
+                totalWeight += 1.0 / host.expectedLatencyMs();
+            }
+        }
+
+        if (available.isEmpty()) {
+            if (exclude != null) return null;
+            Host soonest = hosts.get(0);
+            for (Host host : hosts) {
+                if (host.backoffUntil < soonest.backoffUntil) soonest = host;
+            }
+            return soonest;
+        }
+
+        double target = random.nextDouble() * totalWeight;
+        for (Host host : available) {
+            target -= 1.0 / host.expectedLatencyMs();
+            if (target <= 0) return host;
+        }
+        return available.get(available.size() - 1);
+    }
+
+    /**
+     * Cuánto esperar antes de duplicar una petición enviada a host (-1 = no duplicar)
+     */
+    public static long hedgeDelayMs(Host host) {
+        if (!hedgingEnabled || getHosts().size() < 2) return -1;
+        long p95 = host.p95Ms();
+        return p95 < 0 ? -1 : Math.max(HEDGE_MIN_DELAY_MS, p95);
+    }
+
+    static synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "OllamaHostPool");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * Chequeo inmediato, p. ej. al volver la red (los que estaban en espera pueden salir de ella)
+     */
+    public static void checkNow() {
+        scheduler().execute(OllamaHostPool::checkAll);
+    }
+
+    /**
+     * Chequeo de salud de todos los servidores: los caídos entran en backoff y los que
+     * responden salen de él
+     */
+    private static void checkAll() {
+        lastCheckMs = System.currentTimeMillis();
+        for (Host host : getHosts()) {
+            TranslationService.checkOllamaConnection(host, (connected, message) -> {
+                if (connected) {
+                    host.recordSuccess(-1);
+                } else {
+                    host.recordFailure();
+                }
+            });
+        }
+    }
+
+    public static synchronized String getStats() {
+        return hosts.toString() + " hedging=" + hedgingEnabled;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.proyecto_tesis_oe.services;
+
+import org.json.JSONObject;
+
+/**
+ * Tiempos que Ollama informa en la respuesta final (vienen en nanosegundos)
+ * - load: carga del modelo en memoria (alto = el modelo estaba descargado)
+ * - prompt eval: procesamiento del prompt (bajo si se reutilizó el prefijo)
+ * - eval: generación de tokens
+ */
+public class OllamaTimings {
+    public final long loadMs;
+    public final long promptEvalMs;
+    public final int promptEvalCount;
+    public final long evalMs;
+    public final int evalCount;
+    public final long totalMs;
+
+    private OllamaTimings(long loadMs, long promptEvalMs, int promptEvalCount,
+                          long evalMs, int evalCount, long totalMs) {
+        this.loadMs = loadMs;
+        this.promptEvalMs = promptEvalMs;
+        this.promptEvalCount = promptEvalCount;
+        this.evalMs = evalMs;
+        this.evalCount = evalCount;
+        this.totalMs = totalMs;
+    }
+
+    /**
+     * null si la respuesta no trae tiempos
+     */
+    public static OllamaTimings from(JSONObject json) {
+        if (json == null || !json.has("total_duration")) return null;
+        return new OllamaTimings(
+                nanosToMs(json.optLong("load_duration", 0)),
+                nanosToMs(json.optLong("prompt_eval_duration", 0)),
+                json.optInt("prompt_eval_count", 0),
+                nanosToMs(json.optLong("eval_duration", 0)),
+                json.optInt("eval_count", 0),
+                nanosToMs(json.optLong("total_duration", 0)));
+    }
+
+    private static long nanosToMs(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return "carga=" + loadMs + "ms prompt=" + promptEvalMs + "ms (" + promptEvalCount + " tokens)"
+                + " generación=" + evalMs + "ms (" + evalCount + " tokens) total servidor=" + totalMs + "ms";
+    }
+}
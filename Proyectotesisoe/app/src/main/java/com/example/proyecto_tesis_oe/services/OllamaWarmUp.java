@@ -0,0 +1,51 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.util.Log;
+
+/**
+ * Mantiene el modelo de traducción cargado en Ollama: lo precarga al arrancar la app
+ * y cada vez que vuelve la red, para que la primera traducción no pague la carga
+ */
+public class OllamaWarmUp {
+    private static final String TAG = "OllamaWarmUp";
+
+    private static ConnectivityManager.NetworkCallback networkCallback;
+
+    /**
+     * La primera precarga la hace el aviso de red: al registrarlo llega onAvailable con la
+     * red actual. Sin aviso (o en llamadas posteriores) se precarga directamente
+     */
+    public static synchronized void start(Context context) {
+        OllamaHostPool.init(context);
+
+        if (networkCallback != null) {
+            TranslationService.warmUp();
+            return;
+        }
+        ConnectivityManager connectivity = (ConnectivityManager) context.getApplicationContext()
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null) {
+            TranslationService.warmUp();
+            return;
+        }
+
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                Log.d(TAG, "Red disponible, precargando el modelo");
+                OllamaHostPool.checkNow();
+                TranslationService.warmUp();
+            }
+        };
+        try {
+            connectivity.registerDefaultNetworkCallback(networkCallback);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "No se pudo registrar el aviso de red: " + e.getMessage());
+            networkCallback = null;
+            TranslationService.warmUp();
+        }
+    }
+}
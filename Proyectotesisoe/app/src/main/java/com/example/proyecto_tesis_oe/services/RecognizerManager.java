@@ -0,0 +1,223 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.util.Log;
+import com.google.android.gms.tasks.Task;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.Text;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.chinese.ChineseTextRecognizerOptions;
+import com.google.mlkit.vision.text.japanese.JapaneseTextRecognizerOptions;
+import com.google.mlkit.vision.text.korean.KoreanTextRecognizerOptions;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gestor de reconocedores ML Kit de larga duración
+ * Mantiene una instancia por script, precalentada al iniciar la app y liberada en onTrimMemory,
+ * para que los escaneos repetidos no paguen la carga del modelo en cada etiqueta.
+ * El OCR pasa por process() para que un reconocedor no se cierre con una imagen en curso
+ */
+public class RecognizerManager {
+    private static final String TAG = "RecognizerManager";
+
+    // Tamaño de la imagen en blanco usada para forzar la carga del modelo
+    private static final int WARM_UP_SIZE = 32;
+
+    public enum Script {
+        LATIN("Latín"),
+        CHINESE("Chino"),
+        KOREAN("Coreano"),
+        JAPANESE("Japonés");
+
+        public final String label;
+
+        Script(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Map<Script, TextRecognizer> recognizers = new EnumMap<>(Script.class);
+    private static final Map<Script, Long> loadTimesMs = new EnumMap<>(Script.class);
+    private static final Map<Script, Integer> reuseCounts = new EnumMap<>(Script.class);
+
+    // Imágenes en curso por script y scripts cuyo cierre espera a que terminen
+    private static final Map<Script, Integer> inUse = new EnumMap<>(Script.class);
+    private static final Set<Script> closePending = EnumSet.noneOf(Script.class);
+
+    /**
+     * Devuelve el reconocedor del script, creándolo si aún no existe.
+     * Nunca se debe cerrar desde fuera: su ciclo de vida lo controla este gestor. Para
+     * reconocer se usa process(), que lo marca como ocupado
+     */
+    public static synchronized TextRecognizer get(Script script) {
+        TextRecognizer recognizer = recognizers.get(script);
+        if (recognizer == null) {
+            recognizer = createRecognizer(script);
+            recognizers.put(script, recognizer);
+            reuseCounts.put(script, 0);
+            Log.d(TAG, "Reconocedor " + script.label + " creado");
+        } else {
+            reuseCounts.put(script, reuseCounts.get(script) + 1);
+        }
+        return recognizer;
+    }
+
+    /**
+     * Reconoce una imagen con el reconocedor del script. Mientras la tarea está en curso el
+     * reconocedor cuenta como ocupado y release() no lo cierra
+     */
+    public static Task<Text> process(Script script, InputImage image) {
+        TextRecognizer recognizer;
+        synchronized (RecognizerManager.class) {
+            recognizer = get(script);
+            inUse.put(script, inUse.getOrDefault(script, 0) + 1);
+        }
+        Task<Text> task;
+        try {
+            task = recognizer.process(image);
+        } catch (RuntimeException e) {
+            // Fallo síncrono (reconocedor cerrado, imagen inválida): no habrá listener que descuente
+            finished(script);
+            throw e;
+        }
+        return task.addOnCompleteListener(done -> finished(script));
+    }
+
+    private static synchronized void finished(Script script) {
+        int remaining = inUse.getOrDefault(script, 1) - 1;
+        inUse.put(script, remaining);
+        if (remaining == 0 && closePending.remove(script)) {
+            close(script);
+        }
+    }
+
+    /**
+     * Precarga todos los modelos procesando una imagen en blanco.
+     * Es idempotente: los scripts ya cargados no se vuelven a calentar
+     */
+    public static void warmUp() {
+        Set<Script> pending = EnumSet.noneOf(Script.class);
+        synchronized (RecognizerManager.class) {
+            for (Script script : Script.values()) {
+                if (!recognizers.containsKey(script)) pending.add(script);
+            }
+        }
+        if (pending.isEmpty()) return;
+
+        Bitmap blank = Bitmap.createBitmap(WARM_UP_SIZE, WARM_UP_SIZE, Bitmap.Config.ARGB_8888);
+        blank.eraseColor(Color.WHITE);
+        InputImage image = InputImage.fromBitmap(blank, 0);
+        // La imagen en blanco se comparte: se recicla cuando terminan todos los precalentamientos
+        AtomicInteger running = new AtomicInteger(pending.size());
+
+        for (Script script : pending) {
+            long start = SystemClock.elapsedRealtime();
+            Task<Text> task;
+            try {
+                task = process(script, image);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "No se pudo precalentar " + script.label + ": " + e.getMessage());
+                if (running.decrementAndGet() == 0) blank.recycle();
+                continue;
+            }
+            task.addOnCompleteListener(done -> {
+                long elapsed = SystemClock.elapsedRealtime() - start;
+                synchronized (RecognizerManager.class) {
+                    loadTimesMs.put(script, elapsed);
+                }
+                Log.d(TAG, "Modelo " + script.label + " precalentado en " + elapsed + " ms");
+                if (running.decrementAndGet() == 0) blank.recycle();
+            });
+        }
+    }
+
+    /**
+     * Libera los reconocedores cuando el sistema pide memoria.
+     * Al ocultarse la UI se mantienen cargados para que volver a escanear siga siendo rápido
+     */
+    public static void onTrimMemory(int level) {
+        if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            Log.d(TAG, "onTrimMemory(" + level + "): liberando reconocedores");
+            release();
+        }
+    }
+
+    /**
+     * Cierra los reconocedores libres; el siguiente get() los vuelve a crear. Los que tienen
+     * un OCR en curso se cierran cuando este termina
+     */
+    public static synchronized void release() {
+        for (Script script : new ArrayList<>(recognizers.keySet())) {
+            if (inUse.getOrDefault(script, 0) > 0) {
+                closePending.add(script);
+                Log.d(TAG, "Reconocedor " + script.label + " ocupado: se cerrará al terminar");
+            } else {
+                close(script);
+            }
+        }
+    }
+
+    private static void close(Script script) {
+        TextRecognizer recognizer = recognizers.remove(script);
+        if (recognizer == null) return;
+        recognizer.close();
+        Log.d(TAG, "Reconocedor " + script.label + " cerrado tras " + reuseCounts.get(script) + " reutilizaciones");
+        loadTimesMs.remove(script);
+        reuseCounts.remove(script);
+    }
+
+    /**
+     * Tiempo de carga medido en el precalentamiento (-1 si no se ha medido)
+     */
+    public static synchronized long getLoadTimeMs(Script script) {
+        Long time = loadTimesMs.get(script);
+        return time != null ? time : -1;
+    }
+
+    /**
+     * Número de escaneos que reutilizaron el reconocedor ya cargado
+     */
+    public static synchronized int getReuseCount(Script script) {
+        Integer count = reuseCounts.get(script);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Resumen de estadísticas para logs
+     */
+    public static synchronized String getStats() {
+        StringBuilder sb = new StringBuilder();
+        for (Script script : Script.values()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(script.label)
+                    .append(": carga=").append(getLoadTimeMs(script)).append("ms")
+                    .append(" reusos=").append(getReuseCount(script));
+        }
+        return sb.toString();
+    }
+
+    private static TextRecognizer createRecognizer(Script script) {
+        switch (script) {
+            case CHINESE:
+                return TextRecognition.getClient(new ChineseTextRecognizerOptions.Builder().build());
+            case KOREAN:
+                return TextRecognition.getClient(new KoreanTextRecognizerOptions.Builder().build());
+            case JAPANESE:
+                return TextRecognition.getClient(new JapaneseTextRecognizerOptions.Builder().build());
+            case LATIN:
+            default:
+                return TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
+        }
+    }
+}
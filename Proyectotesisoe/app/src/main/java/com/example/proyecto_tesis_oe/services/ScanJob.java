@@ -0,0 +1,258 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import com.example.proyecto_tesis_oe.LumaFrame;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escaneo en curso: OCR + traducción arrancados en cuanto existe el frame recortado,
+ * mientras Inicio sigue mostrando la animación de escaneo. ResultsActivity se engancha
+ * al trabajo ya en marcha (por id) en vez de empezar uno nuevo; los eventos que ya
+ * ocurrieron se le reenvían al engancharse
+ */
+public class ScanJob {
+    private static final String TAG = "ScanJob";
+
+    public interface Listener {
+        void onTextRecognized(String text);
+        void onOcrError(Exception e);
+        void onTextTranslated(String translatedText);
+        void onTranslationError(String error);
+        void onPartialTranslation(String partialText);
+        void onTranslationStats(long firstTokenMs, long totalMs);
+        void onServerTimings(OllamaTimings timings);
+    }
+
+    private static final AtomicLong nextId = new AtomicLong(1);
+    private static final Map<Long, ScanJob> jobs = new HashMap<>();
+
+    // Preprocesamiento de capturas guardadas en disco fuera del hilo principal
+    private static final ExecutorService preprocessExecutor = Executors.newSingleThreadExecutor();
+
+    private final long id;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Listener listener;
+
+    // Estado (solo se toca en el hilo principal)
+    private String recognizedText;
+    private Exception ocrError;
+    private String translatedText;
+    private String translationError;
+    private String partialTranslation;
+    private long firstTokenMs = -1;
+    private long translationTotalMs = -1;
+    private OllamaTimings serverTimings;
+    private TranslationService.TranslationHandle translationHandle;
+
+    // Tiempos del escaneo (elapsedRealtime)
+    private final long createdAt;
+    private long ocrDoneAt;
+    private long attachedAt;
+    private long translationStartAt;
+    private long translationDoneAt;
+
+    private ScanJob() {
+        this.id = nextId.getAndIncrement();
+        this.createdAt = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Empieza OCR + traducción sobre un frame ya recortado en memoria
+     */
+    public static ScanJob start(Context context, LumaFrame frame) {
+        ScanJob job = register();
+        OcrService.recognizeFrame(context.getApplicationContext(), frame, job.ocrCallback());
+        return job;
+    }
+
+    /**
+     * Empieza OCR + traducción sobre una imagen guardada en disco
+     */
+    public static ScanJob start(Context context, String imagePath) {
+        ScanJob job = register();
+        Context appContext = context.getApplicationContext();
+        preprocessExecutor.execute(() -> OcrService.recognizeText(appContext, imagePath, job.ocrCallback()));
+        return job;
+    }
+
+    public static synchronized ScanJob get(long id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Descarta los trabajos sin UI enganchada (hilo principal). Los que tienen una
+     * ResultsActivity abierta siguen hasta que esta los suelte
+     */
+    public static synchronized void clear() {
+        Iterator<ScanJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            ScanJob job = iterator.next();
+            if (job.listener != null) continue;
+            job.mainHandler.removeCallbacksAndMessages(null);
+            job.cancelTranslation();
+            iterator.remove();
+        }
+    }
+
+    private static synchronized ScanJob register() {
+        ScanJob job = new ScanJob();
+        jobs.put(job.id, job);
+        Log.d(TAG, "Escaneo " + job.id + " iniciado");
+        return job;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Engancha la UI (hilo principal). Reenvía de inmediato lo que ya terminó
+     */
+    public void attach(Listener newListener) {
+        listener = newListener;
+        attachedAt = SystemClock.elapsedRealtime();
+        Log.d(TAG, "Escaneo " + id + ": UI enganchada a los " + (attachedAt - createdAt) + " ms"
+                + (ocrDoneAt > 0 ? " (OCR ya terminado)" : " (OCR en curso)"));
+
+        if (ocrError != null) {
+            listener.onOcrError(ocrError);
+        } else if (recognizedText != null) {
+            listener.onTextRecognized(recognizedText);
+        }
+
+        if (translationError != null) {
+            listener.onTranslationError(translationError);
+        } else if (translatedText != null) {
+            if (serverTimings != null) listener.onServerTimings(serverTimings);
+            if (firstTokenMs >= 0) listener.onTranslationStats(firstTokenMs, translationTotalMs);
+            listener.onTextTranslated(translatedText);
+        } else if (partialTranslation != null) {
+            listener.onPartialTranslation(partialTranslation);
+        }
+    }
+
+    /**
+     * Desengancha la UI. Si la actividad termina, el trabajo sale del registro y una
+     * traducción sin terminar se abandona (Ollama solo la cancela si nadie más pidió el mismo
+     * texto); si solo se recrea (rotación), sigue en marcha para la nueva instancia
+     */
+    public void detach(boolean finishing) {
+        listener = null;
+        if (!finishing) return;
+        cancelTranslation();
+        synchronized (ScanJob.class) {
+            jobs.remove(id);
+        }
+    }
+
+    private OcrService.OcrCallback ocrCallback() {
+        return new OcrService.OcrCallback() {
+            @Override
+            public void onTextRecognized(String text) {
+                // Cada captura terminada alimenta la historia del enrutador de scripts
+                ScriptRouter.recordOutcome(OcrService.detectLanguage(text));
+                mainHandler.post(() -> {
+                    ocrDoneAt = SystemClock.elapsedRealtime();
+                    recognizedText = text != null ? text : "";
+                    Log.d(TAG, "Escaneo " + id + ": OCR listo en " + (ocrDoneAt - createdAt) + " ms");
+
+                    if (listener != null) listener.onTextRecognized(recognizedText);
+                    if (!recognizedText.trim().isEmpty()) {
+                        startTranslation();
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                mainHandler.post(() -> {
+                    ocrDoneAt = SystemClock.elapsedRealtime();
+                    ocrError = e;
+                    if (listener != null) listener.onOcrError(e);
+                });
+            }
+        };
+    }
+
+    private void startTranslation() {
+        translationStartAt = SystemClock.elapsedRealtime();
+        translationHandle = TranslationService.translateText(recognizedText, new TranslationService.TranslationCallback() {
+            @Override
+            public void onPartialTranslation(String partialText) {
+                mainHandler.post(() -> {
+                    // Un parcial atrasado no debe pisar el resultado final
+                    if (translatedText != null || translationError != null) return;
+                    partialTranslation = partialText;
+                    if (listener != null) listener.onPartialTranslation(partialText);
+                });
+            }
+
+            @Override
+            public void onServerTimings(OllamaTimings timings) {
+                mainHandler.post(() -> {
+                    serverTimings = timings;
+                    if (listener != null) listener.onServerTimings(timings);
+                });
+            }
+
+            @Override
+            public void onTranslationStats(long firstToken, long total) {
+                mainHandler.post(() -> {
+                    firstTokenMs = firstToken;
+                    translationTotalMs = total;
+                    if (listener != null) listener.onTranslationStats(firstToken, total);
+                });
+            }
+
+            @Override
+            public void onTextTranslated(String translated) {
+                mainHandler.post(() -> {
+                    translationDoneAt = SystemClock.elapsedRealtime();
+                    translatedText = translated;
+                    logTimings();
+                    if (listener != null) listener.onTextTranslated(translated);
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                mainHandler.post(() -> {
+                    translationDoneAt = SystemClock.elapsedRealtime();
+                    translationError = error;
+                    logTimings();
+                    if (listener != null) listener.onTranslationError(error);
+                });
+            }
+        });
+    }
+
+    private void cancelTranslation() {
+        if (translationHandle != null && translatedText == null && translationError == null) {
+            translationHandle.cancel();
+        }
+    }
+
+    /**
+     * Tiempos por escaneo. "Ahorrado" es el trabajo hecho antes de que la UI se enganchara,
+     * que con el flujo anterior empezaba recién al abrir ResultsActivity
+     */
+    private void logTimings() {
+        long reference = attachedAt > 0 ? attachedAt : translationDoneAt;
+        long saved = Math.min(reference, translationDoneAt) - createdAt;
+        Log.d(TAG, "Escaneo " + id + " - OCR: " + (ocrDoneAt - createdAt) + " ms"
+                + ", traducción: " + (translationDoneAt - translationStartAt) + " ms"
+                + " (primer token: " + firstTokenMs + " ms)"
+                + (serverTimings != null ? ", Ollama: " + serverTimings : "")
+                + ", total: " + (translationDoneAt - createdAt) + " ms"
+                + ", ahorrado por arranque anticipado: " + Math.max(0, saved) + " ms");
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enrutador de scripts para el OCR
+ * Aprende qué idiomas aparecen más en el almacén (a partir de detectLanguage) y, junto con
+ * una sonda hecha con un reconocedor asiático (todos leen también latín), elige el
+ * reconocedor con más opciones de acertar
+ */
+public class ScriptRouter {
+    private static final String TAG = "ScriptRouter";
+    private static final String PREFS_NAME = "script_router";
+
+    // Peso de la historia frente a cada nuevo escaneo (decaimiento exponencial)
+    private static final float DECAY = 0.98f;
+
+    // Confianza mínima para fiarse de las letras latinas de la sonda
+    private static final float PROBE_MIN_CONFIDENCE = 0.5f;
+
+    // Caracteres mínimos de un script asiático para considerarlo presente en la sonda
+    private static final int PROBE_MIN_ASIAN_CHARS = 2;
+
+    private static final Map<RecognizerManager.Script, Float> counts = new EnumMap<>(RecognizerManager.Script.class);
+    private static SharedPreferences prefs;
+
+    static {
+        for (RecognizerManager.Script script : RecognizerManager.Script.values()) {
+            counts.put(script, 0f);
+        }
+        // Prior: sin historia se empieza por Latín, como el flujo original
+        counts.put(RecognizerManager.Script.LATIN, 1f);
+    }
+
+    /**
+     * Carga la historia guardada. Sin init() el enrutador funciona solo en memoria
+     */
+    public static synchronized void init(Context context) {
+        if (prefs != null) return;
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        for (RecognizerManager.Script script : RecognizerManager.Script.values()) {
+            counts.put(script, prefs.getFloat(script.name(), counts.get(script)));
+        }
+        Log.d(TAG, "Historia cargada: " + counts);
+    }
+
+    /**
+     * Registra el idioma final de una captura (salida de OcrService.detectLanguage). El modo
+     * en vivo no cuenta: unos segundos de frames pesarían más que toda la historia
+     */
+    public static synchronized void recordOutcome(String detectedLang) {
+        RecognizerManager.Script script = scriptForLanguage(detectedLang);
+        if (script == null) return;
+
+        SharedPreferences.Editor editor = prefs != null ? prefs.edit() : null;
+        for (RecognizerManager.Script s : RecognizerManager.Script.values()) {
+            float value = counts.get(s) * DECAY + (s == script ? 1f : 0f);
+            counts.put(s, value);
+            if (editor != null) editor.putFloat(s.name(), value);
+        }
+        if (editor != null) editor.apply();
+    }
+
+    /**
+     * Reconocedores ordenados de más a menos probable según la historia
+     */
+    public static synchronized List<RecognizerManager.Script> rankScripts() {
+        List<RecognizerManager.Script> ranking = new ArrayList<>(counts.keySet());
+        Collections.sort(ranking, (a, b) -> Float.compare(counts.get(b), counts.get(a)));
+        return ranking;
+    }
+
+    /**
+     * Reconocedor de la sonda: el asiático más frecuente en la historia. Sin historia asiática,
+     * el japonés, que además de latín lee kana y han: solo el hangul le queda por descarte
+     */
+    public static synchronized RecognizerManager.Script probeScript() {
+        RecognizerManager.Script best = RecognizerManager.Script.JAPANESE;
+        for (RecognizerManager.Script script : RecognizerManager.Script.values()) {
+            if (script == RecognizerManager.Script.LATIN) continue;
+            if (counts.get(script) > counts.get(best)) best = script;
+        }
+        return best;
+    }
+
+    /**
+     * Si el reconocedor reader lee el script: el suyo y, como todos, el latino
+     */
+    public static boolean canRead(RecognizerManager.Script reader, RecognizerManager.Script script) {
+        return script == reader || script == RecognizerManager.Script.LATIN;
+    }
+
+    /**
+     * Si los caracteres del script aparecen en la salida de reader aunque no los lea bien:
+     * el han lo producen tanto el reconocedor chino como el japonés
+     */
+    static boolean canSee(RecognizerManager.Script reader, RecognizerManager.Script script) {
+        if (canRead(reader, script)) return true;
+        boolean readerHan = reader == RecognizerManager.Script.CHINESE || reader == RecognizerManager.Script.JAPANESE;
+        boolean scriptHan = script == RecognizerManager.Script.CHINESE || script == RecognizerManager.Script.JAPANESE;
+        return readerHan && scriptHan;
+    }
+
+    /**
+     * Decide el reconocedor a partir de la sonda hecha con probeScript.
+     * Hangul, kana y han solo los produce el reconocedor que los lee, así que su presencia es
+     * determinante; letras latinas con baja confianza indican un script que la sonda ni
+     * siquiera ve, y se elige el más probable de esos según la historia
+     */
+    public static RecognizerManager.Script chooseFromProbe(RecognizerManager.Script probeScript, String probeText,
+                                                           float probeConfidence,
+                                                           List<RecognizerManager.Script> ranking) {
+        TextAnalyzer.Result analysis = TextAnalyzer.analyze(probeText);
+        int latin = analysis.latin, han = analysis.han, hangul = analysis.hangul, kana = analysis.kana;
+
+        if (hangul >= PROBE_MIN_ASIAN_CHARS && hangul >= kana) return RecognizerManager.Script.KOREAN;
+        if (kana >= PROBE_MIN_ASIAN_CHARS) return RecognizerManager.Script.JAPANESE;
+        if (han >= PROBE_MIN_ASIAN_CHARS) {
+            // Kanji sin kana: decidir entre chino y japonés por la historia
+            return ranking.indexOf(RecognizerManager.Script.JAPANESE)
+                    < ranking.indexOf(RecognizerManager.Script.CHINESE)
+                    ? RecognizerManager.Script.JAPANESE : RecognizerManager.Script.CHINESE;
+        }
+
+        if (latin > 0 && probeConfidence >= PROBE_MIN_CONFIDENCE) {
+            return RecognizerManager.Script.LATIN;
+        }
+
+        if (latin > 0) {
+            // Letras latinas dudosas: probablemente un script que la sonda no ve, mal leído
+            for (RecognizerManager.Script script : ranking) {
+                if (!canSee(probeScript, script)) return script;
+            }
+        }
+
+        return ranking.get(0);
+    }
+
+    /**
+     * Orden de ejecución: primero el elegido, luego el resto según la historia
+     */
+    public static List<RecognizerManager.Script> executionOrder(RecognizerManager.Script first,
+                                                                List<RecognizerManager.Script> ranking) {
+        List<RecognizerManager.Script> order = new ArrayList<>();
+        order.add(first);
+        for (RecognizerManager.Script script : ranking) {
+            if (script != first) order.add(script);
+        }
+        return order;
+    }
+
+    private static RecognizerManager.Script scriptForLanguage(String lang) {
+        if (lang == null) return null;
+        switch (lang) {
+            case "en":
+                return RecognizerManager.Script.LATIN;
+            case "zh":
+                return RecognizerManager.Script.CHINESE;
+            case "ko":
+                return RecognizerManager.Script.KOREAN;
+            case "ja":
+                return RecognizerManager.Script.JAPANESE;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.proyecto_tesis_oe.services;
+
+/**
+ * Normaliza el texto del OCR y cuenta sus caracteres por script en una sola pasada
+ * - Formas de ancho completo (Ａ１) a ASCII, katakana de medio ancho a ancho completo
+ * - Espacios repetidos a uno solo sin tocar los saltos de línea; líneas vacías fuera
+ * - Sin caracteres de control; "---", "..." y "///" se reducen a uno
+ * Todas las decisiones de idioma (OcrService, ScriptRouter, OcrResultScorer, traducción)
+ * salen del mismo Result. Los últimos resultados se recuerdan por referencia, así que
+ * volver a analizar el mismo String no lo recorre de nuevo
+ */
+public class TextAnalyzer {
+
+    // Katakana de medio ancho U+FF66..U+FF9D en ancho completo
+    private static final String HALF_WIDTH_KATAKANA =
+            "ヲァィゥェォャュョッーアイウエオカキクケコサシスセソタチツテトナニヌネノハヒフヘホマミムメモヤユヨラリルレロワン";
+    private static final String VOICEABLE_KANA = "カキクケコサシスセソタチツテトハヒフヘホ";
+    private static final String SEMI_VOICEABLE_KANA = "ハヒフヘホ";
+
+    // Resultados recientes (el mismo texto pasa por OCR, puntuación, enrutado y traducción)
+    private static final int RECENT_SIZE = 8;
+    private static final Result[] recent = new Result[RECENT_SIZE];
+    private static int recentNext = 0;
+
+    /**
+     * Texto normalizado y cantidad de code points por script
+     */
+    public static class Result {
+        public final String text;
+        public final int latin;
+        public final int han;
+        public final int hangul;
+        public final int kana;
+        public final int otherLetters;
+        public final int digits;
+        public final int punctuation;
+        private final String source;
+
+        Result(String source, String text, int[] counts) {
+            this.source = source;
+            this.text = text;
+            this.latin = counts[LATIN];
+            this.han = counts[HAN];
+            this.hangul = counts[HANGUL];
+            this.kana = counts[KANA];
+            this.otherLetters = counts[OTHER_LETTER];
+            this.digits = counts[DIGIT];
+            this.punctuation = counts[PUNCTUATION];
+        }
+
+        public int asian() {
+            return han + hangul + kana;
+        }
+
+        public int letters() {
+            return latin + asian() + otherLetters;
+        }
+
+        public boolean containsAsian() {
+            return asian() > 0;
+        }
+
+        /**
+         * Solo Hangul entre los scripts asiáticos
+         */
+        public boolean isKorean() {
+            return hangul > 0 && han == 0 && kana == 0;
+        }
+
+        /**
+         * Solo Han entre los scripts asiáticos
+         */
+        public boolean isChinese() {
+            return han > 0 && hangul == 0 && kana == 0;
+        }
+
+        /**
+         * Kana, con o sin kanji, sin Hangul
+         */
+        public boolean isJapanese() {
+            return kana > 0 && hangul == 0;
+        }
+
+        /**
+         * Idioma principal: "en", "ko", "zh", "ja", "mixed_asian" o "unknown"
+         */
+        public String language() {
+            if (!containsAsian()) {
+                return latin > 0 && latin >= otherLetters ? "en" : "unknown";
+            }
+            if (isKorean()) return "ko";
+            if (isChinese()) return "zh";
+            if (isJapanese()) return "ja";
+            return "mixed_asian";
+        }
+
+        @Override
+        public String toString() {
+            return "latín=" + latin + " han=" + han + " hangul=" + hangul + " kana=" + kana
+                    + " otras=" + otherLetters + " dígitos=" + digits + " puntuación=" + punctuation;
+        }
+    }
+
+    // Índices del histograma
+    private static final int LATIN = 0;
+    private static final int HAN = 1;
+    private static final int HANGUL = 2;
+    private static final int KANA = 3;
+    private static final int OTHER_LETTER = 4;
+    private static final int DIGIT = 5;
+    private static final int PUNCTUATION = 6;
+    private static final int OTHER = 7;
+
+    public static Result analyze(String source) {
+        if (source == null) source = "";
+        Result cached = findRecent(source);
+        if (cached != null) return cached;
+
+        int length = source.length();
+        StringBuilder out = new StringBuilder(length);
+        int[] counts = new int[8];
+        boolean pendingSpace = false;
+        boolean pendingNewline = false;
+
+        int i = 0;
+        while (i < length) {
+            int cp = source.codePointAt(i);
+            i += Character.charCount(cp);
+
+            // Saltos de línea (\r\n, \r y \n); varios seguidos cuentan como uno
+            if (cp == '\n' || cp == '\r') {
+                pendingNewline = true;
+                pendingSpace = false;
+                continue;
+            }
+            if (cp == '\t' || cp == 0x3000 || Character.isWhitespace(cp) || Character.isSpaceChar(cp)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (Character.isISOControl(cp)) continue;
+
+            // Marcas sonoras de medio ancho: se combinan con el kana anterior
+            if ((cp == 0xFF9E || cp == 0xFF9F) && !pendingSpace && !pendingNewline && out.length() > 0) {
+                char previous = out.charAt(out.length() - 1);
+                if (cp == 0xFF9E && previous == 'ウ') {
+                    out.setCharAt(out.length() - 1, 'ヴ');
+                    continue;
+                }
+                if (cp == 0xFF9E && VOICEABLE_KANA.indexOf(previous) >= 0) {
+                    out.setCharAt(out.length() - 1, (char) (previous + 1));
+                    continue;
+                }
+                if (cp == 0xFF9F && SEMI_VOICEABLE_KANA.indexOf(previous) >= 0) {
+                    out.setCharAt(out.length() - 1, (char) (previous + 2));
+                    continue;
+                }
+            }
+            cp = fold(cp);
+
+            // Separadores repetidos ("-----", "......"): tres o más quedan en uno
+            if (cp == '-' || cp == '.' || cp == '/') {
+                int run = 1;
+                while (i < length && source.charAt(i) == cp) {
+                    run++;
+                    i++;
+                }
+                if (run >= 3) run = 1;
+                flushSeparator(out, pendingSpace, pendingNewline);
+                pendingSpace = false;
+                pendingNewline = false;
+                for (int r = 0; r < run; r++) out.append((char) cp);
+                counts[PUNCTUATION] += run;
+                continue;
+            }
+
+            flushSeparator(out, pendingSpace, pendingNewline);
+            pendingSpace = false;
+            pendingNewline = false;
+            out.appendCodePoint(cp);
+            counts[classify(cp)]++;
+        }
+
+        Result result = new Result(source, out.toString(), counts);
+        remember(result);
+        return result;
+    }
+
+    /**
+     * Solo el texto normalizado
+     */
+    public static String normalize(String source) {
+        return source == null ? null : analyze(source).text;
+    }
+
+    private static void flushSeparator(StringBuilder out, boolean pendingSpace, boolean pendingNewline) {
+        if (out.length() == 0) return;
+        if (pendingNewline) {
+            out.append('\n');
+        } else if (pendingSpace) {
+            out.append(' ');
+        }
+    }
+
+    /**
+     * Letras y dígitos de ancho completo a ASCII; katakana de medio ancho a ancho completo.
+     * La puntuación de ancho completo (。！？) se conserva: separa oraciones en CJK
+     */
+    private static int fold(int cp) {
+        if ((cp >= 0xFF10 && cp <= 0xFF19) || (cp >= 0xFF21 && cp <= 0xFF3A) || (cp >= 0xFF41 && cp <= 0xFF5A)) {
+            return cp - 0xFEE0;
+        }
+        if (cp >= 0xFF66 && cp <= 0xFF9D) return HALF_WIDTH_KATAKANA.charAt(cp - 0xFF66);
+        switch (cp) {
+            case 0xFF61: return '。';
+            case 0xFF62: return '「';
+            case 0xFF63: return '」';
+            case 0xFF64: return '、';
+            case 0xFF65: return '・';
+            case 0xFF9E: return '゛';
+            case 0xFF9F: return '゜';
+            default: return cp;
+        }
+    }
+
+    private static int classify(int cp) {
+        if (cp < 0x80) {
+            if ((cp >= 'A' && cp <= 'Z') || (cp >= 'a' && cp <= 'z')) return LATIN;
+            if (cp >= '0' && cp <= '9') return DIGIT;
+            return isPunctuation(cp) ? PUNCTUATION : OTHER;
+        }
+        // Rangos de kana completos: incluyen ー y ・, que Unicode asigna al script común
+        if ((cp >= 0x3040 && cp <= 0x30FF) || (cp >= 0x31F0 && cp <= 0x31FF)) return KANA;
+        if ((cp >= 0x1100 && cp <= 0x11FF) || (cp >= 0x3130 && cp <= 0x318F)
+                || (cp >= 0xAC00 && cp <= 0xD7AF) || (cp >= 0xFFA0 && cp <= 0xFFDC)) {
+            return HANGUL;
+        }
+        if (Character.isDigit(cp)) return DIGIT;
+        if (Character.isLetter(cp)) {
+            switch (Character.UnicodeScript.of(cp)) {
+                case LATIN:
+                    return LATIN;
+                case HAN:
+                    return HAN;
+                case HANGUL:
+                    return HANGUL;
+                case HIRAGANA:
+                case KATAKANA:
+                    return KANA;
+                default:
+                    return OTHER_LETTER;
+            }
+        }
+        return isPunctuation(cp) ? PUNCTUATION : OTHER;
+    }
+
+    private static boolean isPunctuation(int cp) {
+        switch (Character.getType(cp)) {
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+            case Character.MATH_SYMBOL:
+            case Character.CURRENCY_SYMBOL:
+            case Character.MODIFIER_SYMBOL:
+            case Character.OTHER_SYMBOL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static synchronized Result findRecent(String text) {
+        for (Result result : recent) {
+            if (result != null && (result.source == text || result.text == text)) return result;
+        }
+        return null;
+    }
+
+    private static synchronized void remember(Result result) {
+        recent[recentNext] = result;
+        recentNext = (recentNext + 1) % RECENT_SIZE;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.proyecto_tesis_oe.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parte textos largos en trozos que el modelo traduce bien por separado
+ * Se corta primero entre líneas (TextAnalyzer ya juntó las líneas vacías), luego entre
+ * oraciones (también con puntuación CJK: 。！？；) y solo si no queda otra entre palabras o
+ * a la fuerza. Cada trozo recuerda el separador que lo seguía para recomponer el texto
+ */
+public class TextChunker {
+
+    // Niveles de corte, del más natural al último recurso
+    private static final int LEVEL_LINE = 0;
+    private static final int LEVEL_SENTENCE = 1;
+    private static final int LEVEL_WORD = 2;
+    private static final int LEVEL_HARD = 3;
+
+    public static class Chunk {
+        public final String text;
+        public final String separator;
+
+        Chunk(String text, String separator) {
+            this.text = text;
+            this.separator = separator;
+        }
+    }
+
+    public static List<Chunk> split(String text, int maxChars) {
+        List<Chunk> chunks = new ArrayList<>();
+        split(text.trim(), "", maxChars, LEVEL_LINE, chunks);
+        return chunks;
+    }
+
+    /**
+     * Recompone el texto; los trozos sin traducción (null) se omiten
+     */
+    public static String join(List<Chunk> chunks, String[] translations) {
+        StringBuilder sb = new StringBuilder();
+        String pendingSeparator = "";
+        for (int i = 0; i < chunks.size(); i++) {
+            if (translations[i] == null) continue;
+            if (sb.length() > 0) sb.append(pendingSeparator);
+            sb.append(translations[i].trim());
+            pendingSeparator = chunks.get(i).separator;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Agrupa las piezas de un nivel en trozos de hasta maxChars; las que no caben solas
+     * se parten con el nivel siguiente
+     */
+    private static void split(String text, String separator, int maxChars, int level, List<Chunk> out) {
+        if (text.length() <= maxChars || level > LEVEL_HARD) {
+            if (!text.isEmpty()) out.add(new Chunk(text, separator));
+            return;
+        }
+
+        List<Chunk> pieces = pieces(text, level, maxChars);
+        if (pieces.size() == 1) {
+            split(text, separator, maxChars, level + 1, out);
+            return;
+        }
+
+        StringBuilder current = new StringBuilder();
+        String currentSeparator = "";
+        for (int i = 0; i < pieces.size(); i++) {
+            Chunk piece = pieces.get(i);
+            String pieceSeparator = i == pieces.size() - 1 ? separator : piece.separator;
+
+            if (piece.text.length() > maxChars) {
+                flush(current, currentSeparator, out);
+                split(piece.text, pieceSeparator, maxChars, level + 1, out);
+                continue;
+            }
+            if (current.length() > 0 && current.length() + currentSeparator.length() + piece.text.length() > maxChars) {
+                flush(current, currentSeparator, out);
+            }
+            if (current.length() > 0) current.append(currentSeparator);
+            current.append(piece.text);
+            currentSeparator = pieceSeparator;
+        }
+        flush(current, currentSeparator, out);
+    }
+
+    private static void flush(StringBuilder current, String separator, List<Chunk> out) {
+        if (current.length() == 0) return;
+        out.add(new Chunk(current.toString(), separator));
+        current.setLength(0);
+    }
+
+    private static List<Chunk> pieces(String text, int level, int maxChars) {
+        switch (level) {
+            case LEVEL_LINE:
+                return splitOn(text, "\n");
+            case LEVEL_SENTENCE:
+                return sentences(text);
+            case LEVEL_WORD:
+                return splitOn(text, " ");
+            default:
+                List<Chunk> slices = new ArrayList<>();
+                for (int start = 0; start < text.length(); start += maxChars) {
+                    slices.add(new Chunk(text.substring(start, Math.min(text.length(), start + maxChars)), ""));
+                }
+                return slices;
+        }
+    }
+
+    /**
+     * Corta en cada aparición del separador
+     */
+    private static List<Chunk> splitOn(String text, String separator) {
+        List<Chunk> pieces = new ArrayList<>();
+        int start = 0;
+        int index;
+        while ((index = text.indexOf(separator, start)) >= 0) {
+            addPiece(pieces, text.substring(start, index), separator);
+            start = index + separator.length();
+        }
+        addPiece(pieces, text.substring(start), separator);
+        return pieces;
+    }
+
+    /**
+     * Oraciones: tras . ! ? ; seguidos de espacio, o tras la puntuación CJK (sin espacio)
+     */
+    private static List<Chunk> sentences(String text) {
+        List<Chunk> pieces = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean cjkEnd = c == '。' || c == '！' || c == '？' || c == '；' || c == '．';
+            boolean latinEnd = (c == '.' || c == '!' || c == '?' || c == ';')
+                    && i + 1 < text.length() && text.charAt(i + 1) == ' ';
+            if (!cjkEnd && !latinEnd) continue;
+
+            int end = i + 1;
+            while (end < text.length() && text.charAt(end) == ' ') end++;
+            addPiece(pieces, text.substring(start, i + 1), end > i + 1 ? " " : "");
+            start = end;
+            i = end - 1;
+        }
+        addPiece(pieces, text.substring(start), "");
+        return pieces;
+    }
+
+    private static void addPiece(List<Chunk> pieces, String text, String separator) {
+        String trimmed = text.trim();
+        if (!trimmed.isEmpty()) pieces.add(new Chunk(trimmed, separator));
+    }
+}
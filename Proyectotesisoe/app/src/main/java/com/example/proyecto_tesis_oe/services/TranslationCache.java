@@ -0,0 +1,387 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché de traducciones en dos niveles para no volver a pedir a Ollama etiquetas ya vistas
+ * - Memoria: LRU acotada por caracteres
+ * - Disco: archivo de solo-añadir con índice en memoria (clave → posición), TTL y
+ *   compactación cuando el archivo supera su tamaño máximo; sobrevive a reinicios
+ * La clave combina texto normalizado, idioma detectado, modelo y versión del prompt
+ */
+public class TranslationCache {
+    private static final String TAG = "TranslationCache";
+    private static final String FILE_NAME = "translation_cache.log";
+
+    // Memoria: caracteres de traducción retenidos
+    private static final int MEMORY_MAX_CHARS = 256 * 1024;
+
+    // Disco: tamaño máximo del archivo y tamaño objetivo tras compactar
+    private static final long DISK_MAX_BYTES = 2 * 1024 * 1024;
+    private static final long DISK_COMPACT_TARGET_BYTES = DISK_MAX_BYTES * 3 / 4;
+
+    // Vida de una entrada
+    private static final long TTL_MS = TimeUnit.DAYS.toMillis(30);
+
+    /**
+     * Resultado de una búsqueda: la traducción guardada o null si no está
+     */
+    public interface LookupCallback {
+        void onResult(String cachedTranslation);
+    }
+
+    /**
+     * Resultado de una búsqueda en lote: una traducción (o null) por clave, en el mismo orden
+     */
+    public interface BatchLookupCallback {
+        void onResult(String[] cachedTranslations);
+    }
+
+    // Registro en disco: posición, fecha de creación y bytes ocupados
+    private static class IndexEntry {
+        final long offset;
+        final long createdAt;
+        final int size;
+
+        IndexEntry(long offset, long createdAt, int size) {
+            this.offset = offset;
+            this.createdAt = createdAt;
+            this.size = size;
+        }
+    }
+
+    private static final LruCache<String, String> memory = new LruCache<String, String>(MEMORY_MAX_CHARS) {
+        @Override
+        protected int sizeOf(String key, String value) {
+            return value.length();
+        }
+    };
+
+    // Todo el acceso a disco pasa por un solo hilo (también la carga del índice)
+    private static final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private static final Map<String, IndexEntry> index = new HashMap<>();
+    private static RandomAccessFile file;
+    private static File cacheFile;
+    private static long liveBytes = 0;
+
+    // Si el reemplazo falló no se reintenta en cada escritura de la sesión
+    private static boolean compactFailed = false;
+
+    // Estadísticas
+    private static int memoryHits = 0;
+    private static int diskHits = 0;
+    private static int misses = 0;
+    private static int expired = 0;
+    private static int evicted = 0;
+
+    /**
+     * Abre el archivo y reconstruye el índice en segundo plano.
+     * Sin init() la caché funciona solo en memoria
+     */
+    public static synchronized void init(Context context) {
+        if (cacheFile != null) return;
+        cacheFile = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        diskExecutor.execute(TranslationCache::loadIndex);
+    }
+
+    /**
+     * Clave estable de una traducción. Cambiar el modelo o la versión del prompt
+     * invalida automáticamente las entradas anteriores
+     */
+    public static String key(String sourceText, String detectedLang, String model, String promptVersion) {
+        String material = promptVersion + "|" + model + "|" + detectedLang + "|" + normalize(sourceText);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(material.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(material.hashCode()) + "_" + material.length();
+        }
+    }
+
+    /**
+     * Espacios repetidos y líneas vacías no cambian la traducción
+     */
+    static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (String line : text.split("\n")) {
+            String trimmed = line.trim().replaceAll("\\s+", " ");
+            if (trimmed.isEmpty()) continue;
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(trimmed);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Busca primero en memoria (respuesta inmediata, mismo hilo) y después en disco
+     * (respuesta desde el hilo de disco)
+     */
+    public static void lookup(String key, LookupCallback callback) {
+        String cached;
+        synchronized (TranslationCache.class) {
+            cached = memory.get(key);
+            if (cached != null) memoryHits++;
+        }
+        if (cached != null) {
+            callback.onResult(cached);
+            return;
+        }
+
+        diskExecutor.execute(() -> {
+            String fromDisk = readFromDisk(key);
+            synchronized (TranslationCache.class) {
+                if (fromDisk != null) {
+                    diskHits++;
+                    memory.put(key, fromDisk);
+                } else {
+                    misses++;
+                }
+            }
+            callback.onResult(fromDisk);
+        });
+    }
+
+    /**
+     * Igual que lookup pero para varias claves: lo que falte en memoria se lee de disco
+     * en una sola tarea
+     */
+    public static void lookupAll(List<String> keys, BatchLookupCallback callback) {
+        String[] results = new String[keys.size()];
+        List<Integer> pending = new ArrayList<>();
+        synchronized (TranslationCache.class) {
+            for (int i = 0; i < keys.size(); i++) {
+                results[i] = memory.get(keys.get(i));
+                if (results[i] != null) {
+                    memoryHits++;
+                } else {
+                    pending.add(i);
+                }
+            }
+        }
+        if (pending.isEmpty()) {
+            callback.onResult(results);
+            return;
+        }
+
+        diskExecutor.execute(() -> {
+            for (int i : pending) {
+                String key = keys.get(i);
+                String fromDisk = readFromDisk(key);
+                synchronized (TranslationCache.class) {
+                    if (fromDisk != null) {
+                        diskHits++;
+                        memory.put(key, fromDisk);
+                    } else {
+                        misses++;
+                    }
+                }
+                results[i] = fromDisk;
+            }
+            callback.onResult(results);
+        });
+    }
+
+    public static void put(String key, String translation) {
+        if (translation == null || translation.isEmpty()) return;
+        synchronized (TranslationCache.class) {
+            memory.put(key, translation);
+        }
+        diskExecutor.execute(() -> appendToDisk(key, translation));
+    }
+
+    public static synchronized String getStats() {
+        return "memoria=" + memoryHits + " disco=" + diskHits + " fallos=" + misses
+                + " expiradas=" + expired + " desalojadas=" + evicted + " (LRU " + memory.evictionCount() + ")"
+                + " entradas disco=" + index.size() + " bytes=" + liveBytes;
+    }
+
+    // ---- Disco (solo desde diskExecutor) ----
+
+    private static void loadIndex() {
+        long start = System.currentTimeMillis();
+        try {
+            file = new RandomAccessFile(cacheFile, "rw");
+            long now = System.currentTimeMillis();
+            long length = file.length();
+            long valid = CacheRecords.scan(file, (key, offset, createdAt, size) ->
+                    putIndex(key, new IndexEntry(offset, createdAt, size), now));
+            if (valid < length) {
+                // Última escritura incompleta (la app se cerró a medias): se descarta
+                Log.w(TAG, "Registro truncado en " + valid + ", se recorta el archivo");
+                file.setLength(valid);
+            }
+
+            Log.d(TAG, "Índice cargado: " + index.size() + " entradas, " + liveBytes + " bytes en "
+                    + (System.currentTimeMillis() - start) + " ms");
+
+            if (!compactFailed && file.length() > DISK_MAX_BYTES) {
+                compact();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "No se pudo abrir la caché en disco, se usa solo memoria", e);
+            closeFile();
+        }
+    }
+
+    private static void putIndex(String key, IndexEntry entry, long now) {
+        synchronized (TranslationCache.class) {
+            IndexEntry previous = index.remove(key);
+            if (previous != null) liveBytes -= previous.size;
+            if (now - entry.createdAt > TTL_MS) {
+                expired++;
+                return;
+            }
+            index.put(key, entry);
+            liveBytes += entry.size;
+        }
+    }
+
+    private static String readFromDisk(String key) {
+        if (file == null) return null;
+
+        IndexEntry entry;
+        synchronized (TranslationCache.class) {
+            entry = index.get(key);
+        }
+        if (entry == null) return null;
+
+        if (System.currentTimeMillis() - entry.createdAt > TTL_MS) {
+            synchronized (TranslationCache.class) {
+                index.remove(key);
+                liveBytes -= entry.size;
+                expired++;
+            }
+            return null;
+        }
+
+        try {
+            file.seek(entry.offset);
+            file.readLong();
+            String storedKey = file.readUTF();
+            if (!storedKey.equals(key)) {
+                Log.w(TAG, "Índice desincronizado para " + key);
+                return null;
+            }
+            byte[] value = new byte[file.readInt()];
+            file.readFully(value);
+            return new String(value, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Log.e(TAG, "Error leyendo la caché en disco", e);
+            return null;
+        }
+    }
+
+    private static void appendToDisk(String key, String translation) {
+        if (file == null) return;
+        try {
+            long now = System.currentTimeMillis();
+            long position = file.length();
+            CacheRecords.write(file, position, key, now, translation.getBytes(StandardCharsets.UTF_8));
+            putIndex(key, new IndexEntry(position, now, (int) (file.getFilePointer() - position)), now);
+
+            if (!compactFailed && file.length() > DISK_MAX_BYTES) {
+                compact();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error escribiendo la caché en disco", e);
+        }
+    }
+
+    /**
+     * Reescribe el archivo solo con las entradas vigentes, de la más nueva a la más vieja,
+     * hasta DISK_COMPACT_TARGET_BYTES; el resto se desaloja
+     */
+    private static void compact() throws IOException {
+        long start = System.currentTimeMillis();
+        long now = start;
+
+        List<Map.Entry<String, IndexEntry>> entries;
+        synchronized (TranslationCache.class) {
+            entries = new ArrayList<>(index.entrySet());
+        }
+        entries.sort((a, b) -> Long.compare(b.getValue().createdAt, a.getValue().createdAt));
+
+        File tempFile = new File(cacheFile.getPath() + ".tmp");
+        Map<String, IndexEntry> newIndex = new HashMap<>();
+        long written = 0;
+        int dropped = 0;
+        int dead = 0;
+
+        try (RandomAccessFile out = new RandomAccessFile(tempFile, "rw")) {
+            out.setLength(0);
+            for (Map.Entry<String, IndexEntry> item : entries) {
+                IndexEntry entry = item.getValue();
+                if (now - entry.createdAt > TTL_MS) {
+                    dead++;
+                    continue;
+                }
+                if (written + entry.size > DISK_COMPACT_TARGET_BYTES) {
+                    dropped++;
+                    continue;
+                }
+
+                file.seek(entry.offset);
+                file.readLong();
+                file.readUTF();
+                byte[] value = new byte[file.readInt()];
+                file.readFully(value);
+
+                CacheRecords.write(out, written, item.getKey(), entry.createdAt, value);
+                long end = out.getFilePointer();
+                newIndex.put(item.getKey(), new IndexEntry(written, entry.createdAt, (int) (end - written)));
+                written = end;
+            }
+        }
+
+        closeFile();
+        boolean replaced = tempFile.renameTo(cacheFile);
+        file = new RandomAccessFile(cacheFile, "rw");
+        if (!replaced) {
+            // Se sigue con el archivo sin compactar y su índice, que siguen siendo válidos
+            Log.w(TAG, "No se pudo reemplazar " + cacheFile + ", se conserva el archivo sin compactar");
+            if (!tempFile.delete()) Log.w(TAG, "No se pudo borrar " + tempFile);
+            compactFailed = true;
+            return;
+        }
+
+        synchronized (TranslationCache.class) {
+            index.clear();
+            index.putAll(newIndex);
+            liveBytes = written;
+            expired += dead;
+            evicted += dropped;
+        }
+        Log.d(TAG, "Compactada: " + newIndex.size() + " entradas, " + written + " bytes, "
+                + dropped + " desalojadas, " + dead + " expiradas en " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private static void closeFile() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException ignored) {
+            }
+            file = null;
+        }
+    }
+}
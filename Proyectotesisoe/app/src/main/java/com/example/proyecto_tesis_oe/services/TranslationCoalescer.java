@@ -0,0 +1,195 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agrupa peticiones idénticas en curso (single-flight)
+ * Un doble toque en capturar o dos pantallas pidiendo el mismo texto no lanzan dos
+ * /api/generate contra el único servidor de Ollama: los que llegan después se suman a la
+ * petición pendiente y el resultado se reparte a todos. La llamada HTTP solo se cancela
+ * cuando ya no queda ningún suscriptor
+ */
+class TranslationCoalescer {
+    private static final String TAG = "TranslationCoalescer";
+
+    /**
+     * Lanza la petición real; todo lo que llegue a fanOut se reparte entre los suscriptores
+     */
+    interface Starter {
+        Cancellable start(TranslationService.TranslationCallback fanOut);
+    }
+
+    /**
+     * La petición lanzada (puede abarcar varias llamadas HTTP si se duplicó en otro servidor)
+     */
+    interface Cancellable {
+        void cancel();
+    }
+
+    /**
+     * Un suscriptor de una petición en curso
+     */
+    static class Subscription {
+        private final Flight flight;
+        private final TranslationService.TranslationCallback callback;
+
+        Subscription(Flight flight, TranslationService.TranslationCallback callback) {
+            this.flight = flight;
+            this.callback = callback;
+        }
+
+        void cancel() {
+            flight.unsubscribe(this);
+        }
+    }
+
+    private static final Map<String, Flight> inFlight = new HashMap<>();
+
+    // Estadísticas
+    private static int started = 0;
+    private static int coalesced = 0;
+    private static int cancelled = 0;
+
+    /**
+     * Se suma a la petición en curso con la misma clave o lanza una nueva
+     */
+    static Subscription join(String key, TranslationService.TranslationCallback callback, Starter starter) {
+        Flight flight;
+        Subscription subscription;
+        boolean isNew = false;
+
+        synchronized (TranslationCoalescer.class) {
+            flight = inFlight.get(key);
+            if (flight == null) {
+                flight = new Flight(key);
+                inFlight.put(key, flight);
+                started++;
+                isNew = true;
+            } else {
+                coalesced++;
+                Log.d(TAG, "Petición idéntica en curso, se reutiliza (" + flight.subscriberCount() + " suscriptores)");
+            }
+            subscription = flight.subscribe(callback);
+        }
+
+        if (isNew) {
+            flight.setCall(starter.start(flight));
+        }
+        return subscription;
+    }
+
+    static synchronized String getStats() {
+        return "peticiones=" + started + " agrupadas=" + coalesced + " canceladas=" + cancelled
+                + " en curso=" + inFlight.size();
+    }
+
+    /**
+     * Petición en curso: reparte cada evento a los suscriptores vivos
+     */
+    private static class Flight implements TranslationService.TranslationCallback {
+        private final String key;
+        private final List<Subscription> subscribers = new ArrayList<>();
+        private Cancellable call;
+        private String lastPartial;
+        private boolean finished = false;
+
+        Flight(String key) {
+            this.key = key;
+        }
+
+        synchronized int subscriberCount() {
+            return subscribers.size();
+        }
+
+        synchronized Subscription subscribe(TranslationService.TranslationCallback callback) {
+            Subscription subscription = new Subscription(this, callback);
+            subscribers.add(subscription);
+            // El que llega tarde ve de inmediato lo que ya se generó
+            if (lastPartial != null) {
+                callback.onPartialTranslation(lastPartial);
+            }
+            return subscription;
+        }
+
+        void setCall(Cancellable newCall) {
+            boolean cancelNow;
+            synchronized (this) {
+                call = newCall;
+                cancelNow = subscribers.isEmpty() && !finished;
+            }
+            if (cancelNow && newCall != null) newCall.cancel();
+        }
+
+        void unsubscribe(Subscription subscription) {
+            Cancellable toCancel = null;
+            synchronized (TranslationCoalescer.class) {
+                synchronized (this) {
+                    if (!subscribers.remove(subscription) || finished) return;
+                    if (subscribers.isEmpty()) {
+                        // Nadie espera ya el resultado: se libera el servidor
+                        inFlight.remove(key);
+                        finished = true;
+                        toCancel = call;
+                        cancelled++;
+                    }
+                }
+            }
+            if (toCancel != null) {
+                Log.d(TAG, "Sin suscriptores, se cancela la petición a Ollama");
+                toCancel.cancel();
+            }
+        }
+
+        /**
+         * Retira la petición del mapa (las siguientes idénticas lanzan una nueva)
+         * y devuelve los suscriptores a notificar
+         */
+        private List<Subscription> complete() {
+            synchronized (TranslationCoalescer.class) {
+                synchronized (this) {
+                    if (finished) return new ArrayList<>();
+                    finished = true;
+                    if (inFlight.get(key) == this) inFlight.remove(key);
+                    return new ArrayList<>(subscribers);
+                }
+            }
+        }
+
+        private synchronized List<Subscription> snapshot() {
+            return new ArrayList<>(subscribers);
+        }
+
+        @Override
+        public void onPartialTranslation(String partialText) {
+            synchronized (this) {
+                if (finished) return;
+                lastPartial = partialText;
+            }
+            for (Subscription s : snapshot()) s.callback.onPartialTranslation(partialText);
+        }
+
+        @Override
+        public void onServerTimings(OllamaTimings timings) {
+            for (Subscription s : snapshot()) s.callback.onServerTimings(timings);
+        }
+
+        @Override
+        public void onTranslationStats(long firstTokenMs, long totalMs) {
+            for (Subscription s : snapshot()) s.callback.onTranslationStats(firstTokenMs, totalMs);
+        }
+
+        @Override
+        public void onTextTranslated(String translatedText) {
+            for (Subscription s : complete()) s.callback.onTextTranslated(translatedText);
+        }
+
+        @Override
+        public void onError(String error) {
+            for (Subscription s : complete()) s.callback.onError(error);
+        }
+    }
+}
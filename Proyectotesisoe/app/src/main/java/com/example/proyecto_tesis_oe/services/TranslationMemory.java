@@ -0,0 +1,234 @@
+package com.example.proyecto_tesis_oe.services;
+
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Memoria de traducción por segmentos
+ * Las etiquetas repiten muchas líneas entre productos ("Ingredients:", conservación,
+ * alérgenos, datos del importador). El texto se parte en segmentos (líneas), cada uno se
+ * busca en TranslationCache y solo los que faltan se envían al modelo, numerados, en una
+ * única petición. El resultado se recompone en el orden original
+ */
+public class TranslationMemory {
+    private static final String TAG = "TranslationMemory";
+
+    // Espacio de claves propio dentro de TranslationCache
+    private static final String SEGMENT_KEY_SUFFIX = "/seg";
+
+    // Línea numerada de la respuesta del modelo: "3. texto" o "3) texto". Hasta 4 cifras:
+    // un número más largo ("20240131.") es parte del texto, no una numeración
+    private static final Pattern NUMBERED_LINE = Pattern.compile("^\\s*(\\d{1,4})\\s*[.)]\\s*(.*)$");
+
+    // Estadísticas
+    private static int segmentsReused = 0;
+    private static int segmentsSent = 0;
+    private static long charsSaved = 0;
+
+    /**
+     * Línea de la etiqueta. Las vacías y las que solo tienen números/símbolos
+     * (pesos, lotes, códigos) se copian tal cual, sin traducir
+     */
+    public static class Segment {
+        public final String text;
+        public final boolean translatable;
+
+        Segment(String text, boolean translatable) {
+            this.text = text;
+            this.translatable = translatable;
+        }
+    }
+
+    /**
+     * Resultado de la búsqueda: traducción por segmento (null si falta) y los textos
+     * distintos que faltan, cada uno con las posiciones donde aparece
+     */
+    public static class Lookup {
+        public final List<Segment> segments;
+        public final String[] translations;
+        public final Map<String, List<Integer>> missing;
+
+        Lookup(List<Segment> segments, String[] translations, Map<String, List<Integer>> missing) {
+            this.segments = segments;
+            this.translations = translations;
+            this.missing = missing;
+        }
+
+        public List<String> missingTexts() {
+            return new ArrayList<>(missing.keySet());
+        }
+    }
+
+    public interface LookupCallback {
+        void onResult(Lookup lookup);
+    }
+
+    public static List<Segment> split(String text) {
+        List<Segment> segments = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            String trimmed = line.trim();
+            segments.add(new Segment(trimmed, hasLetters(trimmed)));
+        }
+        return segments;
+    }
+
+    public static int countTranslatable(List<Segment> segments) {
+        int count = 0;
+        for (Segment segment : segments) {
+            if (segment.translatable) count++;
+        }
+        return count;
+    }
+
+    private static boolean hasLetters(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetter(text.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Busca todos los segmentos traducibles en la caché de una sola vez
+     */
+    public static void lookup(List<Segment> segments, String detectedLang, String model,
+                              String promptVersion, LookupCallback callback) {
+        List<String> keys = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).translatable) {
+                keys.add(segmentKey(segments.get(i).text, detectedLang, model, promptVersion));
+                positions.add(i);
+            }
+        }
+
+        TranslationCache.lookupAll(keys, cached -> {
+            String[] translations = new String[segments.size()];
+            Map<String, List<Integer>> missing = new LinkedHashMap<>();
+
+            for (int i = 0; i < segments.size(); i++) {
+                if (!segments.get(i).translatable) translations[i] = segments.get(i).text;
+            }
+            int reusedChars = 0;
+            for (int k = 0; k < positions.size(); k++) {
+                int position = positions.get(k);
+                if (cached[k] != null) {
+                    translations[position] = cached[k];
+                    reusedChars += segments.get(position).text.length();
+                } else {
+                    String text = segments.get(position).text;
+                    List<Integer> list = missing.get(text);
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        missing.put(text, list);
+                    }
+                    list.add(position);
+                }
+            }
+
+            synchronized (TranslationMemory.class) {
+                segmentsReused += positions.size() - countPositions(missing);
+                segmentsSent += missing.size();
+                charsSaved += reusedChars;
+            }
+            Log.d(TAG, "Segmentos: " + positions.size() + " traducibles, " + missing.size()
+                    + " por traducir, " + reusedChars + " caracteres reutilizados");
+
+            callback.onResult(new Lookup(segments, translations, missing));
+        });
+    }
+
+    /**
+     * Aplica las traducciones nuevas (en el orden de missingTexts) y las guarda en la memoria
+     */
+    public static void fill(Lookup lookup, List<String> newTranslations, String detectedLang,
+                            String model, String promptVersion) {
+        int i = 0;
+        for (Map.Entry<String, List<Integer>> entry : lookup.missing.entrySet()) {
+            String translated = newTranslations.get(i++);
+            for (int position : entry.getValue()) {
+                lookup.translations[position] = translated;
+            }
+            TranslationCache.put(segmentKey(entry.getKey(), detectedLang, model, promptVersion), translated);
+        }
+    }
+
+    /**
+     * Recompone el texto en el orden original. Los segmentos aún sin traducir se omiten
+     * (sirve también para mostrar traducciones parciales)
+     */
+    public static String assemble(Lookup lookup) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lookup.segments.size(); i++) {
+            String translated = lookup.translations[i];
+            if (translated == null) continue;
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(translated);
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * Igual que assemble, pero con lo generado hasta ahora para los segmentos que faltan
+     */
+    public static String assemblePartial(Lookup lookup, String partialNumberedText) {
+        List<String> partial = parseNumbered(partialNumberedText, -1);
+        String[] merged = lookup.translations.clone();
+        int i = 0;
+        for (List<Integer> positions : lookup.missing.values()) {
+            if (i >= partial.size()) break;
+            String translated = partial.get(i++);
+            for (int position : positions) merged[position] = translated;
+        }
+        return assemble(new Lookup(lookup.segments, merged, lookup.missing));
+    }
+
+    /**
+     * Lee la respuesta numerada del modelo. Con expectedCount >= 0 devuelve null si no trae
+     * exactamente esa cantidad de líneas 1..N (la respuesta no se puede alinear)
+     */
+    public static List<String> parseNumbered(String text, int expectedCount) {
+        Map<Integer, StringBuilder> items = new LinkedHashMap<>();
+        StringBuilder current = null;
+
+        for (String line : text.split("\n")) {
+            Matcher matcher = NUMBERED_LINE.matcher(line);
+            if (matcher.matches()) {
+                current = new StringBuilder(matcher.group(2).trim());
+                items.put(Integer.parseInt(matcher.group(1)), current);
+            } else if (current != null && !line.trim().isEmpty()) {
+                // Continuación de la línea anterior
+                current.append(' ').append(line.trim());
+            }
+        }
+
+        List<String> result = new ArrayList<>();
+        for (int n = 1; items.containsKey(n); n++) {
+            result.add(items.get(n).toString());
+        }
+
+        if (expectedCount >= 0 && (result.size() != expectedCount || items.size() != expectedCount)) {
+            return null;
+        }
+        return result;
+    }
+
+    public static synchronized String getStats() {
+        return "segmentos reutilizados=" + segmentsReused + " enviados=" + segmentsSent
+                + " caracteres ahorrados=" + charsSaved;
+    }
+
+    private static String segmentKey(String text, String detectedLang, String model, String promptVersion) {
+        return TranslationCache.key(text, detectedLang, model, promptVersion + SEGMENT_KEY_SUFFIX);
+    }
+
+    private static int countPositions(Map<String, List<Integer>> missing) {
+        int count = 0;
+        for (List<Integer> positions : missing.values()) count += positions.size();
+        return count;
+    }
+}
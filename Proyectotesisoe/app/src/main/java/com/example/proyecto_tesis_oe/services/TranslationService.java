@@ -4,42 +4,221 @@ import android.util.Log;
 import org.json.JSONException;
 import org.json.JSONObject;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
-import java.util.concurrent.TimeUnit;
+import okio.BufferedSource;
 
 public class TranslationService {
     private static final String TAG = "TranslationService";
 
-    // IP confirmada para tu PC en red local (puerto 11434 por defecto de Ollama)
-    private static final String OLLAMA_URL = "http://192.168.18.38:11434/api/generate";
-    // Para emulador Android: cambia a "http://10.0.2.2:11434/api/generate"
-    // Para dispositivo físico: mantén la IP local si estás en la misma WiFi
+    // Los servidores de Ollama se configuran en OllamaHostPool
 
     // Cambiado a tu modelo custom (el que tienes instalado y quieres usar)
     private static final String MODEL = "mi-traductor-etiquetas:latest";
-    private static final int TIMEOUT_SECONDS = 60;
+
+    // Versión de los prompts de createTranslationPrompt: cambiarla invalida la caché
+    private static final String PROMPT_VERSION = "3";
+
+    // Prefijo constante de todos los prompts: Ollama reutiliza su evaluación entre peticiones.
+    // Lo que varía (idioma, formato, texto) va siempre después
+    private static final String INSTRUCTION_PREFIX =
+            "Eres un traductor de etiquetas de productos importados. Traduce al español el texto que sigue. " +
+                    "Mantén el formato original y secciones como ingredientes, instrucciones y advertencias. " +
+                    "Solo devuelve la traducción, sin explicaciones ni introducciones.\n\n";
+
+    // Cuánto mantiene Ollama el modelo en memoria tras cada petición
+    public static final String DEFAULT_KEEP_ALIVE = "30m";
+    private static volatile String keepAlive = DEFAULT_KEEP_ALIVE;
+
+    // Precarga: como mucho una por intervalo (una petición reciente también cuenta)
+    private static final long WARM_UP_MIN_INTERVAL_MS = 60_000;
+    private static final long WARM_UP_TIMEOUT_MS = 60_000;
+    private static long lastModelUseAt = 0;
+    private static boolean warmUpInFlight = false;
+
+    // Límite total de la traducción: base + margen por carácter, con tope
+    private static final long TRANSLATION_BASE_TIMEOUT_MS = 15_000;
+    private static final long TRANSLATION_TIMEOUT_PER_CHAR_MS = 40;
+    private static final long TRANSLATION_MAX_TIMEOUT_MS = 90_000;
+
+    // Textos más largos se traducen por trozos (TextChunker); los CJK ocupan más tokens por carácter
+    private static final int CHUNK_MAX_CHARS = 600;
+    private static final int CHUNK_MAX_CHARS_CJK = 250;
+    // Trozos en curso a la vez por cada servidor de Ollama
+    private static final int PARALLEL_CHUNKS_PER_HOST = 2;
+
+    // Tokens máximos por respuesta: holgado para un trozo, corta alucinaciones sin fin
+    private static final int NUM_PREDICT = 768;
+
+    // Límite total de la verificación de conexión
+    private static final long CONNECTION_CHECK_TIMEOUT_MS = 5_000;
+
+    // Intervalo mínimo entre actualizaciones parciales (evita redibujar por cada token)
+    private static final long PARTIAL_MIN_INTERVAL_MS = 80;
+
+    // Streaming NDJSON de Ollama: la traducción se muestra mientras se genera
+    private static volatile boolean streamingEnabled = true;
 
     public interface TranslationCallback {
         void onTextTranslated(String translatedText);
         default void onError(String error) {
             Log.e(TAG, "Error en traducción: " + error);
         }
+
+        /**
+         * Texto traducido hasta el momento (solo en modo streaming, desde el hilo de red)
+         */
+        default void onPartialTranslation(String partialText) {
+        }
+
+        /**
+         * Tiempos informados por Ollama (carga del modelo, prompt, generación)
+         */
+        default void onServerTimings(OllamaTimings timings) {
+        }
+
+        /**
+         * Tiempo hasta el primer token y tiempo total, justo antes de onTextTranslated
+         */
+        default void onTranslationStats(long firstTokenMs, long totalMs) {
+        }
+    }
+
+    public static void setStreamingEnabled(boolean enabled) {
+        streamingEnabled = enabled;
+    }
+
+    public static boolean isStreamingEnabled() {
+        return streamingEnabled;
+    }
+
+    /**
+     * Valor de keep_alive de Ollama ("30m", "2h", "-1" = siempre cargado)
+     */
+    public static void setKeepAlive(String value) {
+        keepAlive = value;
+    }
+
+    public static String getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Carga el modelo con un prompt vacío (no genera nada) en todos los servidores, porque
+     * cualquiera puede recibir la siguiente traducción. Se omite si hubo otra precarga o una
+     * traducción hace poco, porque el modelo sigue en memoria
+     */
+    public static void warmUp() {
+        synchronized (TranslationService.class) {
+            long now = System.currentTimeMillis();
+            if (warmUpInFlight || now - lastModelUseAt < WARM_UP_MIN_INTERVAL_MS) return;
+            warmUpInFlight = true;
+        }
+
+        try {
+            JSONObject jsonBody = new JSONObject();
+            jsonBody.put("model", MODEL);
+            jsonBody.put("prompt", "");
+            jsonBody.put("stream", false);
+            jsonBody.put("keep_alive", keepAlive);
+
+            List<OllamaHostPool.Host> hosts = OllamaHostPool.getHosts();
+            AtomicInteger remaining = new AtomicInteger(hosts.size());
+            AtomicBoolean anyLoaded = new AtomicBoolean(false);
+            long startMs = System.currentTimeMillis();
+
+            for (OllamaHostPool.Host host : hosts) {
+                Request request = new Request.Builder()
+                        .url(host.generateUrl())
+                        .post(RequestBody.create(jsonBody.toString(), MediaType.parse("application/json")))
+                        .build();
+
+                HttpClientProvider.newCall(request, WARM_UP_TIMEOUT_MS).enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        Log.w(TAG, "Precarga del modelo fallida en " + host.baseUrl + ": " + e.getMessage());
+                        if (remaining.decrementAndGet() == 0) finishWarmUp(anyLoaded.get());
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) throws IOException {
+                        try {
+                            OllamaTimings timings = response.isSuccessful() && response.body() != null
+                                    ? OllamaTimings.from(new JSONObject(response.body().string())) : null;
+                            Log.d(TAG, "Modelo precargado en " + host.baseUrl + " en "
+                                    + (System.currentTimeMillis() - startMs) + " ms"
+                                    + (timings != null ? " (" + timings + ")" : " (HTTP " + response.code() + ")"));
+                            if (response.isSuccessful()) anyLoaded.set(true);
+                        } catch (JSONException e) {
+                            anyLoaded.set(true);
+                        } finally {
+                            response.close();
+                            if (remaining.decrementAndGet() == 0) finishWarmUp(anyLoaded.get());
+                        }
+                    }
+                });
+            }
+
+        } catch (JSONException e) {
+            Log.e(TAG, "Error al crear la precarga", e);
+            finishWarmUp(false);
+        }
+    }
+
+    private static synchronized void finishWarmUp(boolean loaded) {
+        warmUpInFlight = false;
+        if (loaded) lastModelUseAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Traducción pedida por un llamador. cancel() deja de entregarle resultados; la petición
+     * a Ollama solo se cancela si nadie más espera el mismo texto
+     */
+    public static class TranslationHandle {
+        private boolean cancelled = false;
+        // Una por petición (varias si el texto se tradujo por trozos)
+        private final List<TranslationCoalescer.Subscription> subscriptions = new ArrayList<>();
+
+        public void cancel() {
+            List<TranslationCoalescer.Subscription> toCancel;
+            synchronized (this) {
+                if (cancelled) return;
+                cancelled = true;
+                toCancel = new ArrayList<>(subscriptions);
+                subscriptions.clear();
+            }
+            for (TranslationCoalescer.Subscription subscription : toCancel) subscription.cancel();
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        private synchronized boolean attach(TranslationCoalescer.Subscription newSubscription) {
+            if (cancelled) return false;
+            subscriptions.add(newSubscription);
+            return true;
+        }
     }
 
     /**
      * Traduce texto usando Ollama en red local
      */
-    public static void translateText(String sourceText, TranslationCallback callback) {
+    public static TranslationHandle translateText(String sourceText, TranslationCallback callback) {
+        TranslationHandle handle = new TranslationHandle();
         if (sourceText == null || sourceText.trim().isEmpty()) {
             Log.w(TAG, "Texto vacío, no se puede traducir");
             callback.onError("No hay texto para traducir");
-            return;
+            return handle;
         }
 
         Log.d(TAG, "Iniciando traducción de texto: " + sourceText.substring(0, Math.min(50, sourceText.length())) + "...");
@@ -48,144 +227,516 @@ public class TranslationService {
         String detectedLang = OcrService.detectLanguage(sourceText);
         Log.d(TAG, "Idioma detectado: " + detectedLang);
 
-        // Crear prompt optimizado basado en idioma
-        String prompt = createTranslationPrompt(sourceText, detectedLang);
+        // Etiquetas ya traducidas vuelven de la caché en milisegundos
+        String cacheKey = TranslationCache.key(sourceText, detectedLang, MODEL, PROMPT_VERSION);
+        long lookupStart = System.currentTimeMillis();
+        TranslationCache.lookup(cacheKey, cached -> {
+            if (cached != null) {
+                long elapsed = System.currentTimeMillis() - lookupStart;
+                Log.d(TAG, "Traducción desde caché en " + elapsed + " ms - " + TranslationCache.getStats());
+                callback.onTranslationStats(elapsed, elapsed);
+                callback.onTextTranslated(cached);
+                return;
+            }
+            translateSimilarOrNew(sourceText, detectedLang, cacheKey, callback, handle);
+        });
+        return handle;
+    }
+
+    /**
+     * Si ya se tradujo un texto casi igual (el OCR de la misma etiqueta varía un poco entre
+     * escaneos) se reutiliza su traducción sin llamar a Ollama
+     */
+    private static void translateSimilarOrNew(String sourceText, String detectedLang, String cacheKey,
+                                              TranslationCallback callback, TranslationHandle handle) {
+        long lookupStart = System.currentTimeMillis();
+        NearDuplicateIndex.Match match = NearDuplicateIndex.findSimilar(sourceText, detectedLang);
+        if (match == null) {
+            translateChunked(sourceText, detectedLang, storing(sourceText, detectedLang, cacheKey, callback), handle);
+            return;
+        }
+
+        TranslationCache.lookup(match.cacheKey, similar -> {
+            if (similar == null) {
+                // La traducción del texto parecido ya salió de la caché
+                translateChunked(sourceText, detectedLang, storing(sourceText, detectedLang, cacheKey, callback), handle);
+                return;
+            }
+            long elapsed = System.currentTimeMillis() - lookupStart;
+            Log.d(TAG, "Traducción de un texto casi igual (similitud " + match.similarity + ") en " + elapsed
+                    + " ms - " + NearDuplicateIndex.getStats());
+            TranslationCache.put(cacheKey, similar);
+            callback.onTranslationStats(elapsed, elapsed);
+            callback.onTextTranslated(similar);
+        });
+    }
+
+    /**
+     * Los textos largos se parten por secciones, líneas y oraciones y los trozos se traducen
+     * en paralelo (con un máximo de peticiones a la vez); nada se recorta
+     */
+    private static void translateChunked(String sourceText, String detectedLang, TranslationCallback callback,
+                                         TranslationHandle handle) {
+        List<TextChunker.Chunk> chunks = TextChunker.split(sourceText, chunkMaxChars(detectedLang));
+        if (chunks.size() <= 1) {
+            translateBySegments(sourceText, detectedLang, callback, handle);
+            return;
+        }
+
+        int maxParallel = Math.min(chunks.size(), PARALLEL_CHUNKS_PER_HOST * OllamaHostPool.getHosts().size());
+        new ChunkedTranslation(chunks, maxParallel,
+                (text, pieceCallback) -> translateBySegments(text, detectedLang, pieceCallback, handle),
+                handle, callback).start();
+    }
+
+    private static int chunkMaxChars(String detectedLang) {
+        return "en".equals(detectedLang) ? CHUNK_MAX_CHARS : CHUNK_MAX_CHARS_CJK;
+    }
+
+    /**
+     * Traducción con memoria de segmentos: las líneas ya conocidas se reutilizan y solo las
+     * nuevas van al modelo, numeradas. Si la respuesta no se puede alinear con los segmentos
+     * se repite la petición con el texto completo
+     */
+    private static void translateBySegments(String sourceText, String detectedLang,
+                                            TranslationCallback callback, TranslationHandle handle) {
+        List<TranslationMemory.Segment> segments = TranslationMemory.split(sourceText);
+        if (TranslationMemory.countTranslatable(segments) < 2) {
+            requestTranslation(createTranslationPrompt(sourceText, detectedLang), detectedLang, callback, handle);
+            return;
+        }
+
+        long lookupStart = System.currentTimeMillis();
+        TranslationMemory.lookup(segments, detectedLang, MODEL, PROMPT_VERSION, lookup -> {
+            if (lookup.missing.isEmpty()) {
+                long elapsed = System.currentTimeMillis() - lookupStart;
+                Log.d(TAG, "Traducción completa desde la memoria de segmentos - " + TranslationMemory.getStats());
+                callback.onTranslationStats(elapsed, elapsed);
+                callback.onTextTranslated(TranslationMemory.assemble(lookup));
+                return;
+            }
+
+            List<String> missingTexts = lookup.missingTexts();
+            String prompt = createSegmentPrompt(missingTexts, detectedLang);
+            requestTranslation(prompt, detectedLang, new TranslationCallback() {
+                private long firstTokenMs;
+                private long totalMs;
+
+                @Override
+                public void onPartialTranslation(String partialText) {
+                    callback.onPartialTranslation(TranslationMemory.assemblePartial(lookup, partialText));
+                }
+
+                @Override
+                public void onServerTimings(OllamaTimings timings) {
+                    callback.onServerTimings(timings);
+                }
+
+                @Override
+                public void onTranslationStats(long firstToken, long total) {
+                    firstTokenMs = firstToken;
+                    totalMs = total;
+                }
+
+                @Override
+                public void onTextTranslated(String translatedText) {
+                    List<String> parsed = TranslationMemory.parseNumbered(translatedText, missingTexts.size());
+                    if (parsed == null) {
+                        Log.w(TAG, "Respuesta por segmentos desalineada, se traduce el texto completo");
+                        requestTranslation(createTranslationPrompt(sourceText, detectedLang), detectedLang,
+                                callback, handle);
+                        return;
+                    }
+
+                    TranslationMemory.fill(lookup, parsed, detectedLang, MODEL, PROMPT_VERSION);
+                    Log.d(TAG, "Traducción por segmentos - " + TranslationMemory.getStats());
+                    callback.onTranslationStats(firstTokenMs, totalMs);
+                    callback.onTextTranslated(TranslationMemory.assemble(lookup));
+                }
+
+                @Override
+                public void onError(String error) {
+                    callback.onError(error);
+                }
+            }, handle);
+        });
+    }
+
+    /**
+     * Envuelve el callback para guardar la traducción final en la caché de textos completos
+     * y registrar el texto en el índice de casi-duplicados
+     */
+    private static TranslationCallback storing(String sourceText, String detectedLang, String cacheKey,
+                                               TranslationCallback callback) {
+        return new TranslationCallback() {
+            @Override
+            public void onTextTranslated(String translatedText) {
+                TranslationCache.put(cacheKey, translatedText);
+                NearDuplicateIndex.add(sourceText, detectedLang, cacheKey);
+                callback.onTextTranslated(translatedText);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+
+            @Override
+            public void onPartialTranslation(String partialText) {
+                callback.onPartialTranslation(partialText);
+            }
+
+            @Override
+            public void onServerTimings(OllamaTimings timings) {
+                callback.onServerTimings(timings);
+            }
+
+            @Override
+            public void onTranslationStats(long firstTokenMs, long totalMs) {
+                callback.onTranslationStats(firstTokenMs, totalMs);
+            }
+        };
+    }
+
+    /**
+     * Pide la traducción a Ollama, o se suma a una petición idéntica que ya esté en curso
+     */
+    private static void requestTranslation(String prompt, String detectedLang, TranslationCallback callback,
+                                           TranslationHandle handle) {
+        if (handle.isCancelled()) return;
+
+        TranslationCoalescer.Subscription subscription = TranslationCoalescer.join(MODEL + "\n" + prompt, callback,
+                fanOut -> startRequest(prompt, detectedLang, fanOut));
+        if (!handle.attach(subscription)) {
+            subscription.cancel();
+        }
+    }
 
+    /**
+     * Lanza la petición en el servidor elegido por OllamaHostPool y, con hedging activo, la
+     * duplica en otro si el primero supera su p95 sin responder (null si no se pudo crear)
+     */
+    private static TranslationCoalescer.Cancellable startRequest(String prompt, String detectedLang,
+                                                                 TranslationCallback callback) {
+        String json;
+        boolean streaming = streamingEnabled;
         try {
             JSONObject jsonBody = new JSONObject();
             jsonBody.put("model", MODEL);
             jsonBody.put("prompt", prompt);
-            jsonBody.put("stream", false); // Sin streaming para simplificar
+            jsonBody.put("stream", streaming);
+            jsonBody.put("keep_alive", keepAlive);
 
             // Opciones para prevenir alucinaciones (bajas para traducciones precisas)
             JSONObject options = new JSONObject();
             options.put("temperature", 0.3);
-            options.put("num_predict", 500); // Limitar tokens generados
+            options.put("num_predict", NUM_PREDICT); // Limitar tokens generados
             jsonBody.put("options", options);
+            json = jsonBody.toString();
+
+        } catch (JSONException e) {
+            Log.e(TAG, "Error al crear JSON de petición", e);
+            callback.onError("Error al crear petición: " + e.getMessage());
+            return null;
+        }
 
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                    .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                    .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                    .build();
+        long callTimeoutMs = translationTimeoutMs(prompt.length());
+        long startMs = System.currentTimeMillis();
+        synchronized (TranslationService.class) {
+            lastModelUseAt = startMs;
+        }
 
-            RequestBody body = RequestBody.create(
-                    jsonBody.toString(),
-                    MediaType.parse("application/json")
-            );
+        HedgedRequest hedged = new HedgedRequest();
+        OllamaHostPool.Host primary = OllamaHostPool.pick(null);
+        sendAttempt(hedged, primary, json, streaming, detectedLang, startMs, callTimeoutMs, callback);
 
-            Request request = new Request.Builder()
-                    .url(OLLAMA_URL)
-                    .post(body)
-                    .build();
+        long hedgeDelayMs = OllamaHostPool.hedgeDelayMs(primary);
+        if (hedgeDelayMs > 0) {
+            OllamaHostPool.scheduler().schedule(() -> {
+                if (!hedged.isPending()) return;
+                OllamaHostPool.Host backup = OllamaHostPool.pick(primary);
+                if (backup == null) return;
+                Log.d(TAG, primary.baseUrl + " no respondió en su p95 (" + hedgeDelayMs
+                        + " ms), se duplica la petición en " + backup.baseUrl);
+                sendAttempt(hedged, backup, json, streaming, detectedLang, startMs,
+                        Math.max(CONNECTION_CHECK_TIMEOUT_MS, callTimeoutMs - hedgeDelayMs), callback);
+            }, hedgeDelayMs, TimeUnit.MILLISECONDS);
+        }
+        return hedged::cancel;
+    }
 
-            Log.d(TAG, "Enviando petición a Ollama: " + OLLAMA_URL + " (modelo: " + MODEL + ", lang: " + detectedLang + ")");
+    /**
+     * Intentos de una misma traducción en uno o varios servidores: gana el primero que
+     * responde y los demás se cancelan. El error solo se informa si fallan todos
+     */
+    private static class HedgedRequest {
+        private final List<Call> calls = new ArrayList<>();
+        private Call winner;
+        private int failed = 0;
+        private boolean cancelled = false;
 
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    Log.e(TAG, "Error de conexión con Ollama", e);
-                    String errorMsg = "Error de conexión: " + e.getMessage() +
-                            "\n\n💡 Verifica:\n" +
-                            "1. Ollama está ejecutándose: corre 'ollama serve' en terminal\n" +
-                            "2. La IP/puerto es correcto: " + OLLAMA_URL + "\n" +
-                            "3. Firewall permite puerto 11434 (TCP)\n" +
-                            "4. Para emulador: usa http://10.0.2.2:11434/api/generate\n" +
-                            "5. Modelo cargado: 'ollama list' muestra '" + MODEL + "'";
-                    callback.onError(errorMsg);
+        synchronized boolean isPending() {
+            return !cancelled && winner == null && failed < calls.size();
+        }
+
+        /**
+         * Registra un intento nuevo; false si la traducción ya terminó o se canceló
+         */
+        synchronized boolean add(Call call) {
+            if (cancelled || winner != null || (!calls.isEmpty() && failed == calls.size())) return false;
+            calls.add(call);
+            return true;
+        }
+
+        /**
+         * El primer intento con respuesta gana: devuelve los demás para cancelarlos,
+         * o null si otro ganó antes
+         */
+        synchronized List<Call> claim(Call call) {
+            if (cancelled || winner != null) return null;
+            winner = call;
+            List<Call> others = new ArrayList<>(calls);
+            others.remove(call);
+            return others;
+        }
+
+        /**
+         * true si era el último intento pendiente (hay que informar el error)
+         */
+        synchronized boolean fail() {
+            if (cancelled || winner != null) return false;
+            failed++;
+            return failed == calls.size();
+        }
+
+        void cancel() {
+            List<Call> toCancel;
+            synchronized (this) {
+                cancelled = true;
+                toCancel = new ArrayList<>(calls);
+            }
+            for (Call call : toCancel) call.cancel();
+        }
+    }
+
+    /**
+     * Un intento de la petición en un servidor concreto
+     */
+    private static void sendAttempt(HedgedRequest hedged, OllamaHostPool.Host host, String json,
+                                    boolean streaming, String detectedLang, long startMs, long callTimeoutMs,
+                                    TranslationCallback callback) {
+        Request request = new Request.Builder()
+                .url(host.generateUrl())
+                .post(RequestBody.create(json, MediaType.parse("application/json")))
+                .build();
+
+        Call httpCall = HttpClientProvider.newCall(request, callTimeoutMs);
+        if (!hedged.add(httpCall)) return;
+
+        Log.d(TAG, "Enviando petición a Ollama: " + host.generateUrl() + " (modelo: " + MODEL + ", lang: " + detectedLang
+                + ", streaming: " + streaming + ")");
+        long attemptStartMs = System.currentTimeMillis();
+
+        httpCall.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (call.isCanceled()) {
+                    Log.d(TAG, "Petición a " + host.baseUrl + " cancelada");
+                    return;
                 }
+                host.recordFailure();
+                Log.e(TAG, "Error de conexión con " + host.baseUrl + " tras " + (System.currentTimeMillis() - attemptStartMs)
+                        + " ms (límite " + callTimeoutMs + " ms)", e);
+                if (!hedged.fail()) return;
 
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    if (!response.isSuccessful()) {
-                        String errorBody = response.body() != null ? response.body().string() : "Sin detalles";
-                        Log.e(TAG, "Respuesta de error de Ollama: " + errorBody);
-                        callback.onError("Error HTTP " + response.code() + ": " + errorBody);
-                        response.close();
+                String errorMsg = "Error de conexión: " + e.getMessage() +
+                        "\n\n💡 Verifica:\n" +
+                        "1. Ollama está ejecutándose: corre 'ollama serve' en terminal\n" +
+                        "2. La IP/puerto es correcto: " + host.generateUrl() + "\n" +
+                        "3. Firewall permite puerto 11434 (TCP)\n" +
+                        "4. Para emulador: usa http://10.0.2.2:11434\n" +
+                        "5. Modelo cargado: 'ollama list' muestra '" + MODEL + "'";
+                callback.onError(errorMsg);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                if (!response.isSuccessful()) {
+                    String errorBody = response.body() != null ? response.body().string() : "Sin detalles";
+                    Log.e(TAG, "Respuesta de error de " + host.baseUrl + ": " + errorBody);
+                    host.recordFailure();
+                    if (hedged.fail()) callback.onError("Error HTTP " + response.code() + ": " + errorBody);
+                    response.close();
+                    return;
+                }
+
+                List<Call> losers = hedged.claim(call);
+                if (losers == null) {
+                    // Otro servidor respondió antes
+                    response.close();
+                    return;
+                }
+                for (Call loser : losers) loser.cancel();
+                host.recordSuccess(System.currentTimeMillis() - attemptStartMs);
+
+                try {
+                    long[] firstTokenAt = {0};
+                    JSONObject[] finalChunk = {null};
+                    String translatedText;
+                    if (streaming) {
+                        translatedText = readStream(response.body().source(), startMs, firstTokenAt,
+                                finalChunk, callback);
+                    } else {
+                        finalChunk[0] = new JSONObject(response.body().string());
+                        translatedText = finalChunk[0].getString("response");
+                    }
+                    OllamaTimings timings = OllamaTimings.from(finalChunk[0]);
+
+                    long totalMs = System.currentTimeMillis() - startMs;
+                    long firstTokenMs = firstTokenAt[0] > 0 ? firstTokenAt[0] - startMs : totalMs;
+                    Log.d(TAG, "Respuesta recibida de " + host.baseUrl + " - primer token: " + firstTokenMs
+                            + " ms, total: " + totalMs + " ms - HTTP: " + HttpClientProvider.getStats()
+                            + " - " + TranslationCoalescer.getStats() + " - " + OllamaHostPool.getStats());
+                    if (timings != null) {
+                        Log.d(TAG, "Tiempos de Ollama: " + timings);
+                    }
+
+                    if (translatedText == null || translatedText.trim().isEmpty()) {
+                        Log.w(TAG, "Traducción vacía recibida");
+                        callback.onError("El modelo no generó traducción (verifica si el modelo está optimizado para prompts de '" + detectedLang + "')");
                         return;
                     }
 
-                    try {
-                        String responseBody = response.body().string();
-                        Log.d(TAG, "Respuesta recibida de Ollama");
+                    Log.d(TAG, "Traducción exitosa (" + detectedLang + " → ES): " + translatedText.substring(0, Math.min(50, translatedText.length())) + "...");
+                    if (timings != null) callback.onServerTimings(timings);
+                    callback.onTranslationStats(firstTokenMs, totalMs);
+                    callback.onTextTranslated(translatedText.trim());
 
-                        JSONObject jsonResponse = new JSONObject(responseBody);
-                        String translatedText = jsonResponse.getString("response");
+                } catch (JSONException e) {
+                    Log.e(TAG, "Error al parsear respuesta JSON", e);
+                    callback.onError("Error al procesar respuesta: " + e.getMessage());
+                } catch (IOException e) {
+                    if (call.isCanceled()) return;
+                    // Corte de la conexión o error de Ollama a mitad del streaming
+                    Log.e(TAG, "Error durante el streaming", e);
+                    callback.onError("Error al recibir la traducción: " + e.getMessage());
+                } finally {
+                    response.close();
+                }
+            }
+        });
+    }
 
-                        if (translatedText == null || translatedText.trim().isEmpty()) {
-                            Log.w(TAG, "Traducción vacía recibida");
-                            callback.onError("El modelo no generó traducción (verifica si el modelo está optimizado para prompts de '" + detectedLang + "')");
-                            return;
-                        }
+    /**
+     * Lee el NDJSON de Ollama línea a línea directamente del socket, sin cargar el cuerpo
+     * completo en memoria. Cada línea trae un fragmento en "response"; la última "done": true.
+     * Si el stream termina sin esa línea (conexión cortada, servidor caído) el texto está
+     * incompleto: se lanza IOException para que no llegue a la caché como traducción
+     */
+    private static String readStream(BufferedSource source, long startMs, long[] firstTokenAt,
+                                     JSONObject[] finalChunk, TranslationCallback callback)
+            throws IOException, JSONException {
+        StringBuilder text = new StringBuilder();
+        long lastPartialAt = 0;
+        String line;
 
-                        Log.d(TAG, "Traducción exitosa (" + detectedLang + " → ES): " + translatedText.substring(0, Math.min(50, translatedText.length())) + "...");
-                        callback.onTextTranslated(translatedText.trim());
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) continue;
 
-                    } catch (JSONException e) {
-                        Log.e(TAG, "Error al parsear respuesta JSON", e);
-                        callback.onError("Error al procesar respuesta: " + e.getMessage());
-                    } finally {
-                        response.close();
-                    }
+            JSONObject chunk = new JSONObject(line);
+            if (chunk.has("error")) {
+                throw new IOException(chunk.optString("error", "Error de Ollama"));
+            }
+
+            String piece = chunk.optString("response", "");
+            if (!piece.isEmpty()) {
+                long now = System.currentTimeMillis();
+                if (firstTokenAt[0] == 0) {
+                    firstTokenAt[0] = now;
+                    Log.d(TAG, "Primer token en " + (now - startMs) + " ms");
                 }
-            });
+                text.append(piece);
 
-        } catch (JSONException e) {
-            Log.e(TAG, "Error al crear JSON de petición", e);
-            callback.onError("Error al crear petición: " + e.getMessage());
+                if (now - lastPartialAt >= PARTIAL_MIN_INTERVAL_MS) {
+                    lastPartialAt = now;
+                    callback.onPartialTranslation(text.toString());
+                }
+            }
+
+            if (chunk.optBoolean("done")) {
+                // La última línea trae los tiempos del servidor
+                finalChunk[0] = chunk;
+                break;
+            }
+        }
+        if (finalChunk[0] == null) {
+            throw new IOException("la respuesta se cortó tras " + text.length() + " caracteres");
         }
+        return text.toString();
     }
 
     /**
-     * Crea un prompt optimizado para tu modelo custom (enfocado en etiquetas de productos)
-     * Usa detección de idioma para precisión
+     * Límite total de la petición según el tamaño del prompt (en lugar de 60 s fijos)
      */
-    private static String createTranslationPrompt(String text, String detectedLang) {
-        String limitedText = text.substring(0, Math.min(500, text.length())); // Limitar para evitar prompts muy largos
+    private static long translationTimeoutMs(int promptLength) {
+        long timeout = TRANSLATION_BASE_TIMEOUT_MS + promptLength * TRANSLATION_TIMEOUT_PER_CHAR_MS;
+        return Math.min(timeout, TRANSLATION_MAX_TIMEOUT_MS);
+    }
 
+    /**
+     * Prompt para traducir solo los segmentos nuevos, numerados para poder alinearlos
+     */
+    private static String createSegmentPrompt(List<String> segments, String detectedLang) {
+        StringBuilder numbered = new StringBuilder();
+        for (int i = 0; i < segments.size(); i++) {
+            numbered.append(i + 1).append(". ").append(segments.get(i)).append('\n');
+        }
+        return INSTRUCTION_PREFIX +
+                "Idioma de origen: " + languageName(detectedLang) + "\n" +
+                "El texto viene en líneas numeradas: devuelve exactamente " + segments.size() +
+                " líneas con la misma numeración, una traducción por línea.\n" +
+                "Líneas:\n" + numbered;
+    }
+
+    private static String languageName(String detectedLang) {
         switch (detectedLang) {
             case "ko":
-                return String.format(
-                        "Traduce el siguiente texto del coreano al español. Es una etiqueta de producto. " +
-                                "Mantén secciones como ingredientes, instrucciones, advertencias. " +
-                                "Solo devuelve la traducción al español, sin explicaciones adicionales.\n\nTexto original:\n%s",
-                        limitedText
-                );
+                return "coreano";
             case "zh":
-                return String.format(
-                        "Traduce el siguiente texto del chino al español. Es una etiqueta de producto. " +
-                                "Mantén secciones como ingredientes, instrucciones, advertencias. " +
-                                "Solo devuelve la traducción al español, sin explicaciones adicionales.\n\nTexto original:\n%s",
-                        limitedText
-                );
+                return "chino";
+            case "ja":
+                return "japonés";
             case "mixed_asian":
-                return String.format(
-                        "Traduce el siguiente texto asiático mixto (chino/japonés/coreano) al español. Es una etiqueta de producto. " +
-                                "Mantén secciones como ingredientes, instrucciones, advertencias. " +
-                                "Solo devuelve la traducción al español, sin explicaciones adicionales.\n\nTexto original:\n%s",
-                        limitedText
-                );
+                return "chino/japonés/coreano";
             case "en":
-            default: // Fallback para inglés o unknown
-                return String.format(
-                        "Traduce el siguiente texto al español. Es una etiqueta de producto en inglés. " +
-                                "Mantén el formato original (listas, secciones). " +
-                                "Solo devuelve la traducción, máximo 300 palabras, sin introducciones.\n\nTexto original:\n%s",
-                        limitedText
-                );
+            default:
+                return "inglés";
         }
     }
 
+    /**
+     * Crea el prompt para el modelo custom (enfocado en etiquetas de productos):
+     * prefijo constante + idioma detectado + texto. Los textos largos ya llegan partidos
+     * por translateChunked
+     */
+    private static String createTranslationPrompt(String text, String detectedLang) {
+        return INSTRUCTION_PREFIX +
+                "Idioma de origen: " + languageName(detectedLang) + "\n" +
+                "Texto original:\n" + text;
+    }
+
     /**
      * Verifica si Ollama está disponible (usa /api/tags para listar modelos)
      */
     public static void checkOllamaConnection(ConnectionCallback callback) {
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(5, TimeUnit.SECONDS)
-                .readTimeout(5, TimeUnit.SECONDS)
-                .build();
+        checkOllamaConnection(OllamaHostPool.primary(), callback);
+    }
 
-        String testUrl = OLLAMA_URL.replace("/api/generate", "/api/tags"); // Endpoint para verificar modelos
+    /**
+     * Igual, contra un servidor concreto (lo usa el monitor de salud de OllamaHostPool)
+     */
+    public static void checkOllamaConnection(OllamaHostPool.Host host, ConnectionCallback callback) {
+        String testUrl = host.tagsUrl(); // Endpoint para verificar modelos
         Request request = new Request.Builder()
                 .url(testUrl)
                 .get()
@@ -193,10 +744,11 @@ public class TranslationService {
 
         Log.d(TAG, "Verificando conexión con Ollama: " + testUrl);
 
-        client.newCall(request).enqueue(new Callback() {
+        HttpClientProvider.newCall(request, CONNECTION_CHECK_TIMEOUT_MS).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
-                Log.e(TAG, "Error de conexión con Ollama", e);
+                // Un servidor caído es esperable (el monitor lo pone en espera): sin traza
+                Log.w(TAG, "Sin conexión con Ollama (" + testUrl + "): " + e.getMessage());
                 callback.onResult(false, "No se puede conectar: " + e.getMessage() + "\nEjecuta 'ollama serve'");
             }
 
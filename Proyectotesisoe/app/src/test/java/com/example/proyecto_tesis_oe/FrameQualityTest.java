@@ -0,0 +1,136 @@
+package com.example.proyecto_tesis_oe;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Veredictos del control de calidad sobre etiquetas sintéticas
+ */
+public class FrameQualityTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    /**
+     * Etiqueta que llena el frame, con el papel y la tinta en los niveles pedidos
+     */
+    private static LumaFrame label(int paper, int ink) {
+        LumaFrame frame = SyntheticLabel.text(WIDTH, HEIGHT, 8, 8, WIDTH - 8, HEIGHT - 8, 12);
+        for (int i = 0; i < frame.lumaSize(); i++) {
+            frame.data[i] = (byte) ((frame.data[i] & 0xff) == SyntheticLabel.INK ? ink : paper);
+        }
+        return frame;
+    }
+
+    /**
+     * Mancha saturada de fraction del frame (de arriba abajo por columnas)
+     */
+    private static void addGlare(LumaFrame frame, float fraction) {
+        int columns = Math.round(fraction * WIDTH);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < columns; x++) {
+                frame.data[y * WIDTH + x] = (byte) 255;
+            }
+        }
+    }
+
+    private static FrameQuality.Report assess(LumaFrame frame) {
+        FrameQuality.Report report = FrameQuality.assess(frame);
+        frame.recycle();
+        return report;
+    }
+
+    @Test
+    public void sharpWellExposedLabelPasses() {
+        FrameQuality.Report report = assess(label(SyntheticLabel.PAPER, SyntheticLabel.INK));
+        assertEquals(report.toString(), FrameQuality.Verdict.OK, report.verdict);
+        assertEquals("", report.message());
+    }
+
+    @Test
+    public void darkLabelIsRejected() {
+        FrameQuality.Report report = assess(label(40, 10));
+        assertEquals(report.toString(), FrameQuality.Verdict.REJECT, report.verdict);
+        assertEquals(FrameQuality.Issue.DARK, report.issue);
+    }
+
+    @Test
+    public void overexposedLabelIsRejected() {
+        FrameQuality.Report report = assess(label(245, 225));
+        assertEquals(report.toString(), FrameQuality.Verdict.REJECT, report.verdict);
+        assertEquals(FrameQuality.Issue.OVEREXPOSED, report.issue);
+    }
+
+    @Test
+    public void glareIsRejectedOrWarned() {
+        LumaFrame large = label(SyntheticLabel.PAPER, SyntheticLabel.INK);
+        addGlare(large, 0.2f);
+        FrameQuality.Report rejected = assess(large);
+        assertEquals(rejected.toString(), FrameQuality.Verdict.REJECT, rejected.verdict);
+        assertEquals(FrameQuality.Issue.GLARE, rejected.issue);
+
+        LumaFrame small = label(SyntheticLabel.PAPER, SyntheticLabel.INK);
+        addGlare(small, 0.06f);
+        FrameQuality.Report warned = assess(small);
+        assertEquals(warned.toString(), FrameQuality.Verdict.WARN, warned.verdict);
+        assertEquals(FrameQuality.Issue.GLARE, warned.issue);
+    }
+
+    @Test
+    public void flatLabelIsRejectedForContrast() {
+        FrameQuality.Report report = assess(label(140, 120));
+        assertEquals(report.toString(), FrameQuality.Verdict.REJECT, report.verdict);
+        assertEquals(FrameQuality.Issue.LOW_CONTRAST, report.issue);
+    }
+
+    @Test
+    public void smoothFrameIsRejectedAsBlurry() {
+        // Bandas anchas con todo el contraste pero sin bordes: lo que deja una foto movida
+        LumaFrame frame = LumaFrame.obtain(WIDTH, HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                frame.data[y * WIDTH + x] = (byte) (128 + 90 * Math.sin(2 * Math.PI * x / 80));
+            }
+        }
+        FrameQuality.Report report = assess(frame);
+        assertEquals(report.toString(), FrameQuality.Verdict.REJECT, report.verdict);
+        assertEquals(FrameQuality.Issue.BLURRY, report.issue);
+        assertFalse(report.message().isEmpty());
+    }
+
+    @Test
+    public void rejectedReportNeverBeatsAcceptedOne() {
+        FrameQuality.Report sharp = assess(label(SyntheticLabel.PAPER, SyntheticLabel.INK));
+        FrameQuality.Report dark = assess(label(40, 10));
+        assertTrue(sharp.isBetterThan(dark));
+        assertFalse(dark.isBetterThan(sharp));
+        assertTrue(dark.isBetterThan(null));
+    }
+
+    @Test
+    public void planeCropMatchesFrame() {
+        // La etiqueta dentro de un plano Y con relleno al final de cada fila
+        int stride = WIDTH + 64;
+        LumaFrame frame = label(SyntheticLabel.PAPER, SyntheticLabel.INK);
+        byte[] plane = new byte[stride * (HEIGHT + 20)];
+        for (int y = 0; y < HEIGHT; y++) {
+            System.arraycopy(frame.data, y * WIDTH, plane, (y + 10) * stride + 30, WIDTH);
+        }
+
+        FrameQuality.Report fromPlane = FrameQuality.assess(ByteBuffer.wrap(plane), stride,
+                30, 10, WIDTH, HEIGHT);
+        FrameQuality.Report fromFrame = assess(frame);
+        assertEquals(fromFrame.verdict, fromPlane.verdict);
+        assertEquals(fromFrame.low, fromPlane.low);
+        assertEquals(fromFrame.high, fromPlane.high);
+        assertEquals(fromFrame.sharpness, fromPlane.sharpness, 1e-6);
+    }
+
+    @Test
+    public void laplacianOfFlatFrameIsZero() {
+        LumaFrame frame = SyntheticLabel.blank(64, 64);
+        assertEquals(0.0, FrameQuality.laplacianVariance(frame), 1e-9);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.proyecto_tesis_oe;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Binarización global (Otsu) y local (Bradley, Sauvola) sobre frames sintéticos
+ */
+public class LocalThresholderTest {
+
+    private static final int WIDTH = 256;
+    private static final int HEIGHT = 128;
+
+    /**
+     * Trazos de 3x8 px cada 8 px en filas de texto, sobre un fondo que se oscurece de
+     * derecha (230) a izquierda (70), como una etiqueta con sombra. Los trazos quedan 60
+     * niveles por debajo de su fondo, así que un único umbral no separa ambos extremos
+     */
+    private static boolean isStroke(int x, int y) {
+        return y % 16 >= 4 && y % 16 < 12 && x % 8 >= 2 && x % 8 < 5;
+    }
+
+    private static LumaFrame shadowedText() {
+        LumaFrame frame = LumaFrame.obtain(WIDTH, HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int background = 70 + 160 * x / (WIDTH - 1);
+                frame.data[y * WIDTH + x] = (byte) (isStroke(x, y) ? background - 60 : background);
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Fracción de trazos en negro y de fondo en blanco, ignorando el margen de la ventana
+     */
+    private static float[] accuracy(LumaFrame frame) {
+        int strokes = 0, strokesBlack = 0, background = 0, backgroundWhite = 0;
+        for (int y = 8; y < HEIGHT - 8; y++) {
+            for (int x = 8; x < WIDTH - 8; x++) {
+                boolean black = frame.get(x, y) == 0;
+                if (isStroke(x, y)) {
+                    strokes++;
+                    if (black) strokesBlack++;
+                } else {
+                    background++;
+                    if (!black) backgroundWhite++;
+                }
+            }
+        }
+        return new float[]{(float) strokesBlack / strokes, (float) backgroundWhite / background};
+    }
+
+    private static int[] histogram(LumaFrame frame) {
+        int[] histogram = new int[256];
+        for (int i = 0; i < frame.lumaSize(); i++) histogram[frame.data[i] & 0xff]++;
+        return histogram;
+    }
+
+    @Test
+    public void otsuSplitsBimodalHistogram() {
+        int[] histogram = new int[256];
+        for (int v = 30; v <= 50; v++) histogram[v] = 100;
+        for (int v = 190; v <= 220; v++) histogram[v] = 300;
+
+        int threshold = LocalThresholder.otsuThreshold(histogram, 21 * 100 + 31 * 300);
+        assertTrue("umbral " + threshold, threshold >= 50 && threshold < 190);
+    }
+
+    @Test
+    public void globalMethodsReturnThresholdAndBinarize() {
+        LumaFrame frame = shadowedText();
+        int threshold = LocalThresholder.apply(frame, histogram(frame), LocalThresholder.Method.OTSU);
+
+        assertTrue(threshold >= 0 && threshold < 255);
+        for (int i = 0; i < frame.lumaSize(); i++) {
+            int v = frame.data[i] & 0xff;
+            assertTrue(v == 0 || v == 255);
+        }
+    }
+
+    @Test
+    public void localMethodsReportNoGlobalThreshold() {
+        LumaFrame frame = shadowedText();
+        assertEquals(-1, LocalThresholder.apply(frame, histogram(frame), LocalThresholder.Method.BRADLEY));
+    }
+
+    @Test
+    public void otsuLosesTextUnderShadow() {
+        LumaFrame frame = shadowedText();
+        LocalThresholder.apply(frame, histogram(frame), LocalThresholder.Method.OTSU);
+
+        float[] accuracy = accuracy(frame);
+        assertTrue("un umbral global no separa la sombra del texto", accuracy[0] + accuracy[1] < 1.8f);
+    }
+
+    @Test
+    public void bradleyKeepsTextUnderShadow() {
+        LumaFrame frame = shadowedText();
+        LocalThresholder.apply(frame, histogram(frame), LocalThresholder.Method.BRADLEY);
+
+        float[] accuracy = accuracy(frame);
+        assertTrue("trazos en negro " + accuracy[0], accuracy[0] > 0.95f);
+        assertTrue("fondo en blanco " + accuracy[1], accuracy[1] > 0.95f);
+    }
+
+    @Test
+    public void sauvolaKeepsTextUnderShadow() {
+        LumaFrame frame = shadowedText();
+        LocalThresholder.apply(frame, histogram(frame), LocalThresholder.Method.SAUVOLA);
+
+        float[] accuracy = accuracy(frame);
+        assertTrue("trazos en negro " + accuracy[0], accuracy[0] > 0.95f);
+        assertTrue("fondo en blanco " + accuracy[1], accuracy[1] > 0.95f);
+    }
+
+    @Test
+    public void sauvolaLeavesFlatAreasWhite() {
+        // Sin trazos la desviación local es nula y el umbral cae por debajo del fondo
+        LumaFrame frame = LumaFrame.obtain(64, 64);
+        for (int i = 0; i < frame.lumaSize(); i++) frame.data[i] = (byte) 180;
+
+        LocalThresholder.apply(frame, histogram(frame), LocalThresholder.Method.SAUVOLA);
+        for (int i = 0; i < frame.lumaSize(); i++) {
+            assertEquals(255, frame.data[i] & 0xff);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.proyecto_tesis_oe;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Contraste, conversión a gris y operaciones geométricas del motor de luminancia
+ */
+public class LumaPreprocessorTest {
+
+    private static int gray(int value) {
+        return 0xff000000 | (value << 16) | (value << 8) | value;
+    }
+
+    /**
+     * Frame cuyo píxel (x, y) vale y * width + x (tamaños pequeños, sin desbordar)
+     */
+    private static LumaFrame indexed(int width, int height) {
+        LumaFrame frame = LumaFrame.obtain(width, height);
+        for (int i = 0; i < frame.lumaSize(); i++) {
+            frame.data[i] = (byte) i;
+        }
+        return frame;
+    }
+
+    @Test
+    public void contrastOneIsIdentity() {
+        int[] argb = new int[256];
+        for (int v = 0; v < 256; v++) argb[v] = gray(v);
+
+        LumaFrame frame = new LumaPreprocessor(1f).process(argb, 16, 16, (LocalThresholder.Method) null);
+        for (int v = 0; v < 256; v++) {
+            assertEquals("nivel " + v, v, frame.data[v] & 0xff);
+        }
+    }
+
+    @Test
+    public void contrastLutStretchesAroundMidGray() {
+        // Dos filas iguales: NV21 no admite frames de una sola fila
+        int[] argb = {gray(0), gray(100), gray(128), gray(200), gray(255), gray(40),
+                gray(0), gray(100), gray(128), gray(200), gray(255), gray(40)};
+        LumaFrame frame = new LumaPreprocessor(1.5f).process(argb, 6, 2, (LocalThresholder.Method) null);
+
+        // v * 1.5 - 63.75, redondeado y limitado a [0, 255]
+        assertEquals(0, frame.data[0] & 0xff);
+        assertEquals(86, frame.data[1] & 0xff);
+        assertEquals(128, frame.data[2] & 0xff);
+        assertEquals(236, frame.data[3] & 0xff);
+        assertEquals(255, frame.data[4] & 0xff);
+    }
+
+    @Test
+    public void oddSourceWidthKeepsRowStride() {
+        // 5x3: el frame queda en 4x2 y cada fila debe leerse desde su propio inicio
+        int[] argb = new int[15];
+        for (int i = 0; i < argb.length; i++) argb[i] = gray(i * 10);
+
+        LumaFrame frame = new LumaPreprocessor(1f).process(argb, 5, 3, (LocalThresholder.Method) null);
+        assertEquals(4, frame.width);
+        assertEquals(2, frame.height);
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 4; x++) {
+                assertEquals((y * 5 + x) * 10, frame.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void downsampleAveragesBlocksWithOddFactor() {
+        // 12x6 a lado 4: factor 3, destino 4x2
+        LumaFrame source = LumaFrame.obtain(12, 6);
+        for (int y = 0; y < 6; y++) {
+            for (int x = 0; x < 12; x++) {
+                source.data[y * 12 + x] = (byte) (x / 3 * 20 + y / 3 * 100);
+            }
+        }
+
+        LumaFrame small = LumaPreprocessor.downsample(source, 4);
+        assertEquals(4, small.width);
+        assertEquals(2, small.height);
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 4; x++) {
+                assertEquals(x * 20 + y * 100, small.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void downsampleReturnsSameFrameWhenSmallEnough() {
+        LumaFrame source = indexed(8, 6);
+        assertSame(source, LumaPreprocessor.downsample(source, 8));
+    }
+
+    @Test
+    public void downsampleToZeroStopsAtTwoByTwo() {
+        // Una vista sin medir pide lado 0: el frame baja al mínimo en vez de salirse del buffer
+        LumaFrame source = indexed(1200, 800);
+        LumaFrame small = LumaPreprocessor.downsample(source, 0);
+        assertEquals(2, small.width);
+        assertEquals(2, small.height);
+    }
+
+    @Test
+    public void cropWithOddBoundsCopiesFromOffset() {
+        LumaFrame source = indexed(10, 8);
+
+        // 5x3 pedido: el frame queda en 4x2 y arranca en (3, 1)
+        LumaFrame crop = LumaPreprocessor.crop(source, 3, 1, 8, 4);
+        assertNotNull(crop);
+        assertEquals(4, crop.width);
+        assertEquals(2, crop.height);
+        for (int y = 0; y < crop.height; y++) {
+            for (int x = 0; x < crop.width; x++) {
+                assertEquals(source.get(3 + x, 1 + y), crop.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void cropIsClampedAndRejectsEmptyRegions() {
+        LumaFrame source = indexed(10, 8);
+
+        LumaFrame clamped = LumaPreprocessor.crop(source, -4, -4, 4, 4);
+        assertNotNull(clamped);
+        assertEquals(4, clamped.width);
+        assertEquals(source.get(0, 0), clamped.get(0, 0));
+
+        assertNull(LumaPreprocessor.crop(source, 9, 0, 20, 8));
+    }
+
+    @Test
+    public void rotateQuarterTurnIsClockwise() {
+        LumaFrame source = indexed(6, 4);
+
+        LumaFrame rotated = LumaPreprocessor.rotate(source, 90);
+        assertEquals(4, rotated.width);
+        assertEquals(6, rotated.height);
+        // La esquina superior izquierda pasa a la superior derecha
+        assertEquals(source.get(0, 0), rotated.get(3, 0));
+        assertEquals(source.get(0, 3), rotated.get(0, 0));
+        assertEquals(source.get(5, 3), rotated.get(0, 5));
+    }
+
+    @Test
+    public void rotateRoundTrips() {
+        LumaFrame source = indexed(6, 4);
+        int size = source.lumaSize();
+
+        LumaFrame half = LumaPreprocessor.rotate(source, 180);
+        assertEquals(source.get(0, 0), half.get(5, 3));
+
+        LumaFrame back = LumaPreprocessor.rotate(LumaPreprocessor.rotate(source, 90), 270);
+        for (int i = 0; i < size; i++) {
+            assertEquals(source.data[i], back.data[i]);
+        }
+        assertSame(source, LumaPreprocessor.rotate(source, 360));
+        assertSame(source, LumaPreprocessor.rotate(source, -360));
+    }
+}
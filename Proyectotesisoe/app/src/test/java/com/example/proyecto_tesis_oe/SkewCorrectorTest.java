@@ -0,0 +1,71 @@
+package com.example.proyecto_tesis_oe;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Estimación y corrección de la inclinación sobre texto sintético girado
+ */
+public class SkewCorrectorTest {
+
+    private static LumaFrame label() {
+        return SyntheticLabel.text(800, 600, 100, 100, 700, 500, 20);
+    }
+
+    /**
+     * Etiqueta con las líneas bajando angle grados hacia la derecha
+     */
+    private static LumaFrame tilted(float angle) {
+        LumaFrame straight = label();
+        LumaFrame tilted = SkewCorrector.rotateSmall(straight, -angle);
+        straight.recycle();
+        return tilted;
+    }
+
+    @Test
+    public void blankFrameHasNoEstimate() {
+        assertNull(SkewCorrector.estimate(SyntheticLabel.blank(640, 480)));
+    }
+
+    @Test
+    public void straightTextIsNotSignificant() {
+        SkewCorrector.Estimate estimate = SkewCorrector.estimate(label());
+
+        assertNotNull(estimate);
+        assertEquals(0f, estimate.angle, 0.2f);
+        assertFalse(estimate.isSignificant());
+    }
+
+    @Test
+    public void estimatesTiltInBothDirections() {
+        for (float angle : new float[]{4f, -3f}) {
+            SkewCorrector.Estimate estimate = SkewCorrector.estimate(tilted(angle));
+
+            assertNotNull(estimate);
+            assertEquals(estimate.toString(), angle, estimate.angle, 0.3f);
+            assertTrue(estimate.toString(), estimate.isSignificant());
+        }
+    }
+
+    @Test
+    public void correctionStraightensText() {
+        LumaFrame tilted = tilted(4f);
+        tilted.rotationDegrees = 90;
+        LumaFrame corrected = SkewCorrector.correct(tilted);
+
+        assertNotSame(tilted, corrected);
+        assertEquals(4f, corrected.skewDegrees, 0.3f);
+        assertEquals(90, corrected.rotationDegrees);
+        // El lienzo crece para no cortar las esquinas
+        assertTrue(corrected.width >= tilted.width && corrected.height >= tilted.height);
+        assertEquals(0f, SkewCorrector.estimate(corrected).angle, 0.3f);
+    }
+
+    @Test
+    public void straightFrameIsReturnedUnchanged() {
+        LumaFrame frame = label();
+        assertSame(frame, SkewCorrector.correct(frame));
+        assertEquals(0f, frame.skewDegrees, 0f);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.proyecto_tesis_oe;
+
+import java.util.Arrays;
+
+/**
+ * Frames en gris con "texto" sintético para las pruebas de detección: bloques de letras
+ * hechas de trazos (barras verticales y horizontales) sobre un fondo liso
+ */
+class SyntheticLabel {
+
+    static final int PAPER = 220;
+    static final int INK = 40;
+
+    static LumaFrame blank(int width, int height) {
+        LumaFrame frame = LumaFrame.obtain(width, height);
+        Arrays.fill(frame.data, 0, frame.lumaSize(), (byte) PAPER);
+        return frame;
+    }
+
+    /**
+     * Frame liso con un bloque de líneas de texto de glyph px de alto (interlineado 2x)
+     * dentro de [left, right) x [top, bottom)
+     */
+    static LumaFrame text(int width, int height, int left, int top, int right, int bottom, int glyph) {
+        LumaFrame frame = blank(width, height);
+        drawText(frame, left, top, right, bottom, glyph);
+        return frame;
+    }
+
+    static void drawText(LumaFrame frame, int left, int top, int right, int bottom, int glyph) {
+        int stroke = Math.max(2, glyph / 6);
+        int glyphWidth = glyph * 2 / 3;
+        int n = 0;
+        for (int lineTop = top; lineTop + glyph <= bottom; lineTop += glyph * 2) {
+            for (int glyphLeft = left; glyphLeft + glyphWidth <= right; glyphLeft += glyphWidth + glyph / 3, n++) {
+                // Combinación de trazos distinta en cada letra, siempre con algún trazo vertical
+                // (sin él una letra no da bordes en TextSizeEstimator)
+                int shape = (n * 37 + 11) % 32 | (n % 2 + 1);
+                for (int y = lineTop; y < lineTop + glyph; y++) {
+                    for (int x = glyphLeft; x < glyphLeft + glyphWidth; x++) {
+                        int dx = x - glyphLeft;
+                        int dy = y - lineTop;
+                        boolean ink = ((shape & 1) != 0 && dx < stroke)
+                                || ((shape & 2) != 0 && dx >= glyphWidth - stroke)
+                                || ((shape & 4) != 0 && dy < stroke)
+                                || ((shape & 8) != 0 && Math.abs(dy - glyph / 2) <= stroke / 2)
+                                || ((shape & 16) != 0 && dy >= glyph - stroke);
+                        if (ink) frame.data[y * frame.width + x] = (byte) INK;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.proyecto_tesis_oe;
+
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Detección de regiones con texto sobre frames sintéticos
+ */
+public class TextRegionDetectorTest {
+
+    private static boolean contains(TextRegionDetector.Region outer, int left, int top, int right, int bottom) {
+        return outer.left <= left && outer.top <= top && outer.right >= right && outer.bottom >= bottom;
+    }
+
+    @Test
+    public void blankFrameHasNoRegions() {
+        LumaFrame frame = SyntheticLabel.blank(640, 480);
+        assertTrue(TextRegionDetector.detect(frame).isEmpty());
+        assertNull(TextRegionDetector.textBounds(frame));
+    }
+
+    @Test
+    public void findsOneRegionPerLine() {
+        // Seis líneas de 24 px con 24 px de separación
+        LumaFrame frame = SyntheticLabel.text(1280, 960, 400, 300, 880, 600, 24);
+        List<TextRegionDetector.Region> regions = TextRegionDetector.detect(frame);
+
+        assertEquals(6, regions.size());
+        for (TextRegionDetector.Region region : regions) {
+            assertTrue(region.toString(), region.height() >= 24 && region.height() < 48);
+            assertTrue(region.toString(), region.left >= 380 && region.right <= 900);
+        }
+    }
+
+    @Test
+    public void boundsContainTextAndDropBackground() {
+        LumaFrame frame = SyntheticLabel.text(1280, 960, 400, 300, 880, 600, 24);
+        TextRegionDetector.Region bounds = TextRegionDetector.textBounds(frame);
+
+        assertNotNull(bounds);
+        assertTrue(bounds.toString(), contains(bounds, 400, 300, 880, 590));
+        // El margen es pequeño: el recorte se queda con menos de un cuarto del frame
+        assertTrue(bounds.toString(), (long) bounds.width() * bounds.height() < frame.lumaSize() / 4);
+    }
+
+    @Test
+    public void textFillingFrameIsNotCropped() {
+        LumaFrame frame = SyntheticLabel.text(640, 480, 8, 8, 632, 472, 16);
+        assertNull(TextRegionDetector.textBounds(frame));
+    }
+
+    @Test
+    public void barcodeIsNotText() {
+        LumaFrame frame = SyntheticLabel.blank(640, 480);
+        // Barras verticales de 2 a 6 px, sin bordes horizontales dentro
+        int x = 200;
+        for (int bar = 0; x < 440; bar++) {
+            int barWidth = 2 + (bar * 7) % 5;
+            for (int y = 150; y < 330; y++) {
+                for (int dx = 0; dx < barWidth; dx++) frame.data[y * 640 + x + dx] = (byte) SyntheticLabel.INK;
+            }
+            x += barWidth + 2 + (bar * 3) % 4;
+        }
+        assertTrue(TextRegionDetector.detect(frame).toString(), TextRegionDetector.detect(frame).isEmpty());
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.proyecto_tesis_oe;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Altura de las líneas de texto estimada sobre frames sintéticos
+ */
+public class TextSizeEstimatorTest {
+
+    @Test
+    public void blankFrameHasNoEstimate() {
+        assertNull(TextSizeEstimator.estimate(SyntheticLabel.blank(640, 480)));
+    }
+
+    @Test
+    public void measuresGlyphHeight() {
+        LumaFrame frame = SyntheticLabel.text(800, 600, 40, 40, 760, 560, 20);
+        TextSizeEstimator.Estimate estimate = TextSizeEstimator.estimate(frame);
+
+        assertNotNull(estimate);
+        assertEquals(20f, estimate.dominantHeight, 2f);
+        assertTrue(estimate.lines >= 3);
+    }
+
+    @Test
+    public void heightIsInOriginalPixels() {
+        // 1920 px de ancho: se mide sobre una copia a la mitad
+        LumaFrame frame = SyntheticLabel.text(1920, 1440, 100, 100, 1820, 1340, 40);
+        TextSizeEstimator.Estimate estimate = TextSizeEstimator.estimate(frame);
+
+        assertNotNull(estimate);
+        assertEquals(40f, estimate.dominantHeight, 4f);
+    }
+
+    @Test
+    public void finePrintIsSmallerThanDominant() {
+        // Cuerpo de 24 px y, debajo, unas pocas líneas de letra pequeña de 10 px
+        LumaFrame frame = SyntheticLabel.blank(800, 600);
+        SyntheticLabel.drawText(frame, 40, 40, 760, 440, 24);
+        SyntheticLabel.drawText(frame, 40, 480, 760, 560, 10);
+        TextSizeEstimator.Estimate estimate = TextSizeEstimator.estimate(frame);
+
+        assertNotNull(estimate);
+        assertEquals(estimate.toString(), 24f, estimate.dominantHeight, 2f);
+        assertEquals(estimate.toString(), 10f, estimate.finePrintHeight, 2f);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.proyecto_tesis_oe.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Relectura del archivo de TranslationCache, también cuando la última escritura quedó a medias
+ */
+public class CacheRecordsTest {
+
+    private static final long CREATED_AT = 1_700_000_000_000L;
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> scan(RandomAccessFile file, long[] end) throws IOException {
+        List<String> keys = new ArrayList<>();
+        end[0] = CacheRecords.scan(file, (key, offset, createdAt, size) -> {
+            assertEquals(CREATED_AT, createdAt);
+            keys.add(key + "@" + offset + "+" + size);
+        });
+        return keys;
+    }
+
+    /**
+     * Archivo con tres registros; devuelve dónde empieza cada uno y el final
+     */
+    private static long[] writeThree(RandomAccessFile file) throws IOException {
+        long[] offsets = new long[4];
+        String[] values = {"hola", "leche entera", "賞味期限"};
+        for (int i = 0; i < values.length; i++) {
+            CacheRecords.write(file, offsets[i], "key" + i, CREATED_AT, utf8(values[i]));
+            offsets[i + 1] = file.getFilePointer();
+        }
+        return offsets;
+    }
+
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("translation_cache", ".log");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void scansCompleteFile() throws IOException {
+        File path = tempFile();
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+            long[] offsets = writeThree(file);
+
+            long[] end = new long[1];
+            List<String> keys = scan(file, end);
+            assertEquals(3, keys.size());
+            assertEquals("key1@" + offsets[1] + "+" + (offsets[2] - offsets[1]), keys.get(1));
+            assertEquals(file.length(), end[0]);
+        } finally {
+            path.delete();
+        }
+    }
+
+    @Test
+    public void tornValueIsNotIndexed() throws IOException {
+        File path = tempFile();
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+            long[] offsets = writeThree(file);
+            // La app se cerró escribiendo el valor del último registro
+            file.setLength(offsets[3] - 2);
+
+            long[] end = new long[1];
+            List<String> keys = scan(file, end);
+            assertEquals(2, keys.size());
+            assertEquals(offsets[2], end[0]);
+        } finally {
+            path.delete();
+        }
+    }
+
+    @Test
+    public void tornHeaderIsNotIndexed() throws IOException {
+        File path = tempFile();
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+            long[] offsets = writeThree(file);
+            // Cortado dentro de la clave del segundo registro
+            file.setLength(offsets[1] + 10);
+
+            long[] end = new long[1];
+            assertEquals(1, scan(file, end).size());
+            assertEquals(offsets[1], end[0]);
+        } finally {
+            path.delete();
+        }
+    }
+
+    @Test
+    public void invalidLengthStopsScan() throws IOException {
+        File path = tempFile();
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+            long[] offsets = writeThree(file);
+            file.seek(offsets[3]);
+            file.writeLong(CREATED_AT);
+            file.writeUTF("roto");
+            file.writeInt(-5);
+            file.write(new byte[16]);
+
+            long[] end = new long[1];
+            assertEquals(3, scan(file, end).size());
+            assertEquals(offsets[3], end[0]);
+        } finally {
+            path.delete();
+        }
+    }
+
+    @Test
+    public void emptyFileHasNoRecords() throws IOException {
+        File path = tempFile();
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+            long[] end = new long[1];
+            assertTrue(scan(file, end).isEmpty());
+            assertEquals(0, end[0]);
+        } finally {
+            path.delete();
+        }
+    }
+}
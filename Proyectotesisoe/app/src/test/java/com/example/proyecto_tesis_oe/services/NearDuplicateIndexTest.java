@@ -0,0 +1,73 @@
+package com.example.proyecto_tesis_oe.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Firma MinHash y similitud de edición del índice de casi-duplicados
+ */
+public class NearDuplicateIndexTest {
+
+    private static final String LABEL = NearDuplicateIndex.normalize(
+            "Ingredients: wheat flour, sugar, vegetable oil, salt, yeast. Best before: see top of pack.");
+
+    private static float matchingFraction(int[] a, int[] b) {
+        assertEquals(a.length, b.length);
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) equal++;
+        }
+        return (float) equal / a.length;
+    }
+
+    @Test
+    public void normalizeIgnoresCaseAndLineBreaks() {
+        assertEquals("net wt. 500 g", NearDuplicateIndex.normalize("  NET  Wt.\n500\tg "));
+    }
+
+    @Test
+    public void signatureIsDeterministic() {
+        assertArrayEquals(NearDuplicateIndex.signature(LABEL), NearDuplicateIndex.signature(new String(LABEL)));
+    }
+
+    @Test
+    public void similarTextsShareMostMinHashes() {
+        // Un carácter perdido por el OCR
+        String scanned = LABEL.replace("vegetable", "vegetabe");
+        float similar = matchingFraction(NearDuplicateIndex.signature(LABEL), NearDuplicateIndex.signature(scanned));
+
+        String other = NearDuplicateIndex.normalize("Keep refrigerated after opening and consume within 3 days.");
+        float different = matchingFraction(NearDuplicateIndex.signature(LABEL), NearDuplicateIndex.signature(other));
+
+        assertTrue("similares " + similar, similar > 0.7f);
+        assertTrue("distintos " + different, different < 0.2f);
+    }
+
+    @Test
+    public void editSimilarityMatchesLevenshtein() {
+        assertEquals(1f, NearDuplicateIndex.editSimilarity("", "", 0.9f), 1e-6);
+        assertEquals(1f, NearDuplicateIndex.editSimilarity(LABEL, LABEL, 0.9f), 1e-6);
+        // kitten → sitting: 3 ediciones sobre 7 caracteres
+        assertEquals(1f - 3f / 7f, NearDuplicateIndex.editSimilarity("kitten", "sitting", 0.5f), 1e-6);
+        assertEquals(0.75f, NearDuplicateIndex.editSimilarity("abcd", "abed", 0.5f), 1e-6);
+    }
+
+    @Test
+    public void editSimilarityIsSymmetric() {
+        String scanned = LABEL.replace("sugar", "sugr").replace("salt", "sa1t");
+        assertEquals(NearDuplicateIndex.editSimilarity(LABEL, scanned, 0.9f),
+                NearDuplicateIndex.editSimilarity(scanned, LABEL, 0.9f), 1e-6);
+    }
+
+    @Test
+    public void editSimilarityReturnsZeroBelowThreshold() {
+        // Dentro de la banda: una sustitución en 90 caracteres supera 0.9
+        String oneTypo = LABEL.replace("yeast", "yeost");
+        assertTrue(NearDuplicateIndex.editSimilarity(LABEL, oneTypo, 0.9f) > 0.98f);
+
+        // Fuera: la diferencia de longitud ya excede la distancia permitida
+        assertEquals(0f, NearDuplicateIndex.editSimilarity(LABEL, LABEL.substring(0, 40), 0.9f), 1e-6);
+        assertEquals(0f, NearDuplicateIndex.editSimilarity("abcdefghij", "abcdefghxy", 0.9f), 1e-6);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.proyecto_tesis_oe.services;
+
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Elección del reconocedor a partir de la sonda (sin historia guardada)
+ */
+public class ScriptRouterTest {
+
+    private static final RecognizerManager.Script LATIN = RecognizerManager.Script.LATIN;
+    private static final RecognizerManager.Script CHINESE = RecognizerManager.Script.CHINESE;
+    private static final RecognizerManager.Script KOREAN = RecognizerManager.Script.KOREAN;
+    private static final RecognizerManager.Script JAPANESE = RecognizerManager.Script.JAPANESE;
+
+    private static RecognizerManager.Script choose(String probeText, float confidence) {
+        List<RecognizerManager.Script> ranking = ScriptRouter.rankScripts();
+        return ScriptRouter.chooseFromProbe(ScriptRouter.probeScript(), probeText, confidence, ranking);
+    }
+
+    @Test
+    public void probeSeesLatinAndAsianScripts() {
+        // Sin historia asiática la sonda es el japonés: lee latín, kana y han
+        assertEquals(JAPANESE, ScriptRouter.probeScript());
+        assertTrue(ScriptRouter.canRead(JAPANESE, LATIN));
+        assertTrue(ScriptRouter.canRead(JAPANESE, JAPANESE));
+        assertFalse(ScriptRouter.canRead(JAPANESE, KOREAN));
+    }
+
+    @Test
+    public void confidentLatinProbeIsReused() {
+        RecognizerManager.Script chosen = choose("Whole milk 1L", 0.9f);
+        assertEquals(LATIN, chosen);
+        assertTrue(ScriptRouter.canRead(ScriptRouter.probeScript(), chosen));
+    }
+
+    @Test
+    public void kanaPicksJapaneseAndHanPicksChinese() {
+        assertEquals(JAPANESE, choose("賞味期限 しょうゆ", 0.8f));
+        assertEquals(CHINESE, choose("配料 小麦粉", 0.8f));
+    }
+
+    @Test
+    public void weakLatinPicksScriptTheProbeCannotRead() {
+        // El hangul mal leído por la sonda japonesa sale como letras latinas dudosas
+        assertEquals(KOREAN, choose("oI2l XE", 0.2f));
+    }
+
+    @Test
+    public void executionOrderStartsWithChosen() {
+        List<RecognizerManager.Script> order = ScriptRouter.executionOrder(KOREAN, ScriptRouter.rankScripts());
+        assertEquals(KOREAN, order.get(0));
+        assertEquals(RecognizerManager.Script.values().length, order.size());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.proyecto_tesis_oe.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Normalización del texto del OCR y conteo por script
+ */
+public class TextAnalyzerTest {
+
+    @Test
+    public void collapsesSpacesAndBlankLines() {
+        assertEquals("Sugar 20 g\nSalt 1 g",
+                TextAnalyzer.normalize("  Sugar \t  20 g \r\n\r\n\n   Salt  1 g  \n"));
+    }
+
+    @Test
+    public void foldsFullWidthToAscii() {
+        assertEquals("ABC 123 xyz", TextAnalyzer.normalize("ＡＢＣ　１２３　ｘｙｚ"));
+    }
+
+    @Test
+    public void convertsHalfWidthKatakanaWithVoicingMarks() {
+        // ｶﾞｽ → ガス, ﾊﾟﾝ → パン
+        assertEquals("ガス パン", TextAnalyzer.normalize("ｶﾞｽ ﾊﾟﾝ"));
+    }
+
+    @Test
+    public void shortensSeparatorRunsButKeepsShortOnes() {
+        assertEquals("a-b - c. d.. e/f", TextAnalyzer.normalize("a-b ----- c...... d.. e///f"));
+    }
+
+    @Test
+    public void dropsControlCharacters() {
+        assertEquals("ab", TextAnalyzer.normalize("a\u0000\u0007b"));
+    }
+
+    @Test
+    public void countsScripts() {
+        TextAnalyzer.Result result = TextAnalyzer.analyze("Milk 牛乳 우유 ミルク 2%");
+
+        assertEquals(4, result.latin);
+        assertEquals(2, result.han);
+        assertEquals(2, result.hangul);
+        assertEquals(3, result.kana);
+        assertEquals(1, result.digits);
+        assertEquals(7, result.asian());
+        assertEquals("mixed_asian", result.language());
+    }
+
+    @Test
+    public void detectsLanguageFromScripts() {
+        assertEquals("en", TextAnalyzer.analyze("Best before 2025").language());
+        assertEquals("ko", TextAnalyzer.analyze("유통기한 2025").language());
+        assertEquals("zh", TextAnalyzer.analyze("保质期 2025").language());
+        assertEquals("ja", TextAnalyzer.analyze("賞味期限 ２０２５ かならず").language());
+        assertEquals("unknown", TextAnalyzer.analyze("123 456").language());
+    }
+
+    @Test
+    public void normalizedTextIsStable() {
+        String once = TextAnalyzer.normalize(" Ｎｅｔ  wt.\n\n 500 g ");
+        assertEquals(once, TextAnalyzer.normalize(once));
+    }
+
+    @Test
+    public void reusesResultForSameString() {
+        String text = new String("Ingredients: water");
+        assertSame(TextAnalyzer.analyze(text), TextAnalyzer.analyze(text));
+    }
+
+    @Test
+    public void nullIsEmpty() {
+        assertNull(TextAnalyzer.normalize(null));
+        assertEquals("", TextAnalyzer.analyze(null).text);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.proyecto_tesis_oe.services;
+
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Corte de textos largos en trozos y recomposición
+ */
+public class TextChunkerTest {
+
+    private static String[] texts(List<TextChunker.Chunk> chunks) {
+        String[] texts = new String[chunks.size()];
+        for (int i = 0; i < texts.length; i++) texts[i] = chunks.get(i).text;
+        return texts;
+    }
+
+    private static void assertFits(List<TextChunker.Chunk> chunks, int maxChars) {
+        for (TextChunker.Chunk chunk : chunks) {
+            assertTrue("trozo de " + chunk.text.length(), chunk.text.length() <= maxChars);
+            assertFalse(chunk.text.isEmpty());
+        }
+    }
+
+    @Test
+    public void shortTextIsOneChunk() {
+        List<TextChunker.Chunk> chunks = TextChunker.split("  Net wt. 500 g  ", 100);
+        assertEquals(1, chunks.size());
+        assertEquals("Net wt. 500 g", chunks.get(0).text);
+    }
+
+    @Test
+    public void groupsLinesUpToLimit() {
+        String text = "Ingredients: flour\nSugar, salt\nMade in Japan\nKeep dry";
+        List<TextChunker.Chunk> chunks = TextChunker.split(text, 32);
+
+        assertFits(chunks, 32);
+        assertEquals("Ingredients: flour\nSugar, salt", chunks.get(0).text);
+        assertEquals("\n", chunks.get(0).separator);
+        assertEquals(text, TextChunker.join(chunks, texts(chunks)));
+    }
+
+    @Test
+    public void longLineIsSplitBetweenSentences() {
+        String text = "Store in a cool place. Keep away from sunlight. Consume within three days.";
+        List<TextChunker.Chunk> chunks = TextChunker.split(text, 30);
+
+        assertFits(chunks, 30);
+        assertEquals("Store in a cool place.", chunks.get(0).text);
+        assertEquals(text, TextChunker.join(chunks, texts(chunks)));
+    }
+
+    @Test
+    public void cjkSentencesSplitWithoutSpaces() {
+        String text = "直射日光を避けてください。開封後はお早めにお召し上がりください。";
+        List<TextChunker.Chunk> chunks = TextChunker.split(text, 20);
+
+        assertFits(chunks, 20);
+        assertEquals("直射日光を避けてください。", chunks.get(0).text);
+        assertEquals("", chunks.get(0).separator);
+        assertEquals(text, TextChunker.join(chunks, texts(chunks)));
+    }
+
+    @Test
+    public void wordsAndHardSplitAsLastResort() {
+        String words = "alpha beta gamma delta epsilon zeta eta theta";
+        List<TextChunker.Chunk> byWords = TextChunker.split(words, 12);
+        assertFits(byWords, 12);
+        assertEquals(words, TextChunker.join(byWords, texts(byWords)));
+
+        String unbroken = "abcdefghijklmnopqrstuvwxyz";
+        List<TextChunker.Chunk> hard = TextChunker.split(unbroken, 10);
+        assertEquals(3, hard.size());
+        assertEquals(unbroken, TextChunker.join(hard, texts(hard)));
+    }
+
+    @Test
+    public void joinSkipsMissingTranslations() {
+        List<TextChunker.Chunk> chunks = TextChunker.split("one\ntwo\nthree", 5);
+        assertEquals(3, chunks.size());
+
+        String joined = TextChunker.join(chunks, new String[]{"uno", null, " tres "});
+        assertEquals("uno\ntres", joined);
+    }
+}
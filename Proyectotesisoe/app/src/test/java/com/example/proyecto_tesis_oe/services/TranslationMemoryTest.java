@@ -0,0 +1,51 @@
+package com.example.proyecto_tesis_oe.services;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Lectura de la respuesta numerada del modelo
+ */
+public class TranslationMemoryTest {
+
+    @Test
+    public void parsesBothNumberingStyles() {
+        List<String> lines = TranslationMemory.parseNumbered("1. Azúcar\n2) Sal\n 3 .  Agua ", 3);
+        assertEquals(Arrays.asList("Azúcar", "Sal", "Agua"), lines);
+    }
+
+    @Test
+    public void joinsContinuationLines() {
+        List<String> lines = TranslationMemory.parseNumbered("1. Conservar en lugar\nfresco y seco\n\n2. Hecho en Japón", 2);
+        assertEquals(Arrays.asList("Conservar en lugar fresco y seco", "Hecho en Japón"), lines);
+    }
+
+    @Test
+    public void longDigitRunIsTextNotNumbering() {
+        // Un código de barras seguido de punto no debe romper el análisis
+        List<String> lines = TranslationMemory.parseNumbered("1. Código\n4901234567894.\n2. Lote", 2);
+        assertEquals(Arrays.asList("Código 4901234567894.", "Lote"), lines);
+    }
+
+    @Test
+    public void ignoresTextBeforeFirstNumber() {
+        List<String> lines = TranslationMemory.parseNumbered("Aquí está la traducción:\n1. Leche", 1);
+        assertEquals(Arrays.asList("Leche"), lines);
+    }
+
+    @Test
+    public void rejectsMisalignedAnswers() {
+        assertNull(TranslationMemory.parseNumbered("1. Uno\n2. Dos", 3));
+        assertNull(TranslationMemory.parseNumbered("1. Uno\n3. Tres", 2));
+        assertNull(TranslationMemory.parseNumbered("1. Uno\n2. Dos\n3. Tres", 2));
+    }
+
+    @Test
+    public void partialParseStopsAtFirstGap() {
+        List<String> lines = TranslationMemory.parseNumbered("1. Uno\n2. Dos\n4. Cuatro", -1);
+        assertEquals(Arrays.asList("Uno", "Dos"), lines);
+    }
+}